@@ -0,0 +1,130 @@
+package com.gurps.roombooking.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Generates synthetic input files in the same format as HappyFile.txt:
+ *
+ * <pre>
+ * 0900 1730
+ * 2011-03-17 10:17:06 EMP001
+ * 2011-03-21 09:00 2
+ * </pre>
+ *
+ * Submission times are spread over the year before the first meeting date so larger files contain
+ * requests submitted at the same second. Meetings start on the hour or half hour between 08:00 and
+ * 17:30 for one to three hours, so some fall outside the 09:00 - 17:30 office hours.
+ *
+ * Usage: BookingFileGenerator output-path requests [conflict-density] [date-spread] [seed]
+ */
+public class BookingFileGenerator {
+
+    private static final LocalDate FIRST_MEETING_DATE = LocalDate.of(2011, 3, 21);
+    private static final int SUBMISSION_DAYS = 365;
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+    private static final int FIRST_START_HOUR = 8;
+    private static final int START_HOURS = 10;
+    private static final int MAX_DURATION = 3;
+    private static final int EMPLOYEES = 1000;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final long requests;
+    private final double conflictDensity;
+    private final int dateSpread;
+    private final long seed;
+
+    /**
+     * @param requests the number of booking requests to generate
+     * @param conflictDensity the share of requests, 0 to 1, deliberately booked over the start of an earlier
+     * request. The rest are placed at random and only clash by chance.
+     * @param dateSpread the number of days the meeting dates are spread over
+     * @param seed random seed, the same arguments and seed give the same file
+     */
+    public BookingFileGenerator(final long requests, final double conflictDensity, final int dateSpread,
+            final long seed) {
+        if (requests < 0 || conflictDensity < 0 || conflictDensity > 1 || dateSpread < 1) {
+            throw new IllegalArgumentException("requests >= 0, 0 <= conflict density <= 1 and date spread >= 1");
+        }
+        this.requests = requests;
+        this.conflictDensity = conflictDensity;
+        this.dateSpread = dateSpread;
+        this.seed = seed;
+    }
+
+    public void generate(final Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.US_ASCII), BUFFER_SIZE)) {
+            generate(writer);
+        }
+    }
+
+    public void generate(final Writer writer) throws IOException {
+        Random random = new Random(seed);
+        String[] submissionDates = dates(FIRST_MEETING_DATE.minusDays(SUBMISSION_DAYS), SUBMISSION_DAYS);
+        String[] meetingDates = dates(FIRST_MEETING_DATE, dateSpread);
+        StringBuilder line = new StringBuilder(64);
+        int previousDay = 0;
+        int previousStart = FIRST_START_HOUR * 2;
+
+        writer.write("0900 1730");
+        for (long i = 0; i < requests; i++) {
+            int second = random.nextInt(SECONDS_PER_DAY);
+            line.setLength(0);
+            line.append('\n').append(submissionDates[random.nextInt(SUBMISSION_DAYS)]).append(' ');
+            appendTwoDigits(line, second / 3600).append(':');
+            appendTwoDigits(line, second / 60 % 60).append(':');
+            appendTwoDigits(line, second % 60).append(" EMP");
+            appendThreeDigits(line, random.nextInt(EMPLOYEES));
+
+            // start is counted in half hours
+            if (i == 0 || random.nextDouble() >= conflictDensity) {
+                previousDay = random.nextInt(dateSpread);
+                previousStart = FIRST_START_HOUR * 2 + random.nextInt(START_HOURS * 2);
+            }
+            line.append('\n').append(meetingDates[previousDay]).append(' ');
+            appendTwoDigits(line, previousStart / 2).append(previousStart % 2 == 0 ? ":00 " : ":30 ")
+                    .append(1 + random.nextInt(MAX_DURATION));
+            writer.append(line);
+        }
+    }
+
+    private static String[] dates(final LocalDate first, final int days) {
+        String[] dates = new String[days];
+        for (int i = 0; i < days; i++) {
+            dates[i] = first.plusDays(i).toString();
+        }
+        return dates;
+    }
+
+    private static StringBuilder appendTwoDigits(final StringBuilder line, final int value) {
+        return line.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    private static StringBuilder appendThreeDigits(final StringBuilder line, final int value) {
+        return appendTwoDigits(line.append((char) ('0' + value / 100)), value % 100);
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException(
+                    "usage: BookingFileGenerator output-path requests [conflict-density] [date-spread] [seed]");
+        }
+        double conflictDensity = args.length > 2 ? Double.parseDouble(args[2]) : 0.1;
+        int dateSpread = args.length > 3 ? Integer.parseInt(args[3]) : 365;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+        new BookingFileGenerator(Long.parseLong(args[1]), conflictDensity, dateSpread, seed)
+                .generate(Paths.get(args[0]));
+    }
+}
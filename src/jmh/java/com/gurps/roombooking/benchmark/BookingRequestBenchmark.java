@@ -0,0 +1,123 @@
+package com.gurps.roombooking.benchmark;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.builder.CompareToBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.gurps.roombooking.domain.BookingRequest;
+
+/**
+ * Compares the packed key comparison, hashing and cached end time of BookingRequest with the
+ * commons-lang builders and per call end time computation it used before.
+ *
+ * Run with -prof gc to see the allocation rate of each variant.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingRequestBenchmark {
+
+    /**
+     * The previous implementation of BookingRequest.compareTo
+     */
+    private static final Comparator<BookingRequest> BUILDER_COMPARATOR = new Comparator<BookingRequest>() {
+        @Override
+        public int compare(final BookingRequest first, final BookingRequest second) {
+            return new CompareToBuilder()
+                    .append(first.getRequestDate(), second.getRequestDate())
+                    .append(first.getRequestTime(), second.getRequestTime())
+                    .toComparison();
+        }
+    };
+
+    @Param({ "100000" })
+    private int size;
+
+    private BookingRequest[] requests;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        requests = new BookingRequest[size];
+        for (int i = 0; i < size; i++) {
+            requests[i] = new BookingRequest.BookingRequestBuilder(LocalDate.of(2011, 1, 1).plusDays(random.nextInt(365)),
+                    LocalTime.ofSecondOfDay(random.nextInt(86400)))
+                    .meetingDate(LocalDate.of(2012, 1, 1).plusDays(random.nextInt(365)))
+                    .meetingStart(LocalTime.of(9 + random.nextInt(8), 0))
+                    .duration(1 + random.nextInt(3))
+                    .employee("EMP" + random.nextInt(1000))
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public BookingRequest[] sortPackedKey() {
+        BookingRequest[] copy = requests.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    @Benchmark
+    public BookingRequest[] sortCompareToBuilder() {
+        BookingRequest[] copy = requests.clone();
+        Arrays.sort(copy, BUILDER_COMPARATOR);
+        return copy;
+    }
+
+    @Benchmark
+    public int hashPackedKey() {
+        int hash = 0;
+        for (BookingRequest request : requests) {
+            hash += request.hashCode();
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public int hashCodeBuilder() {
+        int hash = 0;
+        for (BookingRequest request : requests) {
+            hash += new HashCodeBuilder(17, 37).append(request.getRequestDate()).append(request.getRequestTime())
+                    .toHashCode();
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public void endTimeCached(final Blackhole blackhole) {
+        for (BookingRequest request : requests) {
+            blackhole.consume(request.getMeetingEndDateTime());
+        }
+    }
+
+    @Benchmark
+    public void endTimeComputed(final Blackhole blackhole) {
+        for (BookingRequest request : requests) {
+            LocalDateTime start = LocalDateTime.of(request.getMeetingDate(), request.getMeetingStartTime());
+            blackhole.consume(start.plus(request.getMeetingDuration(), ChronoUnit.HOURS));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.gurps.roombooking.benchmark;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.gurps.roombooking.http.BookingHttpServer;
+import com.gurps.roombooking.service.IncrementalSchedulerService;
+
+/**
+ * Load test for the BookingHttpServer: a number of concurrent clients POST random bookings (and every
+ * tenth request GETs a day's schedule) as fast as they can, and the latency of every request is recorded.
+ * Reports throughput and the p50, p99 and maximum latency.
+ *
+ * Usage: HttpLoadTest [requests] [clients] [base-url]
+ * Without a base url an in-process server is started on a free port.
+ */
+public class HttpLoadTest {
+
+    private static final LocalDateTime FIRST_SUBMISSION = LocalDateTime.of(2011, 1, 1, 0, 0);
+    private static final LocalDate FIRST_MEETING_DATE = LocalDate.of(2011, 3, 21);
+    private static final int MEETING_DAYS = 30;
+    private static final DateTimeFormatter SUBMISSION_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public static void main(final String[] args) throws IOException, InterruptedException, ExecutionException {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+
+        BookingHttpServer server = null;
+        String baseUrl;
+        if (args.length > 2) {
+            baseUrl = args[2];
+        } else {
+            BookingHttpServer.enableNoDelay();
+            server = new BookingHttpServer(new IncrementalSchedulerService(LocalTime.of(9, 0), LocalTime.of(17, 30),
+                    "load-test-schedule.txt"), new InetSocketAddress("localhost", 0));
+            server.start();
+            baseUrl = "http://localhost:" + server.getPort();
+        }
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .executor(BookingHttpServer.newRequestExecutor()).build();
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        ExecutorService executor = BookingHttpServer.newRequestExecutor();
+        List<Future<?>> futures = new ArrayList<>();
+
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            final Random random = new Random(c);
+            futures.add(executor.submit(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < requests) {
+                    HttpRequest request = i % 10 == 9 ? scheduleRequest(baseUrl, random)
+                            : bookingRequest(baseUrl, i, random);
+                    long sent = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 400 && response.statusCode() != 409) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (IOException | InterruptedException e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[i] = System.nanoTime() - sent;
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        if (server != null) {
+            server.stop(0);
+        }
+
+        Arrays.sort(latencies);
+        System.out.printf("requests=%d clients=%d errors=%d throughput=%.0f req/s%n", requests, clients,
+                errors.get(), requests * 1e9 / elapsed);
+        System.out.printf("p50=%.3f ms p99=%.3f ms max=%.3f ms%n", percentile(latencies, 0.50) / 1e6,
+                percentile(latencies, 0.99) / 1e6, latencies[latencies.length - 1] / 1e6);
+    }
+
+    private static HttpRequest bookingRequest(final String baseUrl, final int i, final Random random) {
+        // submission times are unique so no booking is dropped as a duplicate
+        String body = SUBMISSION_FORMAT.format(FIRST_SUBMISSION.plusSeconds(i)) + " EMP" + random.nextInt(1000) + "\n"
+                + FIRST_MEETING_DATE.plusDays(random.nextInt(MEETING_DAYS)) + " "
+                + LocalTime.of(9 + random.nextInt(8), 30 * random.nextInt(2)) + " " + (1 + random.nextInt(2));
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/bookings"))
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private static HttpRequest scheduleRequest(final String baseUrl, final Random random) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/schedule/"
+                + FIRST_MEETING_DATE.plusDays(random.nextInt(MEETING_DAYS)))).GET().build();
+    }
+
+    private static long percentile(final long[] sorted, final double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,231 @@
+package com.gurps.roombooking.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.BookingRequestStore;
+import com.gurps.roombooking.domain.ScheduledMeetingComparator;
+import com.gurps.roombooking.domain.SubmissionOrderedRequests;
+import com.gurps.roombooking.service.BasicCalculatorService;
+import com.gurps.roombooking.service.BinaryBookingFile;
+import com.gurps.roombooking.service.BookingRequestReader;
+import com.gurps.roombooking.service.BookingRuleChain;
+import com.gurps.roombooking.service.FilePrinterServiceImpl;
+import com.gurps.roombooking.service.MappedBookingFileReader;
+import com.gurps.roombooking.service.MaxHoursRule;
+import com.gurps.roombooking.service.MaxHoursRule.Period;
+import com.gurps.roombooking.service.MeetingSchedulerServiceImpl;
+import com.gurps.roombooking.service.NoOverlapRule;
+import com.gurps.roombooking.service.PipelinedSchedulerService;
+import com.gurps.roombooking.service.RejectionLog;
+import com.gurps.roombooking.service.SchedulerMetrics;
+import com.gurps.roombooking.service.StreamingFilePrinterService;
+
+/**
+ * Benchmarks each stage of the scheduler - parse, calculate and print - on files from the
+ * BookingFileGenerator, plus the ScheduledMeetingComparator on its own and the whole run end to end.
+ *
+ * The sizes can be overridden on the command line, e.g.
+ * java -jar target/benchmarks.jar SchedulerBenchmark -p requests=10000000 -p conflictDensity=0.9
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchedulerBenchmark {
+
+    @Param({ "10000", "1000000" })
+    private long requests;
+
+    @Param({ "0.1", "0.5" })
+    private double conflictDensity;
+
+    @Param({ "365" })
+    private int dateSpread;
+
+    private Path directory;
+    private Path input;
+    private Path binary;
+    private BookingRequestBatch batch;
+    private Map<LocalDate, SortedSet<BookingRequest>> schedule;
+    private BookingRequest[] meetings;
+    private final Comparator<BookingRequest> comparator = new ScheduledMeetingComparator();
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("scheduler-benchmark");
+        input = directory.resolve("input.txt");
+        new BookingFileGenerator(requests, conflictDensity, dateSpread, 1).generate(input);
+        binary = directory.resolve("input.rbb");
+        BinaryBookingFile.convert(input, binary);
+        batch = parse();
+        schedule = new BasicCalculatorService().calculate(batch);
+        meetings = batch.getBookingRequests().toArray(new BookingRequest[0]);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        for (File file : directory.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * The same parse as MeetingSchedulerServiceImpl: stream the file and order the requests by submission.
+     */
+    @Benchmark
+    public BookingRequestBatch parse() throws IOException {
+        try (BookingRequestReader reader = new BookingRequestReader(input)) {
+            BookingRequestBatch parsed = reader.readHeader();
+            List<BookingRequest> bookingRequests = new ArrayList<>();
+            BookingRequest bookingRequest;
+            while ((bookingRequest = reader.next()) != null) {
+                bookingRequests.add(bookingRequest);
+            }
+            parsed.setBookingRequests(SubmissionOrderedRequests.of(bookingRequests));
+            return parsed;
+        }
+    }
+
+    /**
+     * The strict validation pass, which checks every request without creating any objects.
+     */
+    @Benchmark
+    public long validate() throws IOException {
+        try (BookingRequestReader reader = new BookingRequestReader(input)) {
+            reader.readHeader();
+            return reader.validate();
+        }
+    }
+
+    @Benchmark
+    public BookingRequestBatch parseMapped() throws IOException {
+        return new MappedBookingFileReader().read(input);
+    }
+
+    @Benchmark
+    public BookingRequestStore parseColumnar() throws IOException {
+        try (BookingRequestReader reader = new BookingRequestReader(input)) {
+            reader.readHeader();
+            BookingRequestStore store = BookingRequestStore.onHeap();
+            reader.readInto(store);
+            return store;
+        }
+    }
+
+    /**
+     * Maps the binary form of the input and reads every record once, as the calculator would.
+     */
+    @Benchmark
+    public long loadBinary() throws IOException {
+        BookingRequestStore store = BinaryBookingFile.load(binary).getStore();
+        long sum = 0;
+        for (int record = 0; record < store.size(); record++) {
+            sum += store.getSubmissionEpochSecond(record) + store.getStartMinute(record);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public Map<LocalDate, SortedSet<BookingRequest>> calculate() {
+        return new BasicCalculatorService().calculate(batch);
+    }
+
+    /**
+     * calculate without reporting the rejected requests anywhere, as with --quiet.
+     */
+    @Benchmark
+    public Map<LocalDate, SortedSet<BookingRequest>> calculateQuiet() {
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        metrics.setLogRejections(false);
+        return new BasicCalculatorService(metrics).calculate(batch);
+    }
+
+    /**
+     * calculateQuiet with a daily and a weekly limit on the hours per employee and no overlapping
+     * meetings per employee.
+     */
+    @Benchmark
+    public Map<LocalDate, SortedSet<BookingRequest>> calculateRules() {
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        metrics.setLogRejections(false);
+        BasicCalculatorService calculator = new BasicCalculatorService(metrics);
+        calculator.setRules(BookingRuleChain.of(new MaxHoursRule(4, Period.DAY), new MaxHoursRule(20, Period.WEEK),
+                new NoOverlapRule()));
+        return calculator.calculate(batch);
+    }
+
+    /**
+     * calculate with the rejected requests written to a file in the background, as with --rejections.
+     */
+    @Benchmark
+    public Map<LocalDate, SortedSet<BookingRequest>> calculateRejectionLog() throws IOException {
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        try (RejectionLog log = new RejectionLog(directory.resolve("rejections.txt"))) {
+            metrics.setRejectionLog(log);
+            return new BasicCalculatorService(metrics).calculate(batch);
+        }
+    }
+
+    /**
+     * Compares each request with its neighbour in submission order, i.e. mostly different days with
+     * some overlapping meetings on the same day.
+     */
+    @Benchmark
+    public int compare() {
+        int result = 0;
+        for (int i = 1; i < meetings.length; i++) {
+            result += comparator.compare(meetings[i - 1], meetings[i]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public void print() throws IOException {
+        new FilePrinterServiceImpl(directory.resolve("output.txt").toString()).print(schedule);
+    }
+
+    @Benchmark
+    public void printStreaming() throws IOException {
+        new StreamingFilePrinterService(directory.resolve("output.txt").toString()).print(schedule);
+    }
+
+    @Benchmark
+    public void produceSchedule() {
+        new MeetingSchedulerServiceImpl(input.toString(), directory.resolve("output.txt").toString())
+                .produceSchedule();
+    }
+
+    @Benchmark
+    public void produceSchedulePipelined() {
+        new PipelinedSchedulerService(input.toString(), directory.resolve("output.txt").toString())
+                .produceSchedule();
+    }
+}
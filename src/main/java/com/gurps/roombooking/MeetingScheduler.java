@@ -1,36 +1,263 @@
 package com.gurps.roombooking;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
+import javax.management.JMException;
+
+import com.gurps.roombooking.service.BasicCalculatorService;
+import com.gurps.roombooking.service.BatchSchedulerService;
+import com.gurps.roombooking.service.BookingRule;
+import com.gurps.roombooking.service.BookingRuleChain;
+import com.gurps.roombooking.service.ColumnarMeetingSchedulerService;
+import com.gurps.roombooking.service.MaxHoursRule;
+import com.gurps.roombooking.service.MaxHoursRule.Period;
 import com.gurps.roombooking.service.MeetingSchedulerService;
 import com.gurps.roombooking.service.MeetingSchedulerServiceImpl;
+import com.gurps.roombooking.service.NoOverlapRule;
+import com.gurps.roombooking.service.ParallelCalculatorService;
+import com.gurps.roombooking.service.PipelinedSchedulerService;
+import com.gurps.roombooking.service.RejectionLog;
+import com.gurps.roombooking.service.ScheduleCalculatorService;
+import com.gurps.roombooking.service.ScheduleWatcher;
+import com.gurps.roombooking.service.SchedulerMetrics;
+import com.gurps.roombooking.service.ValidationMode;
 
 /**
  * 
  * @author Gurps Bassi gurpiar.bassi@gmail.com This is the main class where the
  *         action starts. Two arguments need to be passed into the main method
  *         arg1 = input file path arg2 = output file path
+ *
+ *         Options may precede the paths:
+ *         --parallel-input  memory map the input file and parse it on all cores
+ *         --parallel-calculate  resolve each meeting date on its own fork-join task
+ *         --columnar        keep the requests in a columnar store instead of BookingRequest objects
+ *         --off-heap        as --columnar with the store held in a direct buffer
+ *         --pipelined       parse, calculate and print on concurrent stages with bounded queues, for input
+ *                           in order of submission
+ *         --metrics         print a JSON summary of the run's counters and stage timings at the end
+ *         --rejections file write the rejected requests to the file in the background instead of the console
+ *         --quiet           do not report rejected requests at all
+ *         --batch           schedule every input file in a directory, or matching a glob such as
+ *                           'sites/*.txt', into an output directory, several files at a time
+ *         --threads n       the number of files --batch schedules at once, by default one per core
+ *         --watch           keep the schedule of every file in an input directory up to date in an
+ *                           output directory, reading only what is appended to the files, until killed
+ *         --strict          check the whole input file before scheduling any of it, reporting the line and
+ *                           byte offset of the first bad request
+ *         --lenient         skip bad requests, logging their line numbers, and schedule the rest
+ *         --employees file  write the meetings and hours booked per employee to the file
+ *         --max-hours-per-day n   reject requests that take their employee over n hours on a day
+ *         --max-hours-per-week n  reject requests that take their employee over n hours in a week
+ *         --no-overlap      reject requests whose employee already has a meeting at an overlapping time
+ *
+ *         The counters are also published over JMX while the scheduler runs, and the metrics and
+ *         rejection options apply to every mode. In watch mode the summary is printed when the process
+ *         is stopped. The rule options apply to every mode but watch mode, which takes requests as they
+ *         are appended rather than in order of submission. The validation options apply to the default
+ *         and batch modes and the employee option to the default mode; with any other mode they, as
+ *         --parallel-input with --lenient, are refused rather than ignored.
  */
 public class MeetingScheduler {
 
+    private static final long SHUTDOWN_MILLIS = 5000;
+
     private static MeetingSchedulerService meetingSchedulerService;
 
     public static void main(String[] args) throws IOException {
-        if (args.length != 2) {
+        boolean parallelInput = false;
+        boolean parallelCalculate = false;
+        boolean columnar = false;
+        boolean offHeap = false;
+        boolean pipelined = false;
+        boolean printMetrics = false;
+        boolean quiet = false;
+        String rejectionsFilePath = null;
+        boolean batch = false;
+        boolean watch = false;
+        ValidationMode validationMode = ValidationMode.NONE;
+        String employeesFilePath = null;
+        List<BookingRule> rules = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        int argIndex = 0;
+        while (argIndex < args.length && args[argIndex].startsWith("--")) {
+            switch (args[argIndex]) {
+            case "--parallel-input":
+                parallelInput = true;
+                break;
+            case "--parallel-calculate":
+                parallelCalculate = true;
+                break;
+            case "--columnar":
+                columnar = true;
+                break;
+            case "--off-heap":
+                columnar = true;
+                offHeap = true;
+                break;
+            case "--pipelined":
+                pipelined = true;
+                break;
+            case "--metrics":
+                printMetrics = true;
+                break;
+            case "--quiet":
+                quiet = true;
+                break;
+            case "--rejections":
+                if (++argIndex == args.length) {
+                    throw new IllegalArgumentException("--rejections needs a file path");
+                }
+                rejectionsFilePath = args[argIndex];
+                break;
+            case "--batch":
+                batch = true;
+                break;
+            case "--watch":
+                watch = true;
+                break;
+            case "--strict":
+                validationMode = ValidationMode.STRICT;
+                break;
+            case "--lenient":
+                validationMode = ValidationMode.LENIENT;
+                break;
+            case "--employees":
+                if (++argIndex == args.length) {
+                    throw new IllegalArgumentException("--employees needs a file path");
+                }
+                employeesFilePath = args[argIndex];
+                break;
+            case "--max-hours-per-day":
+            case "--max-hours-per-week":
+                if (argIndex + 1 == args.length) {
+                    throw new IllegalArgumentException(args[argIndex] + " needs a number");
+                }
+                rules.add(new MaxHoursRule(Integer.parseInt(args[argIndex + 1]),
+                        args[argIndex].endsWith("day") ? Period.DAY : Period.WEEK));
+                argIndex++;
+                break;
+            case "--no-overlap":
+                rules.add(new NoOverlapRule());
+                break;
+            case "--threads":
+                if (++argIndex == args.length) {
+                    throw new IllegalArgumentException("--threads needs a number");
+                }
+                threads = Integer.parseInt(args[argIndex]);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown option " + args[argIndex]);
+            }
+            argIndex++;
+        }
+
+        if (args.length - argIndex != 2) {
             throw new IllegalArgumentException("input path and output path should be specified.");
         } else {
-            String inputFilePath = args[0];
-            String outputFilePath = args[1];
+            String inputFilePath = args[argIndex];
+            String outputFilePath = args[argIndex + 1];
+            // the mode that is run when several are given, null for the default mode
+            String mode = watch ? "--watch" : batch ? "--batch" : pipelined ? "--pipelined"
+                    : columnar ? "--columnar" : null;
+            if (watch && !rules.isEmpty()) {
+                throw new IllegalArgumentException("booking rules cannot be applied with --watch");
+            }
+            if (validationMode != ValidationMode.NONE && mode != null && !batch) {
+                throw new IllegalArgumentException((validationMode == ValidationMode.STRICT ? "--strict" : "--lenient")
+                        + " cannot be used with " + mode);
+            }
+            if (employeesFilePath != null && mode != null) {
+                throw new IllegalArgumentException("--employees cannot be used with " + mode);
+            }
+            if (parallelInput && validationMode == ValidationMode.LENIENT) {
+                throw new IllegalArgumentException("--lenient reads the input sequentially, without --parallel-input");
+            }
+            BookingRuleChain ruleChain = new BookingRuleChain(rules);
 
             System.out.println("input path : " + inputFilePath);
             System.out.println("output path : " + outputFilePath);
 
+            SchedulerMetrics metrics = new SchedulerMetrics();
+            metrics.setLogRejections(!quiet);
+            RejectionLog rejectionLog = null;
+            if (rejectionsFilePath != null && !quiet) {
+                rejectionLog = new RejectionLog(Paths.get(rejectionsFilePath));
+                metrics.setRejectionLog(rejectionLog);
+            }
             // TODO use DI to shield concrete implementation from client
-            meetingSchedulerService = new MeetingSchedulerServiceImpl(inputFilePath, outputFilePath);
+            if (watch) {
+                ScheduleWatcher watcher = new ScheduleWatcher(Paths.get(inputFilePath), Paths.get(outputFilePath),
+                        metrics);
+                Thread mainThread = Thread.currentThread();
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        watcher.close();
+                        // the watcher runs until the process is killed, so let the run finish as any other
+                        mainThread.join(SHUTDOWN_MILLIS);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+                meetingSchedulerService = watcher;
+            } else if (batch) {
+                List<Path> inputFiles = BatchSchedulerService.findInputFiles(inputFilePath);
+                BatchSchedulerService batchService = new BatchSchedulerService(inputFiles, Paths.get(outputFilePath),
+                        threads, metrics);
+                batchService.setRules(ruleChain);
+                batchService.setValidationMode(validationMode);
+                meetingSchedulerService = batchService;
+            } else if (pipelined) {
+                PipelinedSchedulerService pipelinedService = new PipelinedSchedulerService(inputFilePath,
+                        outputFilePath, PipelinedSchedulerService.DEFAULT_BATCH_SIZE,
+                        PipelinedSchedulerService.DEFAULT_QUEUE_CAPACITY, metrics);
+                pipelinedService.setRules(ruleChain);
+                meetingSchedulerService = pipelinedService;
+            } else if (columnar) {
+                ColumnarMeetingSchedulerService columnarService = new ColumnarMeetingSchedulerService(inputFilePath,
+                        outputFilePath, offHeap, metrics);
+                columnarService.setRules(ruleChain);
+                meetingSchedulerService = columnarService;
+            } else {
+                ScheduleCalculatorService calculatorService = parallelCalculate
+                        ? new ParallelCalculatorService(metrics) : new BasicCalculatorService(metrics);
+                MeetingSchedulerServiceImpl schedulerService = new MeetingSchedulerServiceImpl(inputFilePath,
+                        outputFilePath, calculatorService, metrics);
+                schedulerService.setRules(ruleChain);
+                schedulerService.setParallelInput(parallelInput);
+                schedulerService.setValidationMode(validationMode);
+                schedulerService.setEmployeeSummaryPath(employeesFilePath);
+                meetingSchedulerService = schedulerService;
+            }
+            registerMetrics(metrics);
 
-            meetingSchedulerService.produceSchedule();
+            try {
+                meetingSchedulerService.produceSchedule();
+            } finally {
+                if (rejectionLog != null) {
+                    rejectionLog.close();
+                    System.out.println(rejectionLog.getCount() + " rejected requests written to " + rejectionsFilePath);
+                }
+            }
+            if (printMetrics) {
+                System.out.println(metrics.getSummary());
+            }
 
         }
 
     }
+
+    private static void registerMetrics(SchedulerMetrics metrics) {
+        try {
+            metrics.register();
+        } catch (JMException e) {
+            System.err.println("Unable to register metrics with JMX: " + e.getMessage());
+        }
+    }
 }
@@ -5,41 +5,69 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
 
-import org.apache.commons.lang3.builder.CompareToBuilder;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
 /**
  * Encapsulates a individual booking request submission
+ * 
+ * Instances are immutable. The meeting end date/time and packed numeric keys used for ordering,
+ * equality and hashing are computed once when the request is built, so none of the methods used
+ * while sorting or scheduling allocate. The employee id is held as its code in the EmployeeDictionary,
+ * or as a String of its own for an id from outside the process that is not interned.
  * @author Gurps Bassi gurpiar.bassi@gmail.com
  *
  */
 public class BookingRequest implements Comparable<BookingRequest> {
 
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+    private static final int MINUTES_PER_HOUR = 60;
+
     private final LocalDate requestDate;
     private final LocalTime requestTime;
+    private final int employeeCode;
+    /** the id of an employee not interned, null otherwise */
     private final String employeeId;
 
     private final LocalDate meetingDate;
     private final LocalTime meetingStartTime;
     private final int meetingDuration;
+    private final int attendees;
 
     /**
      * Assuming meetings can go into the next day if company hours permit
      * we need to model the meeting end time as a date/time.
      */    
-    private LocalDateTime meetingEndDateTime;
+    private final LocalDateTime meetingEndDateTime;
+
+    /**
+     * Submission date/time as seconds since the epoch plus the nano of second,
+     * i.e. the key that defines the chronological order of submissions.
+     */
+    private final long requestEpochSecond;
+    private final int requestNano;
+
+    private final long meetingEpochDay;
+    private final int meetingStartMinute;
+    private final int meetingEndMinute;
 
     private BookingRequest(final BookingRequestBuilder builder) {
 	this.requestDate = builder.requestDate;
 	this.requestTime = builder.requestTime;
+	this.employeeCode = builder.employeeCode;
 	this.employeeId = builder.employeeId;
 	this.meetingDate = builder.meetingDate;
 	this.meetingStartTime = builder.meetingStartTime;
 	this.meetingDuration = builder.meetingDuration;
-	this.meetingEndDateTime = builder.meetingEndDateTime;
+	this.attendees = builder.attendees;
+	this.meetingEndDateTime = LocalDateTime.of(meetingDate, meetingStartTime).plus(meetingDuration,
+		ChronoUnit.HOURS);
+
+	this.requestEpochSecond = requestDate.toEpochDay() * SECONDS_PER_DAY + requestTime.toSecondOfDay();
+	this.requestNano = requestTime.getNano();
+	this.meetingEpochDay = meetingDate.toEpochDay();
+	this.meetingStartMinute = meetingStartTime.getHour() * MINUTES_PER_HOUR + meetingStartTime.getMinute();
+	this.meetingEndMinute = meetingStartMinute + meetingDuration * MINUTES_PER_HOUR;
     }
 
     public LocalDate getRequestDate() {
@@ -50,8 +78,19 @@ public class BookingRequest implements Comparable<BookingRequest> {
 	return requestTime;
     }
 
+    /**
+     * @return the employee id, looked up in the EmployeeDictionary unless it was not interned
+     */
     public String getEmployeeId() {
-	return employeeId;
+	return employeeId != null ? employeeId : EmployeeDictionary.getInstance().decode(employeeCode);
+    }
+
+    /**
+     * @return the code of the employee id in the EmployeeDictionary, or EmployeeDictionary.NO_EMPLOYEE
+     * if the request has no employee id or its id was not interned
+     */
+    public int getEmployeeCode() {
+	return employeeCode;
     }
 
     public LocalDate getMeetingDate() {
@@ -63,9 +102,6 @@ public class BookingRequest implements Comparable<BookingRequest> {
     }
 
     public LocalDateTime getMeetingEndDateTime() {
-	LocalDateTime start = LocalDateTime.of(meetingDate, meetingStartTime);
-	this.meetingEndDateTime = start.plus(getMeetingDuration(),
-		ChronoUnit.HOURS);
 	return meetingEndDateTime;
     }
 
@@ -73,26 +109,61 @@ public class BookingRequest implements Comparable<BookingRequest> {
 	return meetingDuration;
     }
 
+    /**
+     * @return the number of people attending, used to pick a room large enough. Defaults to 1.
+     */
+    public int getAttendees() {
+	return attendees;
+    }
+
+    /**
+     * @return the submission date/time as seconds since 1970-01-01T00:00:00
+     */
+    public long getRequestEpochSecond() {
+	return requestEpochSecond;
+    }
+
+    /**
+     * @return the meeting date as days since 1970-01-01
+     */
+    public long getMeetingEpochDay() {
+	return meetingEpochDay;
+    }
+
+    /**
+     * @return the meeting start time as minutes from the start of the meeting date
+     */
+    public int getMeetingStartMinute() {
+	return meetingStartMinute;
+    }
+
+    /**
+     * @return the meeting end time as minutes from the start of the meeting date.
+     * Exceeds 1440 for meetings that run past midnight.
+     */
+    public int getMeetingEndMinute() {
+	return meetingEndMinute;
+    }
+
+    /**
+     * Two booking requests are equal when they were submitted at the same date/time,
+     * which is consistent with compareTo.
+     */
+    @Override
     public boolean equals(Object obj) {
-	if (obj == null) {
-	    return false;
-	}
 	if (obj == this) {
 	    return true;
 	}
-	if (obj.getClass() != getClass()) {
+	if (obj == null || obj.getClass() != getClass()) {
 	    return false;
 	}
 	BookingRequest rhs = (BookingRequest) obj;
-	return new EqualsBuilder().appendSuper(super.equals(obj))
-		.append(getRequestDate(), rhs.getRequestDate())
-		.append(getRequestTime(), rhs.getRequestTime()).isEquals();
+	return requestEpochSecond == rhs.requestEpochSecond && requestNano == rhs.requestNano;
     }
 
     @Override
     public int hashCode() {
-	return new HashCodeBuilder(17, 37).append(getRequestDate())
-		.append(getRequestTime()).toHashCode();
+	return 37 * (int) (requestEpochSecond ^ (requestEpochSecond >>> 32)) + requestNano;
     }
 
     @Override
@@ -113,11 +184,13 @@ public class BookingRequest implements Comparable<BookingRequest> {
      * 
      */
     public int compareTo(BookingRequest that) {
-
-	return new CompareToBuilder()
-		.append(this.getRequestDate(), that.getRequestDate())
-		.append(this.getRequestTime(), that.getRequestTime())
-		.toComparison();
+	if (this.requestEpochSecond != that.requestEpochSecond) {
+	    return this.requestEpochSecond < that.requestEpochSecond ? -1 : 1;
+	}
+	if (this.requestNano != that.requestNano) {
+	    return this.requestNano < that.requestNano ? -1 : 1;
+	}
+	return 0;
     }
 
     /**
@@ -130,13 +203,14 @@ public class BookingRequest implements Comparable<BookingRequest> {
     public static class BookingRequestBuilder {
 	private final LocalDate requestDate;
 	private final LocalTime requestTime;
+	private int employeeCode = EmployeeDictionary.NO_EMPLOYEE;
 	private String employeeId;
 
 	private LocalDate meetingDate;
 	private LocalTime meetingStartTime;
-	private LocalDateTime meetingEndDateTime;
 
 	private int meetingDuration;
+	private int attendees = 1;
 
 	public BookingRequestBuilder(LocalDate requestDate,
 		LocalTime requestTime) {
@@ -145,10 +219,31 @@ public class BookingRequest implements Comparable<BookingRequest> {
 	}
 
 	public BookingRequestBuilder employee(String employeeId) {
+	    this.employeeCode = EmployeeDictionary.getInstance().intern(employeeId);
+	    this.employeeId = null;
+	    return this;
+	}
+
+	/**
+	 * Keeps the employee id on the request instead of interning it, for ids from outside the process,
+	 * such as those sent to a server, that would otherwise grow the EmployeeDictionary for good. The
+	 * request then has no employee code.
+	 */
+	public BookingRequestBuilder uninternedEmployee(String employeeId) {
+	    this.employeeCode = EmployeeDictionary.NO_EMPLOYEE;
 	    this.employeeId = employeeId;
 	    return this;
 	}
 
+	/**
+	 * @param employeeCode the code of the employee id in the EmployeeDictionary
+	 */
+	public BookingRequestBuilder employeeCode(int employeeCode) {
+	    this.employeeCode = employeeCode;
+	    this.employeeId = null;
+	    return this;
+	}
+
 	public BookingRequestBuilder meetingDate(LocalDate meetingDate) {
 	    this.meetingDate = meetingDate;
 	    return this;
@@ -164,8 +259,8 @@ public class BookingRequest implements Comparable<BookingRequest> {
 	    return this;
 	}
 
-	private BookingRequestBuilder meetingEnd(LocalDateTime meetingEnd) {
-	    this.meetingEndDateTime = meetingEnd;
+	public BookingRequestBuilder attendees(int attendees) {
+	    this.attendees = attendees;
 	    return this;
 	}
 
@@ -175,10 +270,7 @@ public class BookingRequest implements Comparable<BookingRequest> {
 	 * @return
 	 */
 	public BookingRequest build() {
-	    LocalDateTime start = LocalDateTime.of(meetingDate,
-		    meetingStartTime);
-	    return new BookingRequest(this.meetingEnd(start.plus(
-		    meetingDuration, ChronoUnit.HOURS)));
+	    return new BookingRequest(this);
 	}
 
     }
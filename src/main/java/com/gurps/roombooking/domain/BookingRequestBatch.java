@@ -1,6 +1,8 @@
 package com.gurps.roombooking.domain;
 
 import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -8,7 +10,7 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 
 /**
  * A Booking request batch consists of a header i.e. the opening and closing time
- * followed by a Set of booking requests.
+ * and optionally the inventory of meeting rooms, followed by a Set of booking requests.
  * 
  * @author Gurps Bassi gurpiar.bassi@gmail.com
  *
@@ -19,6 +21,8 @@ public class BookingRequestBatch {
     private LocalTime closingTime;
     
     private Set<BookingRequest> bookingRequests;
+
+    private List<MeetingRoom> rooms = Collections.emptyList();
     
     public BookingRequestBatch(LocalTime openingTime, LocalTime closingTime){
         this.openingTime = openingTime;
@@ -43,6 +47,17 @@ public class BookingRequestBatch {
         this.bookingRequests = bookingRequests;
     }
 
+    /**
+     * @return the meeting rooms in the order they were listed, empty when the batch is for a single room
+     */
+    public List<MeetingRoom> getRooms() {
+        return rooms;
+    }
+
+    public void setRooms(List<MeetingRoom> rooms) {
+        this.rooms = Collections.unmodifiableList(rooms);
+    }
+
     @Override
     public String toString() {
         return ToStringBuilder.reflectionToString(this,
@@ -0,0 +1,353 @@
+package com.gurps.roombooking.domain;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar store of booking requests.
+ *
+ * Rather than one BookingRequest object (with its LocalDate, LocalTime, LocalDateTime and String
+ * fields) per booking, each record is held as five primitive columns: submission epoch-second,
+ * meeting epoch-day, start minute-of-day, duration in hours and the index of the interned employee id.
+ * The columns live either in parallel arrays on the heap or in a direct ByteBuffer off the heap.
+ *
+ * Records are identified by their index in insertion order.
+ */
+public abstract class BookingRequestStore {
+
+    /**
+     * Bytes per record in the off heap layout, which is also the record layout of a binary booking file:
+     * submission epoch-second (8 bytes), meeting epoch-day, start minute, duration and employee index (4 bytes each).
+     */
+    public static final int RECORD_SIZE = 24;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final Map<String, Integer> employeeIndexes = new HashMap<>();
+    private final List<String> employees = new ArrayList<>();
+    // the index in the store's dictionary of each EmployeeDictionary code seen, -1 if not seen
+    private int[] indexesByCode = new int[0];
+
+    protected int size;
+
+    /**
+     * @param initialCapacity the number of records to allocate room for up front
+     * @return a store backed by primitive arrays on the heap
+     */
+    public static BookingRequestStore onHeap(final int initialCapacity) {
+        return new HeapStore(Math.max(initialCapacity, 1));
+    }
+
+    /**
+     * @param initialCapacity the number of records to allocate room for up front
+     * @return a store backed by a direct ByteBuffer, keeping the records off the java heap
+     */
+    public static BookingRequestStore offHeap(final int initialCapacity) {
+        return new OffHeapStore(Math.max(initialCapacity, 1));
+    }
+
+    /**
+     * @param records records in the off heap layout from position 0, e.g. a memory mapped file. The buffer is
+     * read in place and only copied if records are added.
+     * @param size the number of records
+     * @param employees the employee ids the records' employee indexes refer to
+     * @return a store over the records
+     */
+    public static BookingRequestStore wrap(final ByteBuffer records, final int size, final List<String> employees) {
+        if (size < 0 || (long) size * RECORD_SIZE > records.limit()) {
+            throw new IllegalArgumentException("buffer holds fewer than " + size + " records");
+        }
+        ByteBuffer view = records.duplicate();
+        view.position(0).limit(size * RECORD_SIZE);
+        BookingRequestStore store = new OffHeapStore(view.slice());
+        store.size = size;
+        for (String employee : employees) {
+            store.internEmployee(employee);
+        }
+        return store;
+    }
+
+    public static BookingRequestStore onHeap() {
+        return onHeap(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Appends a record.
+     * @param submissionEpochSecond submission date/time as seconds since the epoch
+     * @param meetingEpochDay meeting date as days since the epoch
+     * @param startMinute meeting start as minute-of-day
+     * @param duration meeting duration in hours
+     * @param employeeIndex the index returned by internEmployee
+     * @return the index of the new record
+     */
+    public int add(final long submissionEpochSecond, final long meetingEpochDay, final int startMinute,
+            final int duration, final int employeeIndex) {
+        if (meetingEpochDay < Integer.MIN_VALUE || meetingEpochDay > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("meeting date out of range");
+        }
+        ensureCapacity(size + 1);
+        set(size, submissionEpochSecond, (int) meetingEpochDay, startMinute, duration, employeeIndex);
+        return size++;
+    }
+
+    /**
+     * Appends the fields of a booking request.
+     * @return the index of the new record
+     */
+    public int add(final BookingRequest booking) {
+        int employeeIndex = booking.getEmployeeCode() == EmployeeDictionary.NO_EMPLOYEE
+                ? internEmployee(booking.getEmployeeId()) : internEmployeeCode(booking.getEmployeeCode());
+        return add(booking.getRequestEpochSecond(), booking.getMeetingEpochDay(), booking.getMeetingStartMinute(),
+                booking.getMeetingDuration(), employeeIndex);
+    }
+
+    /**
+     * As internEmployee, for an id already in the EmployeeDictionary, without looking up the id itself
+     * once the store has seen the code.
+     * @param employeeCode the code of the employee id in the EmployeeDictionary
+     * @return the index of the employee id in the store's dictionary
+     */
+    public int internEmployeeCode(final int employeeCode) {
+        if (employeeCode >= indexesByCode.length) {
+            int length = indexesByCode.length;
+            indexesByCode = Arrays.copyOf(indexesByCode, Math.max(employeeCode + 1, 2 * length));
+            Arrays.fill(indexesByCode, length, indexesByCode.length, -1);
+        }
+        int index = indexesByCode[employeeCode];
+        if (index < 0) {
+            index = internEmployee(EmployeeDictionary.getInstance().decode(employeeCode));
+            indexesByCode[employeeCode] = index;
+        }
+        return index;
+    }
+
+    /**
+     * @return the index of the employee id, adding it to the store's dictionary if it is new
+     */
+    public int internEmployee(final String employeeId) {
+        Integer index = employeeIndexes.get(employeeId);
+        if (index == null) {
+            index = employees.size();
+            employees.add(employeeId);
+            employeeIndexes.put(employeeId, index);
+        }
+        return index;
+    }
+
+    public String getEmployee(final int employeeIndex) {
+        return employees.get(employeeIndex);
+    }
+
+    /**
+     * @return the number of employee ids in the store's dictionary
+     */
+    public int getEmployeeCount() {
+        return employees.size();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public abstract long getSubmissionEpochSecond(int record);
+
+    public abstract int getMeetingEpochDay(int record);
+
+    public abstract int getStartMinute(int record);
+
+    public abstract int getDuration(int record);
+
+    public abstract int getEmployeeIndex(int record);
+
+    /**
+     * @return the meeting end as minutes from the start of the meeting date, past 1440 if it runs past midnight
+     */
+    public int getEndMinute(final int record) {
+        return getStartMinute(record) + getDuration(record) * MINUTES_PER_HOUR;
+    }
+
+    /**
+     * Materialises a single record, for callers that need the object model.
+     */
+    public BookingRequest toBookingRequest(final int record) {
+        long submission = getSubmissionEpochSecond(record);
+        long submissionDay = Math.floorDiv(submission, SECONDS_PER_DAY);
+        int startMinute = getStartMinute(record);
+        return new BookingRequest.BookingRequestBuilder(LocalDate.ofEpochDay(submissionDay),
+                LocalTime.ofSecondOfDay(submission - submissionDay * SECONDS_PER_DAY))
+                .meetingDate(LocalDate.ofEpochDay(getMeetingEpochDay(record)))
+                .meetingStart(LocalTime.of(startMinute / MINUTES_PER_HOUR, startMinute % MINUTES_PER_HOUR))
+                .duration(getDuration(record))
+                .employee(getEmployee(getEmployeeIndex(record)))
+                .build();
+    }
+
+    /**
+     * @return the indexes of the records ordered by submission time. Records submitted at the same
+     * second keep their insertion order.
+     */
+    public int[] submissionOrder() {
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = getSubmissionEpochSecond(i);
+        }
+        return RadixSort.order(keys, size);
+    }
+
+    protected abstract void ensureCapacity(int capacity);
+
+    protected abstract void set(int record, long submissionEpochSecond, int meetingEpochDay, int startMinute,
+            int duration, int employeeIndex);
+
+    protected static int grownCapacity(final int current, final int needed) {
+        return (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, current * 2L));
+    }
+
+    private static final class HeapStore extends BookingRequestStore {
+
+        private long[] submissionEpochSeconds;
+        private int[] meetingEpochDays;
+        private int[] startMinutes;
+        private int[] durations;
+        private int[] employeeIndexes;
+
+        private HeapStore(final int capacity) {
+            submissionEpochSeconds = new long[capacity];
+            meetingEpochDays = new int[capacity];
+            startMinutes = new int[capacity];
+            durations = new int[capacity];
+            employeeIndexes = new int[capacity];
+        }
+
+        @Override
+        protected void ensureCapacity(final int capacity) {
+            if (capacity > submissionEpochSeconds.length) {
+                int grown = grownCapacity(submissionEpochSeconds.length, capacity);
+                submissionEpochSeconds = Arrays.copyOf(submissionEpochSeconds, grown);
+                meetingEpochDays = Arrays.copyOf(meetingEpochDays, grown);
+                startMinutes = Arrays.copyOf(startMinutes, grown);
+                durations = Arrays.copyOf(durations, grown);
+                employeeIndexes = Arrays.copyOf(employeeIndexes, grown);
+            }
+        }
+
+        @Override
+        protected void set(final int record, final long submissionEpochSecond, final int meetingEpochDay,
+                final int startMinute, final int duration, final int employeeIndex) {
+            submissionEpochSeconds[record] = submissionEpochSecond;
+            meetingEpochDays[record] = meetingEpochDay;
+            startMinutes[record] = startMinute;
+            durations[record] = duration;
+            employeeIndexes[record] = employeeIndex;
+        }
+
+        @Override
+        public long getSubmissionEpochSecond(final int record) {
+            return submissionEpochSeconds[record];
+        }
+
+        @Override
+        public int getMeetingEpochDay(final int record) {
+            return meetingEpochDays[record];
+        }
+
+        @Override
+        public int getStartMinute(final int record) {
+            return startMinutes[record];
+        }
+
+        @Override
+        public int getDuration(final int record) {
+            return durations[record];
+        }
+
+        @Override
+        public int getEmployeeIndex(final int record) {
+            return employeeIndexes[record];
+        }
+    }
+
+    /**
+     * Fixed size records of RECORD_SIZE bytes in a direct buffer.
+     */
+    private static final class OffHeapStore extends BookingRequestStore {
+
+        private static final int MEETING_DAY = 8;
+        private static final int START_MINUTE = 12;
+        private static final int DURATION = 16;
+        private static final int EMPLOYEE = 20;
+
+        private static final int MAX_RECORDS = Integer.MAX_VALUE / RECORD_SIZE;
+
+        private ByteBuffer records;
+
+        private OffHeapStore(final int capacity) {
+            records = ByteBuffer.allocateDirect(Math.min(capacity, MAX_RECORDS) * RECORD_SIZE);
+        }
+
+        private OffHeapStore(final ByteBuffer records) {
+            this.records = records;
+        }
+
+        @Override
+        protected void ensureCapacity(final int capacity) {
+            int current = records.capacity() / RECORD_SIZE;
+            if (capacity > current) {
+                if (capacity > MAX_RECORDS) {
+                    throw new IllegalStateException("Off heap store is limited to " + MAX_RECORDS + " records");
+                }
+                ByteBuffer grown = ByteBuffer.allocateDirect(Math.min(grownCapacity(current, capacity), MAX_RECORDS)
+                        * RECORD_SIZE);
+                ByteBuffer existing = records.duplicate();
+                existing.clear();
+                grown.put(existing);
+                grown.clear();
+                records = grown;
+            }
+        }
+
+        @Override
+        protected void set(final int record, final long submissionEpochSecond, final int meetingEpochDay,
+                final int startMinute, final int duration, final int employeeIndex) {
+            int offset = record * RECORD_SIZE;
+            records.putLong(offset, submissionEpochSecond);
+            records.putInt(offset + MEETING_DAY, meetingEpochDay);
+            records.putInt(offset + START_MINUTE, startMinute);
+            records.putInt(offset + DURATION, duration);
+            records.putInt(offset + EMPLOYEE, employeeIndex);
+        }
+
+        @Override
+        public long getSubmissionEpochSecond(final int record) {
+            return records.getLong(record * RECORD_SIZE);
+        }
+
+        @Override
+        public int getMeetingEpochDay(final int record) {
+            return records.getInt(record * RECORD_SIZE + MEETING_DAY);
+        }
+
+        @Override
+        public int getStartMinute(final int record) {
+            return records.getInt(record * RECORD_SIZE + START_MINUTE);
+        }
+
+        @Override
+        public int getDuration(final int record) {
+            return records.getInt(record * RECORD_SIZE + DURATION);
+        }
+
+        @Override
+        public int getEmployeeIndex(final int record) {
+            return records.getInt(record * RECORD_SIZE + EMPLOYEE);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.gurps.roombooking.domain;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns employee ids into dense int codes: 0 for the first id seen, 1 for the next and so on.
+ *
+ * A small number of employees make most of the bookings, so rather than each BookingRequest holding a
+ * String of its own it holds the code of its employee, and per-employee totals can be kept in arrays
+ * indexed by code. The id is looked up again only when it is printed.
+ *
+ * There is one dictionary for the process so a code means the same employee in every schedule. It is
+ * safe for any number of threads: interning an id already seen takes no lock, and interning it from the
+ * bytes of an input line creates no objects.
+ *
+ * Ids read from input are keyed on their bytes in the platform charset and ids given as Strings on the
+ * String itself, so an id the charset cannot represent still gets a code of its own. An id the charset
+ * can represent has the same code either way.
+ *
+ * Codes are never released: the dictionary grows by every distinct id seen in the life of the process.
+ * That suits the employees of a company, but a long running process fed ids without bound should not
+ * intern them: the HTTP server and the watcher keep each request's id as a String of its own instead,
+ * through BookingRequestReader.setInternEmployees.
+ */
+public final class EmployeeDictionary {
+
+    /** the code of a request without an employee id */
+    public static final int NO_EMPLOYEE = -1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final EmployeeDictionary INSTANCE = new EmployeeDictionary(Charset.defaultCharset());
+
+    private final Charset charset;
+    private final ConcurrentHashMap<Key, Integer> codes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> codesById = new ConcurrentHashMap<>();
+    /** a key reused by each thread to look up ids, never added to the map */
+    private final ThreadLocal<Key> probes = ThreadLocal.withInitial(Key::new);
+    /** the id of each code, replaced by a larger copy when full */
+    private volatile String[] ids = new String[INITIAL_CAPACITY];
+    private volatile int size;
+
+    private EmployeeDictionary(final Charset charset) {
+        this.charset = charset;
+    }
+
+    public static EmployeeDictionary getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param bytes holds the employee id in the platform charset, as it is read from an input file
+     * @return the code of the employee id, adding it if it is new
+     */
+    public int intern(final byte[] bytes, final int offset, final int length) {
+        Integer code = codes.get(probes.get().set(bytes, offset, length));
+        return code != null ? code : add(Arrays.copyOfRange(bytes, offset, offset + length));
+    }
+
+    /**
+     * @return the code of the employee id, adding it if it is new, or NO_EMPLOYEE if it is null
+     */
+    public int intern(final String employeeId) {
+        if (employeeId == null) {
+            return NO_EMPLOYEE;
+        }
+        Integer code = codesById.get(employeeId);
+        return code != null ? code : add(employeeId);
+    }
+
+    /**
+     * As intern, without adding the id if it is new.
+     * @return the code of the employee id, or NO_EMPLOYEE if it is null or has not been interned
+     */
+    public int lookup(final String employeeId) {
+        if (employeeId == null) {
+            return NO_EMPLOYEE;
+        }
+        Integer code = codesById.get(employeeId);
+        return code != null ? code : NO_EMPLOYEE;
+    }
+
+    private synchronized int add(final byte[] bytes) {
+        Key key = new Key().set(bytes, 0, bytes.length);
+        Integer code = codes.get(key);
+        if (code != null) {
+            return code;
+        }
+        String employeeId = new String(bytes, charset);
+        int next = append(employeeId);
+        codes.put(key, next);
+        // bytes the charset cannot decode may give the same String as other bytes, which keeps the first code
+        codesById.putIfAbsent(employeeId, next);
+        return next;
+    }
+
+    private synchronized int add(final String employeeId) {
+        Integer code = codesById.get(employeeId);
+        if (code != null) {
+            return code;
+        }
+        byte[] bytes = employeeId.getBytes(charset);
+        if (!new String(bytes, charset).equals(employeeId)) {
+            // the bytes would stand for another id, so the id is known only by its String
+            int next = append(employeeId);
+            codesById.put(employeeId, next);
+            return next;
+        }
+        Key key = new Key().set(bytes, 0, bytes.length);
+        int next = append(employeeId);
+        codes.put(key, next);
+        codesById.put(employeeId, next);
+        return next;
+    }
+
+    /**
+     * Gives the id the next code. Called holding the lock, before the code is put in either map.
+     * @return the code
+     */
+    private int append(final String employeeId) {
+        int next = size;
+        String[] current = ids;
+        if (next == current.length) {
+            current = Arrays.copyOf(current, next * 2);
+        }
+        current[next] = employeeId;
+        // published before the code can be looked up
+        ids = current;
+        size = next + 1;
+        return next;
+    }
+
+    /**
+     * @param code a code returned by intern, or NO_EMPLOYEE
+     * @return the employee id, or null for NO_EMPLOYEE
+     */
+    public String decode(final int code) {
+        return code == NO_EMPLOYEE ? null : ids[code];
+    }
+
+    /**
+     * @return the number of employee ids interned, one more than the largest code
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * A range of bytes compared by content. The keys in the map are never changed once added.
+     */
+    private static final class Key {
+        private byte[] bytes;
+        private int offset;
+        private int length;
+        private int hash;
+
+        Key set(final byte[] bytes, final int offset, final int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+            int h = 0;
+            for (int i = offset; i < offset + length; i++) {
+                h = 31 * h + bytes[i];
+            }
+            this.hash = h;
+            return this;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) obj;
+            return hash == that.hash && Arrays.equals(bytes, offset, offset + length, that.bytes, that.offset,
+                    that.offset + that.length);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.gurps.roombooking.domain;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+
+/**
+ * Answers "when is the room free on a date for so many hours?" for a computed schedule, with a GapIndex
+ * per meeting date bounded by the office hours. Dates without meetings are free all day.
+ *
+ * Not thread safe.
+ */
+public class FreeSlotIndex {
+
+    private static final int MINUTES_PER_HOUR = 60;
+
+    private final int openingMinute;
+    private final int closingMinute;
+    private final Map<LocalDate, GapIndex> days = new HashMap<>();
+    /** the free time of a date without meetings, never booked */
+    private final GapIndex freeDay;
+
+    /**
+     * @param openingTime the company opening time
+     * @param closingTime the company closing time
+     */
+    public FreeSlotIndex(final LocalTime openingTime, final LocalTime closingTime) {
+        this.openingMinute = minuteOfDay(openingTime);
+        this.closingMinute = minuteOfDay(closingTime);
+        this.freeDay = new GapIndex(openingMinute, closingMinute);
+    }
+
+    /**
+     * @param schedule a schedule as produced by ScheduleCalculatorService.calculate
+     * @return an index of the free time around the schedule's meetings
+     */
+    public static FreeSlotIndex of(final Map<LocalDate, SortedSet<BookingRequest>> schedule,
+            final LocalTime openingTime, final LocalTime closingTime) {
+        FreeSlotIndex index = new FreeSlotIndex(openingTime, closingTime);
+        for (SortedSet<BookingRequest> meetings : schedule.values()) {
+            for (BookingRequest meeting : meetings) {
+                index.book(meeting);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Takes an accepted meeting's time out of the free time of its date.
+     */
+    public void book(final BookingRequest meeting) {
+        days.computeIfAbsent(meeting.getMeetingDate(), date -> new GapIndex(openingMinute, closingMinute))
+                .book(meeting.getMeetingStartMinute(), meeting.getMeetingEndMinute());
+    }
+
+    /**
+     * @param durationHours the length of the meeting to find room for
+     * @return the free periods of the date at least the given number of hours long, in order of time
+     */
+    public List<TimeSlot> findFreeSlots(final LocalDate date, final int durationHours) {
+        return days.getOrDefault(date, freeDay).find(minutes(durationHours));
+    }
+
+    /**
+     * @param from the first date (inclusive)
+     * @param to the last date (inclusive)
+     * @param durationHours the length of the meeting to find room for
+     * @return each date of the range with room for the meeting against its free periods that are long enough
+     */
+    public SortedMap<LocalDate, List<TimeSlot>> findFreeSlots(final LocalDate from, final LocalDate to,
+            final int durationHours) {
+        SortedMap<LocalDate, List<TimeSlot>> slots = new TreeMap<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            List<TimeSlot> day = findFreeSlots(date, durationHours);
+            if (!day.isEmpty()) {
+                slots.put(date, day);
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * @return the number of minutes in the given number of hours
+     * @throws IllegalArgumentException if the duration is not positive
+     */
+    public static int minutes(final int durationHours) {
+        if (durationHours <= 0) {
+            throw new IllegalArgumentException("Duration must be a positive number of hours");
+        }
+        return (int) Math.min((long) durationHours * MINUTES_PER_HOUR, Integer.MAX_VALUE);
+    }
+
+    private static int minuteOfDay(final LocalTime time) {
+        return time.getHour() * MINUTES_PER_HOUR + time.getMinute();
+    }
+}
@@ -0,0 +1,95 @@
+package com.gurps.roombooking.domain;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Index of the free time of a single day within office hours.
+ *
+ * The gaps between meetings are held twice: by start minute, to find the gaps a new meeting falls in, and
+ * by length, to find the gaps long enough for a meeting of a given duration. Booking a meeting splits the
+ * gap it falls in, so both updates and queries are O(log gaps) rather than a scan of the day's meetings.
+ */
+public class GapIndex {
+
+    private final NavigableMap<Integer, Integer> gaps = new TreeMap<>();
+
+    /** length in the high 32 bits and start minute in the low 32 bits, so longer gaps sort last */
+    private final NavigableSet<Long> byLength = new TreeSet<>();
+
+    /**
+     * @param openingMinute the opening time as minute-of-day
+     * @param closingMinute the closing time as minute-of-day
+     */
+    public GapIndex(final int openingMinute, final int closingMinute) {
+        if (closingMinute > openingMinute) {
+            addGap(openingMinute, closingMinute);
+        }
+    }
+
+    /**
+     * Takes the time of a meeting out of the free time of the day. Time outside office hours or already
+     * taken is ignored.
+     * @param start start minute-of-day (inclusive)
+     * @param end end minute-of-day (exclusive)
+     */
+    public void book(final int start, final int end) {
+        Entry<Integer, Integer> gap = gaps.lowerEntry(end);
+        while (gap != null && gap.getValue() > start) {
+            removeGap(gap.getKey(), gap.getValue());
+            if (gap.getValue() > end) {
+                addGap(end, gap.getValue());
+            }
+            if (gap.getKey() < start) {
+                addGap(gap.getKey(), start);
+                break;
+            }
+            gap = gaps.lowerEntry(gap.getKey());
+        }
+    }
+
+    /**
+     * @param minutes the length of time needed
+     * @return the gaps at least the given number of minutes long, in order of time
+     */
+    public List<TimeSlot> find(final int minutes) {
+        List<TimeSlot> slots = new ArrayList<>();
+        for (long key : byLength.tailSet((long) minutes << 32, true)) {
+            int start = (int) key;
+            slots.add(new TimeSlot(start, gaps.get(start)));
+        }
+        slots.sort(Comparator.comparingInt(TimeSlot::getStartMinute));
+        return slots;
+    }
+
+    /**
+     * @return every gap, in order of time
+     */
+    public List<TimeSlot> gaps() {
+        List<TimeSlot> slots = new ArrayList<>(gaps.size());
+        for (Entry<Integer, Integer> gap : gaps.entrySet()) {
+            slots.add(new TimeSlot(gap.getKey(), gap.getValue()));
+        }
+        return slots;
+    }
+
+    private void addGap(final int start, final int end) {
+        gaps.put(start, end);
+        byLength.add(key(start, end));
+    }
+
+    private void removeGap(final int start, final int end) {
+        gaps.remove(start);
+        byLength.remove(key(start, end));
+    }
+
+    private static long key(final int start, final int end) {
+        return (long) (end - start) << 32 | start;
+    }
+}
@@ -0,0 +1,135 @@
+package com.gurps.roombooking.domain;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from long keys to long values, for counters keyed by several primitive fields packed into a
+ * long, without boxing either.
+ *
+ * Open addressing with linear probing in parallel arrays, grown to keep the load factor at most a half.
+ * A key that has never been put reads as 0. Not thread safe.
+ */
+public class LongLongHashMap {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] keys;
+    private long[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    public LongLongHashMap() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize the number of keys expected, so the map does not grow until there are more
+     */
+    public LongLongHashMap(final int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, INITIAL_CAPACITY / 2) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(final int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * @return the value of the key, 0 if it has none
+     */
+    public long get(final long key) {
+        int slot = find(key);
+        return used[slot] ? values[slot] : 0;
+    }
+
+    public boolean containsKey(final long key) {
+        return used[find(key)];
+    }
+
+    public void put(final long key, final long value) {
+        int slot = find(key);
+        if (!used[slot]) {
+            slot = insert(slot, key);
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * Adds to the value of the key, which starts at 0.
+     * @return the new value
+     */
+    public long add(final long key, final long delta) {
+        int slot = find(key);
+        if (!used[slot]) {
+            slot = insert(slot, key);
+        }
+        return values[slot] += delta;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    /**
+     * @return the slot holding the key, or the empty slot where it would go
+     */
+    private int find(final long key) {
+        int slot = hash(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * @param slot the empty slot find returned for the key
+     * @return the slot the key went into, which moves if the map grew
+     */
+    private int insert(int slot, final long key) {
+        if (2 * (size + 1) > keys.length) {
+            grow();
+            slot = find(key);
+        }
+        keys[slot] = key;
+        used[slot] = true;
+        size++;
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(2 * oldKeys.length);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                used[slot] = true;
+            }
+        }
+    }
+
+    /**
+     * The finalizer of MurmurHash3, so keys that differ only in their high bits spread over the table.
+     */
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
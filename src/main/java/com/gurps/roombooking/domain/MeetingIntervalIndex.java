@@ -0,0 +1,97 @@
+package com.gurps.roombooking.domain;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Interval index over the meetings accepted for a single day.
+ *
+ * Meetings are keyed on their start minute-of-day; their end minute (start + duration, which may
+ * run past midnight) is precomputed by the BookingRequest. Accepted meetings never overlap, so
+ * ordering them by start also orders them by end and the only meeting that can overlap a new
+ * interval is the one with the greatest start before the new interval's end. This makes the overlap check a single O(log n) lookup.
+ */
+public class MeetingIntervalIndex {
+
+    private static final int MINUTES_PER_HOUR = 60;
+
+    private final NavigableMap<Integer, BookingRequest> meetings = new TreeMap<>();
+
+    /**
+     * @param start start minute-of-day (inclusive)
+     * @param end end minute-of-day (exclusive)
+     * @return true if any meeting in the index overlaps the given interval
+     */
+    public boolean overlaps(final int start, final int end) {
+        Entry<Integer, BookingRequest> candidate = meetings.lowerEntry(end);
+        return candidate != null && candidate.getValue().getMeetingEndMinute() > start;
+    }
+
+    /**
+     * Adds the meeting if it does not overlap any meeting already in the index.
+     * @param booking the booking request to add
+     * @return true if the meeting was added, false if it clashes with an existing meeting
+     */
+    public boolean add(final BookingRequest booking) {
+        if (overlaps(booking.getMeetingStartMinute(), booking.getMeetingEndMinute())) {
+            return false;
+        }
+        meetings.put(booking.getMeetingStartMinute(), booking);
+        return true;
+    }
+
+    /**
+     * Removes the given meeting from the index.
+     * @return true if the meeting was in the index
+     */
+    public boolean remove(final BookingRequest booking) {
+        return meetings.remove(booking.getMeetingStartMinute(), booking);
+    }
+
+    /**
+     * Range query.
+     * @param from start minute-of-day (inclusive)
+     * @param to end minute-of-day (exclusive)
+     * @return the meetings overlapping the given range ordered by start time
+     */
+    public List<BookingRequest> between(final int from, final int to) {
+        List<BookingRequest> result = new ArrayList<>();
+        Entry<Integer, BookingRequest> before = meetings.lowerEntry(from);
+        if (before != null && before.getValue().getMeetingEndMinute() > from) {
+            result.add(before.getValue());
+        }
+        if (from < to) {
+            result.addAll(meetings.subMap(from, true, to, false).values());
+        }
+        return result;
+    }
+
+    /**
+     * Range query e.g. all the meetings between 10:00 and 12:00
+     */
+    public List<BookingRequest> between(final LocalTime from, final LocalTime to) {
+        return between(from.getHour() * MINUTES_PER_HOUR + from.getMinute(),
+                to.getHour() * MINUTES_PER_HOUR + to.getMinute());
+    }
+
+    /**
+     * @return all the meetings in the index ordered by start time
+     */
+    public Collection<BookingRequest> meetings() {
+        return Collections.unmodifiableCollection(meetings.values());
+    }
+
+    public int size() {
+        return meetings.size();
+    }
+
+    public boolean isEmpty() {
+        return meetings.isEmpty();
+    }
+}
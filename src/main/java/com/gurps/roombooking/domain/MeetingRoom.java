@@ -0,0 +1,52 @@
+package com.gurps.roombooking.domain;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * A meeting room from the room inventory of a booking request batch.
+ * Rooms are identified by their name, which is unique within a batch.
+ */
+public class MeetingRoom {
+
+    private final String name;
+    private final int capacity;
+
+    public MeetingRoom(final String name, final int capacity) {
+        this.name = name;
+        this.capacity = capacity;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the most people the room can hold
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        MeetingRoom rhs = (MeetingRoom) obj;
+        return name.equals(rhs.name) && capacity == rhs.capacity;
+    }
+
+    @Override
+    public int hashCode() {
+        return 37 * name.hashCode() + capacity;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+    }
+}
@@ -0,0 +1,160 @@
+package com.gurps.roombooking.domain;
+
+import java.util.Arrays;
+
+/**
+ * Occupancy calendar holding one bitmap of time slots per day.
+ *
+ * Each day is split into slots of a fixed number of minutes and a booked slot has its bit set, so
+ * checking and reserving a meeting are word level bit operations. Days are held in an array indexed
+ * by epoch day relative to the first day seen, which only grows to cover the range of days booked.
+ *
+ * Slot boundaries are exact when the granularity divides every meeting start time; otherwise a meeting
+ * is widened to whole slots, which can only ever report extra clashes, never miss one.
+ */
+public class SlotCalendar {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int INITIAL_DAYS = 32;
+
+    private final int granularityMinutes;
+    private final int wordsPerDay;
+
+    private long baseDay;
+    private long[][] days;
+
+    /**
+     * @param granularityMinutes the length of a slot in minutes
+     */
+    public SlotCalendar(final int granularityMinutes) {
+        if (granularityMinutes <= 0) {
+            throw new IllegalArgumentException("granularity must be a positive number of minutes");
+        }
+        this.granularityMinutes = granularityMinutes;
+        int slotsPerDay = (MINUTES_PER_DAY + granularityMinutes - 1) / granularityMinutes;
+        this.wordsPerDay = (slotsPerDay + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    public int getGranularityMinutes() {
+        return granularityMinutes;
+    }
+
+    /**
+     * @param epochDay the meeting date as an epoch day
+     * @param startMinute start minute-of-day (inclusive)
+     * @param endMinute end minute-of-day (exclusive), may run past midnight
+     * @return true if none of the slots covering the interval are booked
+     */
+    public boolean isFree(final long epochDay, final int startMinute, final int endMinute) {
+        long[] slots = day(epochDay, false);
+        if (slots == null) {
+            return true;
+        }
+        int from = startMinute / granularityMinutes;
+        int to = Math.min((endMinute + granularityMinutes - 1) / granularityMinutes, slots.length * Long.SIZE);
+        for (int word = from >>> 6; from < to; word++) {
+            long mask = mask(from, to);
+            if ((slots[word] & mask) != 0) {
+                return false;
+            }
+            from = (word + 1) << 6;
+        }
+        return true;
+    }
+
+    /**
+     * Books the interval if all its slots are free.
+     * @return true if the interval was booked, false if it clashes with an existing booking
+     */
+    public boolean reserve(final long epochDay, final int startMinute, final int endMinute) {
+        if (!isFree(epochDay, startMinute, endMinute)) {
+            return false;
+        }
+        int from = startMinute / granularityMinutes;
+        int to = (endMinute + granularityMinutes - 1) / granularityMinutes;
+        long[] slots = day(epochDay, true);
+        if (to > slots.length * Long.SIZE) {
+            // meeting runs past midnight
+            slots = Arrays.copyOf(slots, (to + Long.SIZE - 1) / Long.SIZE);
+            days[(int) (epochDay - baseDay)] = slots;
+        }
+        for (int word = from >>> 6; from < to; word++) {
+            slots[word] |= mask(from, to);
+            from = (word + 1) << 6;
+        }
+        return true;
+    }
+
+    /**
+     * Releases the slots of a previously reserved interval.
+     */
+    public void release(final long epochDay, final int startMinute, final int endMinute) {
+        long[] slots = day(epochDay, false);
+        if (slots == null) {
+            return;
+        }
+        int from = startMinute / granularityMinutes;
+        int to = Math.min((endMinute + granularityMinutes - 1) / granularityMinutes, slots.length * Long.SIZE);
+        for (int word = from >>> 6; from < to; word++) {
+            slots[word] &= ~mask(from, to);
+            from = (word + 1) << 6;
+        }
+    }
+
+    /**
+     * @return the bits from 'from' up to the end of its word or 'to', whichever comes first
+     */
+    private static long mask(final int from, final int to) {
+        long mask = -1L << from; // shift distance is taken mod 64
+        int wordEnd = ((from >>> 6) + 1) << 6;
+        if (to < wordEnd) {
+            mask &= -1L >>> (wordEnd - to);
+        }
+        return mask;
+    }
+
+    private long[] day(final long epochDay, final boolean create) {
+        if (days == null) {
+            if (!create) {
+                return null;
+            }
+            baseDay = epochDay;
+            days = new long[INITIAL_DAYS][];
+        }
+        long index = epochDay - baseDay;
+        if (index < 0 || index >= days.length) {
+            if (!create) {
+                return null;
+            }
+            grow(epochDay);
+            index = epochDay - baseDay;
+        }
+        long[] slots = days[(int) index];
+        if (slots == null && create) {
+            slots = new long[wordsPerDay];
+            days[(int) index] = slots;
+        }
+        return slots;
+    }
+
+    /**
+     * Grows the day index so that it covers the given day, doubling its size to keep growth amortised.
+     */
+    private void grow(final long epochDay) {
+        long first = Math.min(baseDay, epochDay);
+        long last = Math.max(baseDay + days.length - 1, epochDay);
+        long needed = last - first + 1;
+        if (needed > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many days in the calendar");
+        }
+        int length = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, 2L * days.length));
+        long[][] grown = new long[length][];
+        if (epochDay < baseDay) {
+            // leave the spare room at the front since the calendar is growing backwards
+            first = last - length + 1;
+        }
+        System.arraycopy(days, 0, grown, (int) (baseDay - first), days.length);
+        days = grown;
+        baseDay = first;
+    }
+}
@@ -0,0 +1,89 @@
+package com.gurps.roombooking.domain;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Read only set of booking requests in chronological order of submission, backed by an array.
+ *
+ * This is a cheaper alternative to adding every request to a TreeSet: the requests are collected
+ * into an array and ordered by a primitive radix sort on their submission time. As with a TreeSet,
+ * when several requests share a submission time only the first one added is kept.
+ */
+public class SubmissionOrderedRequests extends AbstractSet<BookingRequest> {
+
+    private final BookingRequest[] requests;
+
+    private SubmissionOrderedRequests(final BookingRequest[] requests) {
+        this.requests = requests;
+    }
+
+    /**
+     * @param requests booking requests in the order they were read
+     * @return the requests ordered by submission time
+     */
+    public static SubmissionOrderedRequests of(final List<BookingRequest> requests) {
+        int size = requests.size();
+        long[] seconds = new long[size];
+        long[] nanos = new long[size];
+        BookingRequest[] unsorted = requests.toArray(new BookingRequest[size]);
+        for (int i = 0; i < size; i++) {
+            seconds[i] = unsorted[i].getRequestEpochSecond();
+            nanos[i] = unsorted[i].getRequestTime().getNano();
+        }
+        // stable sorts, least significant key first
+        int[] order = RadixSort.order(nanos, size);
+        RadixSort.sort(order, seconds);
+
+        BookingRequest[] sorted = new BookingRequest[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            BookingRequest request = unsorted[order[i]];
+            if (count > 0 && sorted[count - 1].compareTo(request) == 0) {
+                continue; // same submission time as an earlier request
+            }
+            sorted[count++] = request;
+        }
+        return new SubmissionOrderedRequests(count == size ? sorted : Arrays.copyOf(sorted, count));
+    }
+
+    @Override
+    public Iterator<BookingRequest> iterator() {
+        return new Iterator<BookingRequest>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < requests.length;
+            }
+
+            @Override
+            public BookingRequest next() {
+                if (next >= requests.length) {
+                    throw new NoSuchElementException();
+                }
+                return requests[next++];
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return requests.length;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof BookingRequest && Arrays.binarySearch(requests, (BookingRequest) o) >= 0;
+    }
+
+    /**
+     * @return the request at the given position in submission order
+     */
+    public BookingRequest get(final int index) {
+        return requests[index];
+    }
+}
@@ -0,0 +1,71 @@
+package com.gurps.roombooking.domain;
+
+import java.time.LocalTime;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * A period of time within a day, e.g. a free slot between meetings.
+ */
+public class TimeSlot {
+
+    private static final int MINUTES_PER_HOUR = 60;
+
+    private final int startMinute;
+    private final int endMinute;
+
+    /**
+     * @param startMinute start minute-of-day (inclusive)
+     * @param endMinute end minute-of-day (exclusive)
+     */
+    public TimeSlot(final int startMinute, final int endMinute) {
+        this.startMinute = startMinute;
+        this.endMinute = endMinute;
+    }
+
+    public int getStartMinute() {
+        return startMinute;
+    }
+
+    public int getEndMinute() {
+        return endMinute;
+    }
+
+    public LocalTime getStart() {
+        return LocalTime.of(startMinute / MINUTES_PER_HOUR, startMinute % MINUTES_PER_HOUR);
+    }
+
+    public LocalTime getEnd() {
+        return LocalTime.of(endMinute / MINUTES_PER_HOUR, endMinute % MINUTES_PER_HOUR);
+    }
+
+    /**
+     * @return the length of the slot in minutes
+     */
+    public int getMinutes() {
+        return endMinute - startMinute;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        TimeSlot rhs = (TimeSlot) obj;
+        return startMinute == rhs.startMinute && endMinute == rhs.endMinute;
+    }
+
+    @Override
+    public int hashCode() {
+        return 37 * startMinute + endMinute;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+    }
+}
@@ -0,0 +1,266 @@
+package com.gurps.roombooking.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.TimeSlot;
+import com.gurps.roombooking.service.BookingRequestReader;
+import com.gurps.roombooking.service.IncrementalSchedulerService;
+import com.gurps.roombooking.service.InvalidBookingRequestException;
+import com.gurps.roombooking.service.StreamingFilePrinterService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves an IncrementalSchedulerService over HTTP with the JDK's built in server.
+ *
+ * <pre>
+ * POST /bookings            body: the two lines of a single booking request in the input file format
+ *                           201 if the meeting was accepted, 409 if it was rejected, 400 if it is invalid
+ *                           or the body holds more than one request, 500 if it could not be journaled
+ *                           201 is provisional: a clashing request submitted earlier that arrives later
+ *                           takes the slot, so GET /schedule is the only word on what is booked
+ * GET  /schedule/yyyy-MM-dd the day's meetings in the output file format
+ * GET  /free-slots/yyyy-MM-dd  'HH:mm HH:mm' for each gap between the day's meetings in office hours
+ *                           ?hours=N  only the gaps with room for a meeting of N hours
+ * </pre>
+ *
+ * Each request is handled on its own virtual thread when the runtime supports them (Java 21 or later)
+ * and on a cached thread pool otherwise.
+ */
+public class BookingHttpServer {
+
+    private static final String BOOKINGS = "/bookings";
+    private static final String SCHEDULE = "/schedule/";
+    private static final String FREE_SLOTS = "/free-slots/";
+    private static final String HOURS = "hours=";
+
+    private static final String LINE_SEPARATOR = "\n";
+
+    private static final String NO_DELAY = "sun.net.httpserver.nodelay";
+
+    private final IncrementalSchedulerService schedulerService;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * @param schedulerService the scheduler holding the schedule
+     * @param address the address to listen on, port 0 picks a free port
+     * @throws IOException if the server cannot be bound to the address
+     */
+    public BookingHttpServer(IncrementalSchedulerService schedulerService, InetSocketAddress address)
+            throws IOException {
+        this.schedulerService = schedulerService;
+        this.server = HttpServer.create(address, 0);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext(BOOKINGS, new BookingsHandler());
+        server.createContext(SCHEDULE, new ScheduleHandler());
+        server.createContext(FREE_SLOTS, new FreeSlotsHandler());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, waiting up to the given number of seconds for those in progress.
+     */
+    public void stop(final int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Turns off Nagle's algorithm on the connections of every HttpServer created afterwards in this
+     * process, unless the sun.net.httpserver.nodelay property is already set. Small responses otherwise
+     * sit waiting for a delayed ack, adding tens of milliseconds per request. The JDK reads the property
+     * once, so this must be called before the first server is created.
+     */
+    public static void enableNoDelay() {
+        if (System.getProperty(NO_DELAY) == null) {
+            System.setProperty(NO_DELAY, "true");
+        }
+    }
+
+    /**
+     * @return a virtual thread per task executor if the runtime has them, a cached thread pool otherwise
+     */
+    public static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private final class BookingsHandler implements HttpHandler {
+        @Override
+        public void handle(final HttpExchange exchange) throws IOException {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "Use POST");
+                return;
+            }
+            BookingRequest booking;
+            try (BookingRequestReader reader = new BookingRequestReader(exchange.getRequestBody())) {
+                // any client can send any id, which must not stay in the EmployeeDictionary for good
+                reader.setInternEmployees(false);
+                booking = reader.next();
+                if (booking != null && reader.next() != null) {
+                    send(exchange, 400, "INVALID INPUT one booking request per POST");
+                    return;
+                }
+            } catch (InvalidBookingRequestException e) {
+                send(exchange, 400, "INVALID INPUT " + e.getMessage());
+                return;
+            }
+            if (booking == null) {
+                send(exchange, 400, "INVALID INPUT");
+                return;
+            }
+            boolean accepted;
+            try {
+                accepted = schedulerService.submit(booking);
+            } catch (IllegalArgumentException e) {
+                // a request the journal cannot log, such as one with an employee id too long
+                send(exchange, 400, "INVALID INPUT " + e.getMessage());
+                return;
+            } catch (UncheckedIOException e) {
+                send(exchange, 500, "UNAVAILABLE " + e.getCause().getMessage());
+                return;
+            }
+            send(exchange, accepted ? 201 : 409, accepted ? "ACCEPTED" : "REJECTED");
+        }
+    }
+
+    private final class ScheduleHandler implements HttpHandler {
+        @Override
+        public void handle(final HttpExchange exchange) throws IOException {
+            LocalDate day = day(exchange, SCHEDULE);
+            if (day == null) {
+                return;
+            }
+            SortedSet<BookingRequest> meetings = schedulerService.getSchedule(day);
+            StringWriter body = new StringWriter();
+            if (!meetings.isEmpty()) {
+                new StreamingFilePrinterService(null).print(Collections.singletonMap(day, meetings), body);
+            }
+            send(exchange, 200, body.toString());
+        }
+    }
+
+    private final class FreeSlotsHandler implements HttpHandler {
+        @Override
+        public void handle(final HttpExchange exchange) throws IOException {
+            LocalDate day = day(exchange, FREE_SLOTS);
+            if (day == null) {
+                return;
+            }
+            String query = exchange.getRequestURI().getQuery();
+            List<TimeSlot> slots;
+            if (query == null) {
+                slots = schedulerService.getFreeSlots(day);
+            } else {
+                try {
+                    if (!query.startsWith(HOURS)) {
+                        throw new IllegalArgumentException(query);
+                    }
+                    // NumberFormatException is an IllegalArgumentException
+                    slots = schedulerService.findFreeSlots(day, Integer.parseInt(query.substring(HOURS.length())));
+                } catch (IllegalArgumentException e) {
+                    send(exchange, 400, "Use ?hours=N with a positive number of hours");
+                    return;
+                }
+            }
+            StringBuilder body = new StringBuilder();
+            for (TimeSlot slot : slots) {
+                if (body.length() > 0) {
+                    body.append(LINE_SEPARATOR);
+                }
+                body.append(slot.getStart()).append(' ').append(slot.getEnd());
+            }
+            send(exchange, 200, body.toString());
+        }
+    }
+
+    /**
+     * @return the date at the end of a GET request's path or null, once an error has been sent, if the
+     * request is not a GET or the date is invalid
+     */
+    private static LocalDate day(final HttpExchange exchange, final String context) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            send(exchange, 405, "Use GET");
+            return null;
+        }
+        String path = exchange.getRequestURI().getPath();
+        try {
+            return LocalDate.parse(path.substring(context.length()));
+        } catch (DateTimeParseException e) {
+            send(exchange, 404, "Date must be in the format yyyy-MM-dd");
+            return null;
+        }
+    }
+
+    private static void send(final HttpExchange exchange, final int status, final String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Usage: BookingHttpServer port input-file output-file [journal-directory]
+     * Loads the schedule from the input file, whose header sets the office hours, and serves it until the
+     * process is stopped, writing the final schedule to the output file on the way out. With a journal
+     * directory every booking is journaled, and a restart recovers the schedule from the journal instead
+     * of reading the input file.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 && args.length != 4) {
+            throw new IllegalArgumentException("port, input path and output path should be specified.");
+        }
+        IncrementalSchedulerService schedulerService = args.length == 4
+                ? IncrementalSchedulerService.open(Paths.get(args[3]), args[1], args[2])
+                : IncrementalSchedulerService.load(args[1], args[2]);
+        if (schedulerService == null) {
+            throw new IllegalArgumentException("input file must at least contain the office hours");
+        }
+        enableNoDelay();
+        BookingHttpServer server = new BookingHttpServer(schedulerService,
+                new InetSocketAddress(Integer.parseInt(args[0])));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            schedulerService.produceSchedule();
+            try {
+                schedulerService.close();
+            } catch (IOException e) {
+                System.err.println("Unable to close journal: " + e.getMessage());
+            }
+        }));
+        server.start();
+        System.out.println("Listening on port " + server.getPort());
+    }
+}
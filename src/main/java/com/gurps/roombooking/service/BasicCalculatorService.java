@@ -2,6 +2,7 @@ package com.gurps.roombooking.service;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeMap;
@@ -9,7 +10,9 @@ import java.util.TreeSet;
 
 import com.gurps.roombooking.domain.BookingRequest;
 import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.BookingRequestStore;
 import com.gurps.roombooking.domain.ScheduledMeetingComparator;
+import com.gurps.roombooking.domain.SlotCalendar;
 
 /**
  * The key business rules are defined in this class.
@@ -19,13 +22,48 @@ import com.gurps.roombooking.domain.ScheduledMeetingComparator;
  */
 public class BasicCalculatorService implements ScheduleCalculatorService{
 
+    private static final int SECONDS_PER_MINUTE = 60;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final SchedulerMetrics metrics;
+    private BookingRuleChain rules = BookingRuleChain.NONE;
+
+    public BasicCalculatorService() {
+        this(new SchedulerMetrics());
+    }
+
+    /**
+     * @param metrics the metrics to count accepted and rejected requests in, which also say whether a
+     * line is printed per rejected request
+     */
+    public BasicCalculatorService(final SchedulerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public SchedulerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param rules checked after the office hours and before the room is booked, none by default
+     */
+    @Override
+    public void setRules(final BookingRuleChain rules) {
+        this.rules = rules;
+    }
+
+    public BookingRuleChain getRules() {
+        return rules;
+    }
+
     @Override
     /**
      * @param batch the BookingRequestBatch consisting of individual submissions
      * @return Map consisting of meeting date against a set of BookingRequests in chronological order
      * 
      * Any booking requests that break the business ruling will not be calculated and will be skipped
-     * e.g. if a meeting clashes with another one then the one that was submitted first takes precedence.
+     * e.g. if a meeting clashes with another one then the one that was submitted first takes precedence,
+     * and a meeting that breaks one of the rules on its employee's meetings is skipped.
      */
     public Map<LocalDate, SortedSet<BookingRequest>> calculate(final BookingRequestBatch batch) {
         
@@ -33,10 +71,12 @@ public class BasicCalculatorService implements ScheduleCalculatorService{
         
         Map<LocalDate, SortedSet<BookingRequest>> meetingsSchedule = new TreeMap<>();
         if(batch != null){
+            BookingRule.Check check = rules.start();
             for(BookingRequest booking : batch.getBookingRequests()){
                 if(isOutsideOfficeHours(booking, batch.getOpeningTime(), batch.getClosingTime())){
-                    System.out.println("Meeting occurs outside office hours. Req =  " 
-                            + booking.getRequestDate() + " " + booking.getRequestTime());
+                    metrics.recordOutsideOfficeHours(booking);
+                }else if(!BookingRuleChain.allows(check, booking)){
+                    metrics.recordRuleViolation(booking);
                 }else{
                     
                     LocalDate meetingDate = booking.getMeetingDate();
@@ -46,8 +86,8 @@ public class BasicCalculatorService implements ScheduleCalculatorService{
                         meetingsSchedule.put(meetingDate, meetings);
                     }
                     
-                    if(!meetings.add(booking)){
-                        System.out.println("Conflicting booking found for " + booking.getRequestDate() + " " + booking.getRequestTime());
+                    if(addMeeting(meetings, booking, metrics)){
+                        BookingRuleChain.accepted(check, booking);
                     }
                 }
             }
@@ -58,6 +98,88 @@ public class BasicCalculatorService implements ScheduleCalculatorService{
         return meetingsSchedule;
     }
     
+    /**
+     * Columnar variant of calculate which works straight from the primitive columns of the store
+     * without creating a BookingRequest per record. Clashes are detected with a SlotCalendar.
+     * @param store the booking requests in any order
+     * @param openingTime the company opening time
+     * @param closingTime the company closing time
+     * @return the indexes of the accepted records ordered by meeting date and then start time
+     */
+    public int[] calculate(final BookingRequestStore store, final LocalTime openingTime, final LocalTime closingTime) {
+
+        System.out.println("....calculating output ....");
+
+        int openingSecond = openingTime.toSecondOfDay();
+        int closingSecond = closingTime.toSecondOfDay();
+        SlotCalendar calendar = new SlotCalendar(1);
+        BookingRule.Check check = rules.start();
+
+        int[] order = store.submissionOrder();
+        int[] accepted = new int[order.length];
+        int acceptedCount = 0;
+        long minDay = Long.MAX_VALUE;
+        long previousSubmission = 0;
+        for (int i = 0; i < order.length; i++) {
+            int record = order[i];
+            long submission = store.getSubmissionEpochSecond(record);
+            if (i > 0 && submission == previousSubmission) {
+                // same submission time as the previous request, a sorted set of requests keeps only the first
+                continue;
+            }
+            previousSubmission = submission;
+            int startMinute = store.getStartMinute(record);
+            int endMinute = store.getEndMinute(record);
+            int employee = store.getEmployeeIndex(record);
+            long meetingDay = store.getMeetingEpochDay(record);
+            if (isOutsideOfficeHours(startMinute, endMinute, openingSecond, closingSecond)) {
+                metrics.recordOutsideOfficeHours(submission, store.getEmployee(employee));
+            } else if (!check.allows(employee, meetingDay, startMinute, endMinute)) {
+                metrics.recordRuleViolation(submission, store.getEmployee(employee));
+            } else if (calendar.reserve(meetingDay, startMinute, endMinute)) {
+                check.accepted(employee, meetingDay, startMinute, endMinute);
+                accepted[acceptedCount++] = record;
+                minDay = Math.min(minDay, store.getMeetingEpochDay(record));
+                metrics.recordAccepted();
+            } else {
+                metrics.recordConflict(LocalDate.ofEpochDay(store.getMeetingEpochDay(record)), submission,
+                        store.getEmployee(store.getEmployeeIndex(record)));
+            }
+        }
+
+        // accepted meetings never share a start minute on the same day, so day and start identify a meeting
+        long[] keys = new long[acceptedCount];
+        for (int i = 0; i < acceptedCount; i++) {
+            int record = accepted[i];
+            long minuteKey = (store.getMeetingEpochDay(record) - minDay) * MINUTES_PER_DAY
+                    + store.getStartMinute(record);
+            keys[i] = minuteKey << 32 | record;
+        }
+        Arrays.sort(keys);
+        int[] schedule = new int[acceptedCount];
+        for (int i = 0; i < acceptedCount; i++) {
+            schedule[i] = (int) keys[i];
+        }
+        return schedule;
+    }
+
+    /**
+     * Adds the booking to the meetings of its day unless it clashes with a meeting already there.
+     * @param meetings the meetings accepted so far for the booking's meeting date
+     * @param booking The Booking Request
+     * @param metrics counts the outcome and say where a conflict is reported
+     * @return true if the booking was accepted
+     */
+    static boolean addMeeting(final SortedSet<BookingRequest> meetings, final BookingRequest booking,
+            final SchedulerMetrics metrics){
+        if(!meetings.add(booking)){
+            metrics.recordConflict(booking);
+            return false;
+        }
+        metrics.recordAccepted();
+        return true;
+    }
+
     /**
      * Check to see if the booking is within office hours.
      * Bookings outside office hours cannot be placed and as a result the entire
@@ -65,7 +187,7 @@ public class BasicCalculatorService implements ScheduleCalculatorService{
      * @param booking The Booking Request
      * @return true if the booking falls outside the company office hours. False otherwise
      */
-    private boolean isOutsideOfficeHours(final BookingRequest booking, final LocalTime openingTime,
+    static boolean isOutsideOfficeHours(final BookingRequest booking, final LocalTime openingTime,
             final LocalTime closingTime){
         return booking.getMeetingStartTime().isBefore(openingTime) ||
                booking.getMeetingStartTime().isAfter(closingTime) ||
@@ -73,4 +195,16 @@ public class BasicCalculatorService implements ScheduleCalculatorService{
                booking.getMeetingEndDateTime().toLocalTime().isBefore(openingTime);
     }
 
+    /**
+     * Same check as isOutsideOfficeHours on the primitive fields of a booking.
+     * @param startMinute the meeting start minute-of-day
+     * @param endMinute the meeting end in minutes from the start of the meeting date
+     */
+    static boolean isOutsideOfficeHours(final int startMinute, final int endMinute, final int openingSecond,
+            final int closingSecond){
+        int start = startMinute * SECONDS_PER_MINUTE;
+        int end = (endMinute % MINUTES_PER_DAY) * SECONDS_PER_MINUTE;
+        return start < openingSecond || start > closingSecond || end > closingSecond || end < openingSecond;
+    }
+
 }
@@ -0,0 +1,211 @@
+package com.gurps.roombooking.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Schedules many input files in one run, for sites that each produce their own booking file, so the
+ * JVM starts and warms up once rather than once per file.
+ *
+ * Each input file is scheduled by a MeetingSchedulerServiceImpl into the file of the same name in the
+ * output directory, on a fixed pool of worker threads. The workers share one set of metrics and of
+ * booking rules, each file starting its own check of the rules. A file that cannot be read, or holds a
+ * badly formatted request, gets "INVALID INPUT" as its output just as a single run would, without
+ * affecting the other files.
+ */
+public class BatchSchedulerService implements MeetingSchedulerService {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    private final List<Path> inputFiles;
+    private final Path outputDirectory;
+    private final int threads;
+    private final SchedulerMetrics metrics;
+    private BookingRuleChain rules = BookingRuleChain.NONE;
+    private ValidationMode validationMode = ValidationMode.NONE;
+
+    private final LongAdder invalidFiles = new LongAdder();
+    private final LongAdder inputBytes = new LongAdder();
+    private long elapsedNanos;
+
+    /**
+     * @param inputFiles the input files, with distinct file names
+     * @param outputDirectory the directory to write the schedules to, created if need be
+     * @param threads the number of files scheduled at once
+     */
+    public BatchSchedulerService(List<Path> inputFiles, Path outputDirectory, int threads) {
+        this(inputFiles, outputDirectory, threads, new SchedulerMetrics());
+    }
+
+    /**
+     * @param inputFiles the input files, with distinct file names
+     * @param outputDirectory the directory to write the schedules to, created if need be
+     * @param threads the number of files scheduled at once
+     * @param metrics the metrics every file is counted in
+     */
+    public BatchSchedulerService(List<Path> inputFiles, Path outputDirectory, int threads,
+            SchedulerMetrics metrics) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        for (Path inputFile : inputFiles) {
+            if (outputFile(outputDirectory, inputFile).toAbsolutePath().normalize()
+                    .equals(inputFile.toAbsolutePath().normalize())) {
+                throw new IllegalArgumentException(inputFile + " would be overwritten by its own schedule");
+            }
+        }
+        this.inputFiles = new ArrayList<>(inputFiles);
+        this.outputDirectory = outputDirectory;
+        this.threads = threads;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param rules the rules on each employee's meetings, applied to each file on its own, none by default
+     */
+    public void setRules(BookingRuleChain rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * @param validationMode how badly formatted requests in each file are dealt with, ValidationMode.NONE
+     * by default
+     */
+    public void setValidationMode(ValidationMode validationMode) {
+        this.validationMode = validationMode;
+    }
+
+    /**
+     * @param directoryOrGlob a directory, whose files are all taken, or a glob over the file names in a
+     * directory such as sites/*.txt
+     * @return the matching regular files in order of name
+     */
+    public static List<Path> findInputFiles(String directoryOrGlob) throws IOException {
+        Path directory;
+        String glob;
+        if (Files.isDirectory(Paths.get(directoryOrGlob))) {
+            directory = Paths.get(directoryOrGlob);
+            glob = "*";
+        } else {
+            int separator = Math.max(directoryOrGlob.lastIndexOf('/'),
+                    directoryOrGlob.lastIndexOf(File.separatorChar));
+            directory = Paths.get(separator < 0 ? "." : directoryOrGlob.substring(0, Math.max(separator, 1)));
+            glob = directoryOrGlob.substring(separator + 1);
+        }
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                if (Files.isRegularFile(entry) && matcher.matches(entry.getFileName())) {
+                    files.add(entry);
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Schedules every input file and prints the throughput of the run.
+     */
+    @Override
+    public void produceSchedule() {
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Throwable failure = null;
+        try {
+            Files.createDirectories(outputDirectory);
+            List<Future<?>> schedules = new ArrayList<>(inputFiles.size());
+            for (Path inputFile : inputFiles) {
+                schedules.add(executor.submit(() -> schedule(inputFile)));
+            }
+            // let the other files finish before reporting a file that failed unexpectedly
+            for (Future<?> schedule : schedules) {
+                try {
+                    schedule.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        elapsedNanos = System.nanoTime() - start;
+        System.out.println(getSummary());
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+    }
+
+    private void schedule(final Path inputFile) {
+        try {
+            inputBytes.add(Files.size(inputFile));
+        } catch (IOException e) {
+            // gone or unreadable, so the scheduler writes its error like any other bad file
+        }
+        MeetingSchedulerServiceImpl schedulerService = new MeetingSchedulerServiceImpl(inputFile.toString(),
+                outputFile(outputDirectory, inputFile).toString(), new BasicCalculatorService(metrics), metrics);
+        schedulerService.setRules(rules);
+        schedulerService.setValidationMode(validationMode);
+        if (!schedulerService.schedule()) {
+            invalidFiles.increment();
+        }
+    }
+
+    private static Path outputFile(final Path outputDirectory, final Path inputFile) {
+        return outputDirectory.resolve(inputFile.getFileName().toString());
+    }
+
+    public int getFiles() {
+        return inputFiles.size();
+    }
+
+    /**
+     * @return the number of files whose output is the error rather than a schedule
+     */
+    public long getInvalidFiles() {
+        return invalidFiles.sum();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the files, requests and bytes scheduled and their rate over the wall time of the run
+     */
+    public String getSummary() {
+        double seconds = elapsedNanos / NANOS_PER_SECOND;
+        long requests = metrics.getRequestsRead();
+        long inputBytes = this.inputBytes.sum();
+        return String.format("Scheduled %d files (%d invalid), %d requests, %.1f MB in %d ms: %.0f requests/s, "
+                + "%.1f MB/s, %.1f files/s on %d threads", getFiles(), getInvalidFiles(), requests,
+                inputBytes / BYTES_PER_MEGABYTE, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                seconds == 0 ? 0 : requests / seconds, seconds == 0 ? 0 : inputBytes / BYTES_PER_MEGABYTE / seconds,
+                seconds == 0 ? 0 : getFiles() / seconds, threads);
+    }
+}
@@ -0,0 +1,208 @@
+package com.gurps.roombooking.service;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.BookingRequestStore;
+
+/**
+ * Versioned binary form of a booking input file, for batches that are scheduled again and again.
+ *
+ * <pre>
+ * header      magic 'RBBF', version, opening minute, closing minute, record count, employee count,
+ *             8 reserved bytes (4 bytes each)
+ * records     fixed size records in the BookingRequestStore off heap layout, in input file order
+ * employees   the employee dictionary: for each index a 2 byte length and the UTF-8 bytes of the id
+ * </pre>
+ *
+ * All values are big endian. Loading memory maps the file and wraps the records in a BookingRequestStore
+ * as they are, so the only objects created are the employee ids; the records are read in place by the
+ * calculator and printer. Files with a room inventory are not supported, as the store holds a single
+ * room's schedule.
+ */
+public class BinaryBookingFile {
+
+    private static final int MAGIC = 0x52424246;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MINUTES_PER_HOUR = 60;
+
+    private final LocalTime openingTime;
+    private final LocalTime closingTime;
+    private final BookingRequestStore store;
+
+    private BinaryBookingFile(final LocalTime openingTime, final LocalTime closingTime,
+            final BookingRequestStore store) {
+        this.openingTime = openingTime;
+        this.closingTime = closingTime;
+        this.store = store;
+    }
+
+    public LocalTime getOpeningTime() {
+        return openingTime;
+    }
+
+    public LocalTime getClosingTime() {
+        return closingTime;
+    }
+
+    /**
+     * @return the file's records, read in place from the mapping
+     */
+    public BookingRequestStore getStore() {
+        return store;
+    }
+
+    /**
+     * @return true if the file starts with the binary format's magic number
+     */
+    public static boolean isBinary(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // read the first four bytes
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Memory maps a binary booking file.
+     * @throws IOException if the file is not a binary booking file of a supported version
+     */
+    public static BinaryBookingFile load(final Path path) throws IOException {
+        MappedByteBuffer file;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large to map");
+            }
+            file = channel.map(MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (file.limit() < HEADER_SIZE || file.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not a binary booking file");
+        }
+        if (file.getInt(4) != VERSION) {
+            throw new IOException(path + " has unsupported version " + file.getInt(4));
+        }
+        LocalTime openingTime = minuteOfDay(file.getInt(8));
+        LocalTime closingTime = minuteOfDay(file.getInt(12));
+        int records = file.getInt(16);
+        int employeeCount = file.getInt(20);
+        long dictionary = HEADER_SIZE + (long) records * BookingRequestStore.RECORD_SIZE;
+        if (records < 0 || employeeCount < 0 || dictionary > file.limit()) {
+            throw new IOException(path + " is truncated");
+        }
+
+        file.position((int) dictionary);
+        List<String> employees = new ArrayList<>(employeeCount);
+        try {
+            for (int i = 0; i < employeeCount; i++) {
+                byte[] employee = new byte[file.getShort() & 0xffff];
+                file.get(employee);
+                employees.add(new String(employee, StandardCharsets.UTF_8));
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException(path + " is truncated", e);
+        }
+
+        file.position(HEADER_SIZE);
+        return new BinaryBookingFile(openingTime, closingTime,
+                BookingRequestStore.wrap(file.slice(), records, employees));
+    }
+
+    /**
+     * Writes the records of a store, and the office hours, as a binary booking file.
+     */
+    public static void write(final Path path, final LocalTime openingTime, final LocalTime closingTime,
+            final BookingRequestStore store) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            int employeeCount = store.getEmployeeCount();
+            ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+            out.putInt(MAGIC).putInt(VERSION)
+                    .putInt(openingTime.getHour() * MINUTES_PER_HOUR + openingTime.getMinute())
+                    .putInt(closingTime.getHour() * MINUTES_PER_HOUR + closingTime.getMinute())
+                    .putInt(store.size()).putInt(employeeCount).putLong(0);
+            for (int record = 0; record < store.size(); record++) {
+                if (out.remaining() < BookingRequestStore.RECORD_SIZE) {
+                    drain(channel, out);
+                }
+                out.putLong(store.getSubmissionEpochSecond(record))
+                        .putInt(store.getMeetingEpochDay(record))
+                        .putInt(store.getStartMinute(record))
+                        .putInt(store.getDuration(record))
+                        .putInt(store.getEmployeeIndex(record));
+            }
+            for (int i = 0; i < employeeCount; i++) {
+                byte[] employee = store.getEmployee(i).getBytes(StandardCharsets.UTF_8);
+                if (employee.length > Short.MAX_VALUE) {
+                    throw new IllegalArgumentException("Employee id too long: " + store.getEmployee(i));
+                }
+                if (out.remaining() < 2 + employee.length) {
+                    drain(channel, out);
+                }
+                out.putShort((short) employee.length).put(employee);
+            }
+            drain(channel, out);
+        }
+    }
+
+    /**
+     * Converts a booking input file to the binary format.
+     * @return the number of records written
+     * @throws InvalidBookingRequestException if the input file is empty, has a room inventory or a
+     * request is badly formatted
+     */
+    public static int convert(final Path inputFile, final Path binaryFile) throws IOException {
+        try (BookingRequestReader reader = new BookingRequestReader(inputFile)) {
+            BookingRequestBatch batch = reader.readHeader();
+            if (batch == null) {
+                throw new InvalidBookingRequestException("Line must contain the office hours", 1);
+            }
+            if (!batch.getRooms().isEmpty()) {
+                throw new InvalidBookingRequestException("Files with rooms cannot be converted", 1);
+            }
+            BookingRequestStore store = BookingRequestStore.onHeap();
+            reader.readInto(store);
+            write(binaryFile, batch.getOpeningTime(), batch.getClosingTime(), store);
+            return store.size();
+        }
+    }
+
+    private static void drain(final FileChannel channel, final ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    private static LocalTime minuteOfDay(final int minute) {
+        return LocalTime.of(minute / MINUTES_PER_HOUR, minute % MINUTES_PER_HOUR);
+    }
+
+    /**
+     * Usage: BinaryBookingFile input-file binary-file
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("input path and binary output path should be specified.");
+        }
+        long start = System.nanoTime();
+        int records = convert(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.printf("%d requests converted in %d ms%n", records, (System.nanoTime() - start) / 1000000);
+    }
+}
@@ -0,0 +1,528 @@
+package com.gurps.roombooking.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.service.ConcurrentScheduleStore.Outcome;
+
+/**
+ * Write-ahead log and snapshots of a ConcurrentScheduleStore, so a long running scheduler survives a
+ * restart without reading its input files again.
+ *
+ * Every request submitted through the journal is appended to the log before it is applied to the store,
+ * and it is only applied, and submit only returns, once the record is on disk. A request that cannot be
+ * logged is never applied. Records are appended to a buffer and the submitter that finds its
+ * record not yet on disk writes out and forces everything appended so far, so submitters arriving while
+ * the log is being forced share the next fsync (group commit).
+ *
+ * Every snapshotInterval records the store's requests, each marked with whether it is scheduled, are
+ * written to a snapshot and a new log is started. Recovery loads the latest snapshot and replays only
+ * the logs written since, so it takes time in proportion to the recent activity rather than the whole
+ * history. A record torn by a crash fails its checksum and ends the replay of its log.
+ *
+ * The directory holds snapshot-N and log-N files, where snapshot N has every request logged before log N.
+ * A snapshot-N.tmp file is a snapshot that was still being written when the process stopped.
+ */
+public class BookingJournal implements Closeable {
+
+    public static final long DEFAULT_SNAPSHOT_INTERVAL = 100000;
+
+    private static final int LOG_MAGIC = 0x52424a4c;
+    private static final int SNAPSHOT_MAGIC = 0x5242534e;
+    private static final int VERSION = 1;
+    private static final int LOG_HEADER_BYTES = 8;
+    private static final int SNAPSHOT_HEADER_BYTES = 28;
+    private static final int CHECKSUM_BYTES = 4;
+    /** length and checksum */
+    private static final int RECORD_HEADER_BYTES = 8;
+    /** flag, submission epoch-second and nano, meeting epoch-day, start, duration, attendees, employee length */
+    private static final int FIXED_RECORD_BYTES = 1 + 8 + 4 + 8 + 8 + 4 + 4 + 2;
+    private static final int MAX_EMPLOYEE_BYTES = Short.MAX_VALUE;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private static final String SNAPSHOT = "snapshot-";
+    private static final String LOG = "log-";
+    private static final String TEMPORARY = ".tmp";
+
+    private static final byte UNSCHEDULED = 0;
+    private static final byte SCHEDULED = 1;
+
+    /** the flag of a logged request, to be applied on replay */
+    private static final byte LOGGED = 0;
+    /** the flag of a logged request whose submission time was already taken when it was logged */
+    private static final byte DUPLICATE = 1;
+
+    private final Path directory;
+    private final ConcurrentScheduleStore store;
+    private final long snapshotInterval;
+
+    /** held shared while a request is logged and applied, exclusively while the log is switched */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean snapshotting = new AtomicBoolean();
+    private final AtomicLong sinceSnapshot = new AtomicLong();
+
+    /** guards the buffer, appended and writes to the log */
+    private final Object appendLock = new Object();
+    /** guards durable and forcing the log */
+    private final Object syncLock = new Object();
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private FileChannel log;
+    private long generation;
+    private long appended;
+    private long durable;
+
+    private BookingJournal(final Path directory, final ConcurrentScheduleStore store, final long generation,
+            final long snapshotInterval) {
+        this.directory = directory;
+        this.store = store;
+        this.generation = generation;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * @return true if the directory holds a journal to recover
+     */
+    public static boolean exists(final Path directory) throws IOException {
+        return Files.isDirectory(directory) && !generations(directory, SNAPSHOT).isEmpty();
+    }
+
+    /**
+     * Starts a journal for a store, writing its current requests to the first snapshot.
+     * @param directory the directory for the journal, created if missing. Must not hold a journal already.
+     * @param store the schedule, from now on only to be submitted to through the journal
+     * @param snapshotInterval the number of records logged between snapshots
+     * @throws IOException
+     */
+    public static BookingJournal create(final Path directory, final ConcurrentScheduleStore store,
+            final long snapshotInterval) throws IOException {
+        Files.createDirectories(directory);
+        if (exists(directory)) {
+            throw new IOException("A journal already exists in " + directory);
+        }
+        BookingJournal journal = new BookingJournal(directory, store, 1, snapshotInterval);
+        journal.writeSnapshot(1, store.submissions(), scheduled(store));
+        journal.log = journal.openLog(1);
+        return journal;
+    }
+
+    /**
+     * Rebuilds the store from the latest snapshot in the directory and the logs written after it.
+     * @param directory the directory holding the journal
+     * @param snapshotInterval the number of records logged between snapshots
+     * @throws IOException if there is no readable snapshot
+     */
+    public static BookingJournal recover(final Path directory, final long snapshotInterval) throws IOException {
+        List<Long> snapshots = generations(directory, SNAPSHOT);
+        ConcurrentScheduleStore store = null;
+        long snapshot = 0;
+        for (int i = snapshots.size() - 1; i >= 0 && store == null; i--) {
+            snapshot = snapshots.get(i);
+            store = readSnapshot(directory.resolve(SNAPSHOT + snapshot));
+        }
+        if (store == null) {
+            throw new IOException("No readable snapshot in " + directory);
+        }
+        try (DirectoryStream<Path> unfinished = Files.newDirectoryStream(directory, SNAPSHOT + "*" + TEMPORARY)) {
+            for (Path file : unfinished) {
+                Files.delete(file);
+            }
+        }
+
+        long last = snapshots.get(snapshots.size() - 1);
+        long replayed = 0;
+        for (long logGeneration : generations(directory, LOG)) {
+            if (logGeneration >= snapshot) {
+                replayed += replay(directory.resolve(LOG + logGeneration), store);
+            }
+            last = Math.max(last, logGeneration);
+        }
+        // the last log may end in a torn record, so appending starts on a new one
+        BookingJournal journal = new BookingJournal(directory, store, last + 1, snapshotInterval);
+        journal.log = journal.openLog(last + 1);
+        journal.sinceSnapshot.set(replayed);
+        return journal;
+    }
+
+    public ConcurrentScheduleStore getStore() {
+        return store;
+    }
+
+    /**
+     * Logs a request and waits for it to be on disk, then submits it to the store and takes a snapshot if
+     * one is due.
+     * @throws IllegalArgumentException if the request cannot be logged, such as an employee id too long
+     * for a record, in which case nothing is logged or applied
+     * @throws IOException if the log cannot be written, in which case the request is not in the schedule.
+     * It may still be recovered on a restart if its record reached the disk.
+     */
+    public Outcome submit(final BookingRequest booking) throws IOException {
+        byte[] employee = employeeBytes(booking);
+        Outcome outcome;
+        lock.readLock().lock();
+        try {
+            boolean claimed = false;
+            try {
+                long sequence;
+                synchronized (appendLock) {
+                    // claimed in the order logged, so a replay keeps the same one of a duplicate pair
+                    claimed = store.claim(booking);
+                    sequence = append(claimed ? LOGGED : DUPLICATE, booking, employee);
+                }
+                awaitDurable(sequence);
+            } catch (IOException e) {
+                if (claimed) {
+                    store.unclaim(booking);
+                }
+                throw e;
+            }
+            outcome = store.offerClaimed(booking, claimed);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (sinceSnapshot.get() >= snapshotInterval && snapshotting.compareAndSet(false, true)) {
+            try {
+                snapshot();
+            } finally {
+                snapshotting.set(false);
+            }
+        }
+        return outcome;
+    }
+
+    /**
+     * Writes the store to a new snapshot and deletes the files it supersedes. Submissions are held up
+     * only while those in progress finish, the store's requests are copied and the log is switched, not
+     * while the snapshot is written.
+     */
+    public synchronized void snapshot() throws IOException {
+        List<BookingRequest> submissions;
+        Set<BookingRequest> scheduled;
+        long snapshot;
+        lock.writeLock().lock();
+        try {
+            submissions = store.submissions();
+            scheduled = scheduled(store);
+            snapshot = rotate();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        writeSnapshot(snapshot, submissions, scheduled);
+
+        for (String prefix : new String[] {SNAPSHOT, LOG}) {
+            for (long superseded : generations(directory, prefix)) {
+                if (superseded < snapshot) {
+                    Files.deleteIfExists(directory.resolve(prefix + superseded));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            synchronized (syncLock) {
+                synchronized (appendLock) {
+                    drain();
+                }
+                log.force(false);
+                durable = appended;
+                log.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Called holding appendLock.
+     * @return the sequence number of the record
+     */
+    private long append(final byte flag, final BookingRequest booking, final byte[] employee) throws IOException {
+        int length = FIXED_RECORD_BYTES + employee.length;
+        if (buffer.remaining() < RECORD_HEADER_BYTES + length) {
+            drain();
+        }
+        int start = buffer.position();
+        buffer.position(start + RECORD_HEADER_BYTES);
+        encode(buffer, flag, booking, employee);
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), start + RECORD_HEADER_BYTES, length);
+        buffer.putInt(start, length).putInt(start + 4, (int) checksum.getValue());
+        sinceSnapshot.incrementAndGet();
+        return ++appended;
+    }
+
+    private void awaitDurable(final long sequence) throws IOException {
+        synchronized (syncLock) {
+            if (durable >= sequence) {
+                return;
+            }
+            long written;
+            synchronized (appendLock) {
+                drain();
+                written = appended;
+            }
+            // appends carry on into the buffer while the log is forced
+            log.force(false);
+            durable = written;
+        }
+    }
+
+    /**
+     * Writes the buffer to the log. Called holding appendLock.
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            log.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Closes the current log once it is on disk and starts the next. Called holding the write lock.
+     * @return the generation of the new log
+     */
+    private long rotate() throws IOException {
+        synchronized (syncLock) {
+            synchronized (appendLock) {
+                drain();
+                durable = appended;
+            }
+            log.force(false);
+            log.close();
+            log = openLog(++generation);
+            sinceSnapshot.set(0);
+            return generation;
+        }
+    }
+
+    private FileChannel openLog(final long logGeneration) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(LOG + logGeneration), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES).putInt(LOG_MAGIC).putInt(VERSION);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(true);
+        syncDirectory();
+        return channel;
+    }
+
+    private void writeSnapshot(final long snapshot, final List<BookingRequest> submissions,
+            final Set<BookingRequest> scheduled) throws IOException {
+        Path temporary = directory.resolve(SNAPSHOT + snapshot + TEMPORARY);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+            CRC32 checksum = new CRC32();
+            out.putInt(SNAPSHOT_MAGIC).putInt(VERSION)
+                    .putLong(store.getOpeningTime().toNanoOfDay()).putLong(store.getClosingTime().toNanoOfDay())
+                    .putInt(submissions.size());
+            for (BookingRequest booking : submissions) {
+                byte[] employee = employeeBytes(booking);
+                if (out.remaining() < FIXED_RECORD_BYTES + employee.length) {
+                    write(channel, out, checksum);
+                }
+                encode(out, scheduled.contains(booking) ? SCHEDULED : UNSCHEDULED, booking, employee);
+            }
+            write(channel, out, checksum);
+            out.putInt((int) checksum.getValue());
+            write(channel, out, null);
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT + snapshot), StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+    }
+
+    private static void write(final FileChannel channel, final ByteBuffer out, final CRC32 checksum)
+            throws IOException {
+        out.flip();
+        if (checksum != null) {
+            checksum.update(out.duplicate());
+        }
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * @return the store held by the snapshot or null if it is not a complete snapshot
+     */
+    private static ConcurrentScheduleStore readSnapshot(final Path path) throws IOException {
+        MappedByteBuffer in = map(path);
+        if (in.limit() < SNAPSHOT_HEADER_BYTES + CHECKSUM_BYTES) {
+            return null;
+        }
+        CRC32 checksum = new CRC32();
+        ByteBuffer content = in.duplicate();
+        content.limit(in.limit() - CHECKSUM_BYTES);
+        checksum.update(content);
+        if ((int) checksum.getValue() != in.getInt(in.limit() - CHECKSUM_BYTES)
+                || in.getInt() != SNAPSHOT_MAGIC || in.getInt() != VERSION) {
+            return null;
+        }
+        ConcurrentScheduleStore store = new ConcurrentScheduleStore(LocalTime.ofNanoOfDay(in.getLong()),
+                LocalTime.ofNanoOfDay(in.getLong()));
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            byte flag = in.get();
+            store.restore(decode(in), flag == SCHEDULED);
+        }
+        return store;
+    }
+
+    /**
+     * Submits the requests of a log to the store, up to the first incomplete record.
+     * @return the number of records replayed
+     */
+    private static long replay(final Path path, final ConcurrentScheduleStore store) throws IOException {
+        MappedByteBuffer in = map(path);
+        if (in.limit() < LOG_HEADER_BYTES || in.getInt() != LOG_MAGIC || in.getInt() != VERSION) {
+            return 0;
+        }
+        long replayed = 0;
+        CRC32 checksum = new CRC32();
+        while (in.remaining() >= RECORD_HEADER_BYTES) {
+            int length = in.getInt();
+            int expected = in.getInt();
+            if (length < FIXED_RECORD_BYTES || length > in.remaining()) {
+                break;
+            }
+            ByteBuffer record = in.slice();
+            record.limit(length);
+            checksum.reset();
+            checksum.update(record.duplicate());
+            if ((int) checksum.getValue() != expected) {
+                break;
+            }
+            if (record.get() != DUPLICATE) {
+                store.apply(decode(record));
+            }
+            in.position(in.position() + length);
+            replayed++;
+        }
+        return replayed;
+    }
+
+    private static void encode(final ByteBuffer out, final byte flag, final BookingRequest booking,
+            final byte[] employee) {
+        out.put(flag)
+                .putLong(booking.getRequestEpochSecond())
+                .putInt(booking.getRequestTime().getNano())
+                .putLong(booking.getMeetingEpochDay())
+                .putLong(booking.getMeetingStartTime().toNanoOfDay())
+                .putInt(booking.getMeetingDuration())
+                .putInt(booking.getAttendees())
+                .putShort((short) (booking.getEmployeeId() == null ? -1 : employee.length))
+                .put(employee);
+    }
+
+    private static BookingRequest decode(final ByteBuffer in) {
+        long requestEpochSecond = in.getLong();
+        LocalTime requestTime = LocalTime.ofSecondOfDay(Math.floorMod(requestEpochSecond, SECONDS_PER_DAY))
+                .withNano(in.getInt());
+        BookingRequest.BookingRequestBuilder builder = new BookingRequest.BookingRequestBuilder(
+                LocalDate.ofEpochDay(Math.floorDiv(requestEpochSecond, SECONDS_PER_DAY)), requestTime)
+                .meetingDate(LocalDate.ofEpochDay(in.getLong()))
+                .meetingStart(LocalTime.ofNanoOfDay(in.getLong()))
+                .duration(in.getInt())
+                .attendees(in.getInt());
+        short employeeLength = in.getShort();
+        if (employeeLength >= 0) {
+            byte[] employee = new byte[employeeLength];
+            in.get(employee);
+            // as the requests were taken, kept out of the EmployeeDictionary
+            builder.uninternedEmployee(new String(employee, StandardCharsets.UTF_8));
+        }
+        return builder.build();
+    }
+
+    private static byte[] employeeBytes(final BookingRequest booking) {
+        if (booking.getEmployeeId() == null) {
+            return new byte[0];
+        }
+        byte[] employee = booking.getEmployeeId().getBytes(StandardCharsets.UTF_8);
+        if (employee.length > MAX_EMPLOYEE_BYTES) {
+            throw new IllegalArgumentException("Employee id too long to journal");
+        }
+        return employee;
+    }
+
+    /**
+     * @return an identity set of the store's scheduled meetings
+     */
+    private static Set<BookingRequest> scheduled(final ConcurrentScheduleStore store) {
+        Set<BookingRequest> scheduled = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (SortedSet<BookingRequest> meetings : store.getSchedule().values()) {
+            scheduled.addAll(meetings);
+        }
+        return scheduled;
+    }
+
+    private static MappedByteBuffer map(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * @return the generations of the files with the prefix, in ascending order
+     */
+    private static List<Long> generations(final Path directory, final String prefix) throws IOException {
+        SortedSet<Long> generations = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path file : files) {
+                try {
+                    generations.add(Long.parseLong(file.getFileName().toString().substring(prefix.length())));
+                } catch (NumberFormatException e) {
+                    // a snapshot still being written or a file that is not part of the journal
+                }
+            }
+        }
+        return new ArrayList<>(generations);
+    }
+
+    /**
+     * Makes a file just created or renamed in the directory durable. Not every platform can open a
+     * directory, in which case this is left to the file system.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not supported on this platform
+        }
+    }
+}
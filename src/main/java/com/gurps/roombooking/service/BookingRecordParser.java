@@ -0,0 +1,327 @@
+package com.gurps.roombooking.service;
+
+import java.nio.charset.Charset;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.EmployeeDictionary;
+import com.gurps.roombooking.domain.MeetingRoom;
+
+/**
+ * Hand written parser for the fixed width fields of the booking input file.
+ *
+ * The header line is 'HHmm HHmm', optionally followed by a room inventory of 'name:capacity' tokens,
+ * and each booking request spans two lines: 'yyyy-MM-dd HH:mm:ss EMPxxx' followed by
+ * 'yyyy-MM-dd HH:mm N', optionally followed by the number of attendees.
+ * Fields are read straight out of the raw line bytes, so no intermediate Strings
+ * are created, and the employee id is interned into the EmployeeDictionary from the bytes, unless the
+ * caller keeps ids from outside the process out of the dictionary.
+ */
+final class BookingRecordParser {
+
+    private static final int DATE_LEN = 10; // yyyy-MM-dd
+    private static final int REQ_TIME_LEN = 8; // HH:mm:ss
+    private static final int START_TIME_LEN = 5; // HH:mm
+    private static final int HOURS_LEN = 4; // HHmm
+
+    private static final byte DELIM = ' ';
+
+    private static final int SECONDS_PER_MINUTE = 60;
+    private static final long DAYS_0000_TO_1970 = 719528L;
+
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private BookingRecordParser() {
+    }
+
+    /**
+     * @param line the raw bytes of the first line of the file
+     * @param length number of bytes of the line, excluding the line terminator
+     * @param lineNumber line number used for error reporting
+     * @return BookingRequestBatch holding the company opening and closing time and the rooms, if any
+     */
+    static BookingRequestBatch parseHeader(final byte[] line, final int length, final long lineNumber) {
+        if (length < 2 * HOURS_LEN + 1 || line[HOURS_LEN] != DELIM) {
+            throw new InvalidBookingRequestException("Line must contain opening and closing time", lineNumber);
+        }
+        LocalTime openingTime = hours(line, 0, lineNumber);
+        LocalTime closingTime = hours(line, HOURS_LEN + 1, lineNumber);
+        BookingRequestBatch batch = new BookingRequestBatch(openingTime, closingTime);
+        List<MeetingRoom> rooms = rooms(line, 2 * HOURS_LEN + 1, length, lineNumber);
+        if (!rooms.isEmpty()) {
+            batch.setRooms(rooms);
+        }
+        return batch;
+    }
+
+    /**
+     * Parses the two lines of an individual booking request.
+     * @param first bytes of the submission line
+     * @param firstLength length of the submission line excluding the line terminator
+     * @param second bytes of the meeting line
+     * @param secondLength length of the meeting line excluding the line terminator
+     * @param lineNumber line number of the submission line, the meeting line is assumed to follow it.
+     * @param fields scratch holder for the parsed fields, reused between calls
+     * @param intern false to keep the employee id on the request as a String rather than intern it
+     * @return the parsed BookingRequest
+     */
+    static BookingRequest parseRequest(final byte[] first, final int firstLength, final byte[] second,
+            final int secondLength, final long lineNumber, final Fields fields, final boolean intern) {
+
+        parseFields(first, firstLength, second, secondLength, lineNumber, fields);
+
+        BookingRequest.BookingRequestBuilder builder = new BookingRequest.BookingRequestBuilder(
+                LocalDate.ofEpochDay(fields.requestEpochDay), LocalTime.ofSecondOfDay(fields.requestSecondOfDay))
+                .meetingDate(LocalDate.ofEpochDay(fields.meetingEpochDay))
+                .meetingStart(LocalTime.ofSecondOfDay(fields.meetingStartMinute * SECONDS_PER_MINUTE))
+                .duration(fields.duration).attendees(fields.attendees);
+        if (intern) {
+            builder.employeeCode(employeeCode(first, fields));
+        } else {
+            builder.uninternedEmployee(new String(first, fields.employeeOffset, fields.employeeLength, CHARSET));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Parses and validates the two lines of an individual booking request into primitive fields
+     * without creating any objects.
+     * @see #parseRequest(byte[], int, byte[], int, long, Fields, boolean)
+     */
+    static void parseFields(final byte[] first, final int firstLength, final byte[] second,
+            final int secondLength, final long lineNumber, final Fields fields) {
+
+        int firstLen = trimTrailingDelims(first, firstLength);
+        int secondLen = trimTrailingDelims(second, secondLength);
+
+        int employeeOffset = DATE_LEN + 1 + REQ_TIME_LEN + 1;
+        if (firstLen <= employeeOffset || first[DATE_LEN] != DELIM || first[employeeOffset - 1] != DELIM) {
+            throw new InvalidBookingRequestException(
+                    "Line must contain request date, request time and employee id", lineNumber);
+        }
+        int durationOffset = DATE_LEN + 1 + START_TIME_LEN + 1;
+        if (secondLen <= durationOffset || second[DATE_LEN] != DELIM || second[durationOffset - 1] != DELIM) {
+            throw new InvalidBookingRequestException(
+                    "Line must contain meeting date, start time and duration", lineNumber + 1);
+        }
+
+        fields.requestEpochDay = epochDay(first, 0, lineNumber);
+        fields.requestSecondOfDay = secondOfDay(first, DATE_LEN + 1, true, lineNumber);
+
+        for (int i = employeeOffset; i < firstLen; i++) {
+            if (first[i] == DELIM) {
+                throw new InvalidBookingRequestException(
+                        "Line must contain request date, request time and employee id", lineNumber);
+            }
+        }
+        fields.employeeOffset = employeeOffset;
+        fields.employeeLength = firstLen - employeeOffset;
+
+        fields.meetingEpochDay = epochDay(second, 0, lineNumber + 1);
+        fields.meetingStartMinute = secondOfDay(second, DATE_LEN + 1, false, lineNumber + 1) / SECONDS_PER_MINUTE;
+        int durationEnd = durationOffset;
+        while (durationEnd < secondLen && second[durationEnd] != DELIM) {
+            durationEnd++;
+        }
+        fields.duration = duration(second, durationOffset, durationEnd, lineNumber + 1);
+        fields.attendees = 1;
+        if (durationEnd < secondLen) {
+            fields.attendees = positiveInteger(second, durationEnd + 1, secondLen);
+            if (fields.attendees <= 0) {
+                throw new InvalidBookingRequestException("Attendees must be a positive integer", lineNumber + 1);
+            }
+        }
+    }
+
+    /**
+     * @return the code in the EmployeeDictionary of the employee id referenced by the parsed fields of the
+     * given submission line
+     */
+    static int employeeCode(final byte[] first, final Fields fields) {
+        return EmployeeDictionary.getInstance().intern(first, fields.employeeOffset, fields.employeeLength);
+    }
+
+    private static int trimTrailingDelims(final byte[] line, final int length) {
+        int len = length;
+        while (len > 0 && line[len - 1] == DELIM) {
+            len--;
+        }
+        return len;
+    }
+
+    /**
+     * yyyy-MM-dd
+     * @return the date as days since 1970-01-01
+     */
+    private static long epochDay(final byte[] line, final int offset, final long lineNumber) {
+        int year = digits(line, offset, 4);
+        int month = digits(line, offset + 5, 2);
+        int day = digits(line, offset + 8, 2);
+        if (year < 0 || month < 0 || day < 0 || line[offset + 4] != '-' || line[offset + 7] != '-') {
+            throw new InvalidBookingRequestException("Date must be in the format yyyy-MM-dd", lineNumber);
+        }
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            throw new InvalidBookingRequestException("Invalid date", lineNumber);
+        }
+        // same arithmetic as LocalDate.toEpochDay for a non negative year
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total -= isLeapYear(year) ? 1 : 2;
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    private static boolean isLeapYear(final int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(final int year, final int month) {
+        switch (month) {
+        case 2:
+            return isLeapYear(year) ? 29 : 28;
+        case 4:
+        case 6:
+        case 9:
+        case 11:
+            return 30;
+        default:
+            return 31;
+        }
+    }
+
+    /**
+     * HH:mm:ss or HH:mm
+     * @return the time as seconds from midnight
+     */
+    private static int secondOfDay(final byte[] line, final int offset, final boolean withSeconds,
+            final long lineNumber) {
+        int hour = digits(line, offset, 2);
+        int minute = digits(line, offset + 3, 2);
+        int second = withSeconds ? digits(line, offset + 6, 2) : 0;
+        boolean separators = line[offset + 2] == ':' && (!withSeconds || line[offset + 5] == ':');
+        if (hour < 0 || minute < 0 || second < 0 || !separators) {
+            throw new InvalidBookingRequestException(
+                    "Time must be in the format " + (withSeconds ? "HH:mm:ss" : "HH:mm"), lineNumber);
+        }
+        if (hour > 23 || minute > 59 || second > 59) {
+            throw new InvalidBookingRequestException("Invalid time", lineNumber);
+        }
+        return (hour * 60 + minute) * SECONDS_PER_MINUTE + second;
+    }
+
+    /**
+     * HHmm
+     */
+    private static LocalTime hours(final byte[] line, final int offset, final long lineNumber) {
+        int hour = digits(line, offset, 2);
+        int minute = digits(line, offset + 2, 2);
+        if (hour < 0 || minute < 0) {
+            throw new InvalidBookingRequestException("Office hours must be in the format HHmm", lineNumber);
+        }
+        try {
+            return LocalTime.of(hour, minute);
+        } catch (DateTimeException e) {
+            throw new InvalidBookingRequestException(e.getMessage(), lineNumber, e);
+        }
+    }
+
+    /**
+     * Space separated 'name:capacity' tokens running to the end of the line.
+     */
+    private static List<MeetingRoom> rooms(final byte[] line, final int offset, final int end,
+            final long lineNumber) {
+        List<MeetingRoom> rooms = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        int i = offset;
+        while (i < end) {
+            if (line[i] == DELIM) {
+                i++;
+                continue;
+            }
+            int start = i;
+            int colon = -1;
+            while (i < end && line[i] != DELIM) {
+                if (colon < 0 && line[i] == ':') {
+                    colon = i;
+                }
+                i++;
+            }
+            if (colon <= start || positiveInteger(line, colon + 1, i) <= 0) {
+                throw new InvalidBookingRequestException("Rooms must be in the format name:capacity", lineNumber);
+            }
+            String name = new String(line, start, colon - start, CHARSET);
+            if (!names.add(name)) {
+                throw new InvalidBookingRequestException("Duplicate room " + name, lineNumber);
+            }
+            rooms.add(new MeetingRoom(name, positiveInteger(line, colon + 1, i)));
+        }
+        return rooms;
+    }
+
+    private static int duration(final byte[] line, final int offset, final int end, final long lineNumber) {
+        int value = positiveInteger(line, offset, end);
+        if (value <= 0) {
+            throw new InvalidBookingRequestException("Duration must be a positive integer", lineNumber);
+        }
+        return value;
+    }
+
+    /**
+     * Optionally signed decimal integer in line[offset, end).
+     * @return the value or -1 if it is not a positive integer
+     */
+    private static int positiveInteger(final byte[] line, final int offset, final int end) {
+        int i = offset;
+        boolean negative = false;
+        if (i < end && (line[i] == '-' || line[i] == '+')) {
+            negative = line[i] == '-';
+            i++;
+        }
+        // nine digits always fit into an int
+        int value = (i == end || end - i > 9) ? -1 : digits(line, i, end - i);
+        return negative || value <= 0 ? -1 : value;
+    }
+
+    /**
+     * @return the value of the given number of ascii digits or -1 if any byte is not a digit.
+     */
+    private static int digits(final byte[] line, final int offset, final int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * The primitive fields of a booking request, the employee id is referenced by its position
+     * in the submission line.
+     */
+    static final class Fields {
+        long requestEpochDay;
+        int requestSecondOfDay;
+        int employeeOffset;
+        int employeeLength;
+        long meetingEpochDay;
+        int meetingStartMinute;
+        int duration;
+        int attendees;
+
+        long requestEpochSecond() {
+            return requestEpochDay * 24 * 60 * SECONDS_PER_MINUTE + requestSecondOfDay;
+        }
+    }
+}
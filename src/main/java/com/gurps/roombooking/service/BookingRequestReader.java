@@ -0,0 +1,312 @@
+package com.gurps.roombooking.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.BookingRequestStore;
+
+/**
+ * Streaming reader for booking input files.
+ *
+ * The reader does its own buffering on the raw byte stream and hands each pair of lines to
+ * the BookingRecordParser, so booking requests are returned one at a time without going through
+ * Scanner, String.split or DateTimeFormatter.
+ *
+ * Usage: call readHeader() once to get the batch (opening and closing time) and then next()
+ * until it returns null.
+ *
+ * A badly formatted request is reported with its line number and the byte offset of that line. In
+ * lenient mode next() skips it instead, logging its line number, and carries on with the next request.
+ * When the second line of a bad request looks like the first line of a request, as it does when a line
+ * is missing, that line starts the next request so the rest of the file is still read in pairs.
+ *
+ * Employee ids are interned into the EmployeeDictionary unless the reader is told not to, as a long
+ * running process reading ids from clients should be.
+ */
+public class BookingRequestReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_LINE_SIZE = 64;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    // the offset in the input of buffer[0]
+    private long bufferOffset;
+
+    // the two lines of the request currently being parsed, and their offsets in the input
+    private byte[][] lines = { new byte[INITIAL_LINE_SIZE], new byte[INITIAL_LINE_SIZE] };
+    private final long[] lineOffsets = new long[2];
+    // the length of a line kept in lines[0] to start the next request, -1 if there is none
+    private int carriedLength = -1;
+
+    private boolean lenient;
+    private boolean internEmployees = true;
+    private long skipped;
+
+    private final BookingRecordParser.Fields fields = new BookingRecordParser.Fields();
+
+    private long lineNumber;
+
+    public BookingRequestReader(final InputStream in) {
+        this(in, 0, 0);
+    }
+
+    /**
+     * For reading the rest of a file from part way through.
+     * @param linesBefore the number of lines of the file before the stream, so errors give the line
+     * number in the file
+     * @param bytesBefore the number of bytes of the file before the stream, so errors give the offset in the file
+     */
+    BookingRequestReader(final InputStream in, final long linesBefore, final long bytesBefore) {
+        this.in = in;
+        this.lineNumber = linesBefore;
+        this.bufferOffset = bytesBefore;
+    }
+
+    public BookingRequestReader(final Path path) throws IOException {
+        this(Files.newInputStream(path));
+    }
+
+    /**
+     * Reads the first line of the file i.e. the company operating hours.
+     * @return BookingRequestBatch without any booking requests or null if the input is empty
+     * @throws IOException
+     */
+    public BookingRequestBatch readHeader() throws IOException {
+        int length = readLine(0);
+        if (length < 0) {
+            return null;
+        }
+        try {
+            return BookingRecordParser.parseHeader(lines[0], length, lineNumber);
+        } catch (InvalidBookingRequestException e) {
+            throw located(e, lineNumber);
+        }
+    }
+
+    /**
+     * @param lenient true to skip badly formatted requests in next() rather than throw
+     */
+    public void setLenient(final boolean lenient) {
+        this.lenient = lenient;
+    }
+
+    /**
+     * @param internEmployees false to keep each request's employee id as a String of its own instead of
+     * interning it, so ids that are never seen again do not stay in the EmployeeDictionary
+     */
+    public void setInternEmployees(final boolean internEmployees) {
+        this.internEmployees = internEmployees;
+    }
+
+    /**
+     * @return the number of badly formatted requests skipped in lenient mode
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Reads the next pair of lines as a booking request.
+     * @return the next BookingRequest or null once the end of the input has been reached
+     * @throws IOException
+     * @throws InvalidBookingRequestException if the request is badly formatted
+     */
+    public BookingRequest next() throws IOException {
+        while (true) {
+            int firstLength = carriedLength >= 0 ? carriedLength : readLine(0);
+            carriedLength = -1;
+            if (firstLength < 0) {
+                return null;
+            }
+            long firstLineNumber = lineNumber;
+            int secondLength = readLine(1);
+            try {
+                if (secondLength < 0) {
+                    throw missingMeetingLine(firstLineNumber);
+                }
+                return BookingRecordParser.parseRequest(lines[0], firstLength, lines[1], secondLength,
+                        firstLineNumber, fields, internEmployees);
+            } catch (InvalidBookingRequestException e) {
+                InvalidBookingRequestException located = located(e, firstLineNumber);
+                if (!lenient) {
+                    throw located;
+                }
+                skipped++;
+                System.err.println("Skipping invalid request. " + located.getMessage());
+                if (secondLength >= 0 && looksLikeSubmission(lines[1], secondLength)) {
+                    carry(secondLength);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks the remaining requests are well formed without creating any objects, stopping at the first
+     * that is not.
+     * @return the number of requests checked
+     * @throws IOException
+     * @throws InvalidBookingRequestException for the first badly formatted request, with its byte offset
+     */
+    public long validate() throws IOException {
+        long count = 0;
+        int firstLength;
+        while ((firstLength = readLine(0)) >= 0) {
+            long firstLineNumber = lineNumber;
+            int secondLength = readLine(1);
+            if (secondLength < 0) {
+                throw missingMeetingLine(firstLineNumber);
+            }
+            try {
+                BookingRecordParser.parseFields(lines[0], firstLength, lines[1], secondLength, firstLineNumber,
+                        fields);
+            } catch (InvalidBookingRequestException e) {
+                throw located(e, firstLineNumber);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Reads all the remaining booking requests straight into the columnar store, without creating a
+     * BookingRequest per record.
+     * @param store the store to append the records to
+     * @return the number of records read
+     * @throws IOException
+     * @throws InvalidBookingRequestException if a request is badly formatted
+     */
+    public int readInto(final BookingRequestStore store) throws IOException {
+        int count = 0;
+        int firstLength;
+        while ((firstLength = readLine(0)) >= 0) {
+            long firstLineNumber = lineNumber;
+            int secondLength = readLine(1);
+            if (secondLength < 0) {
+                throw missingMeetingLine(firstLineNumber);
+            }
+            try {
+                BookingRecordParser.parseFields(lines[0], firstLength, lines[1], secondLength, firstLineNumber,
+                        fields);
+            } catch (InvalidBookingRequestException e) {
+                throw located(e, firstLineNumber);
+            }
+            store.add(fields.requestEpochSecond(), fields.meetingEpochDay, fields.meetingStartMinute,
+                    fields.duration, store.internEmployeeCode(BookingRecordParser.employeeCode(lines[0], fields)));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of lines read so far, i.e. the line number of the last line read.
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private InvalidBookingRequestException missingMeetingLine(final long firstLineNumber) {
+        return new InvalidBookingRequestException("Line must contain meeting date, start time and duration",
+                firstLineNumber + 1, bufferOffset + position, null);
+    }
+
+    /**
+     * @return the exception with the byte offset of the line it is for
+     */
+    private InvalidBookingRequestException located(final InvalidBookingRequestException e,
+            final long firstLineNumber) {
+        if (e.getByteOffset() >= 0) {
+            return e;
+        }
+        long offset = e.getLineNumber() == firstLineNumber ? lineOffsets[0] : lineOffsets[1];
+        InvalidBookingRequestException located = new InvalidBookingRequestException(e.getReason(),
+                e.getLineNumber(), offset, e.getCause());
+        located.setStackTrace(e.getStackTrace());
+        return located;
+    }
+
+    /**
+     * yyyy-MM-dd HH:mm:ss followed by something
+     */
+    private static boolean looksLikeSubmission(final byte[] line, final int length) {
+        return length > 20 && line[4] == '-' && line[10] == ' ' && line[13] == ':' && line[16] == ':'
+                && line[19] == ' ';
+    }
+
+    /**
+     * Keeps the second line read to be the first line of the next request.
+     */
+    private void carry(final int length) {
+        byte[] line = lines[0];
+        lines[0] = lines[1];
+        lines[1] = line;
+        lineOffsets[0] = lineOffsets[1];
+        carriedLength = length;
+    }
+
+    /**
+     * Copies the next line into lines[slot], growing it if needed.
+     * @return the length of the line without its terminator or -1 at the end of the input
+     */
+    private int readLine(final int slot) throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        lineOffsets[slot] = bufferOffset + position;
+        int length = 0;
+        while (true) {
+            int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            length = append(slot, length, start, position - start);
+            if (position < limit) {
+                position++; // consume the '\n'
+                break;
+            }
+            if (!fill()) {
+                break;
+            }
+        }
+        lineNumber++;
+        byte[] line = lines[slot];
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        return length;
+    }
+
+    private int append(final int slot, final int length, final int from, final int count) {
+        byte[] line = lines[slot];
+        if (length + count > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, length + count));
+            lines[slot] = line;
+        }
+        System.arraycopy(buffer, from, line, length, count);
+        return length + count;
+    }
+
+    private boolean fill() throws IOException {
+        bufferOffset += limit;
+        int read = in.read(buffer, 0, buffer.length);
+        while (read == 0) {
+            read = in.read(buffer, 0, buffer.length);
+        }
+        position = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+}
@@ -0,0 +1,36 @@
+package com.gurps.roombooking.service;
+
+/**
+ * A business rule on the meetings of each employee, checked on top of the room being free and the
+ * meeting being within office hours, such as a limit on the hours an employee books per day.
+ *
+ * The rule itself is immutable, so one rule can be shared by calculators running at once. Each
+ * calculation starts a Check of its own, which sees the requests in order of submission and keeps the
+ * running totals the rule needs, so a request is checked in constant time rather than by scanning the
+ * schedule built so far.
+ */
+public interface BookingRule {
+
+    /**
+     * @return the state of the rule for one calculation, with nothing accepted yet
+     */
+    Check start();
+
+    /**
+     * The state of a rule during one calculation. A meeting is given by its employee, which only needs
+     * to identify the employee within the calculation, its date as an epoch day, and its start and end
+     * as minutes from the start of that day, the end past 1440 if it runs past midnight.
+     */
+    interface Check {
+
+        /**
+         * @return true if the rule allows the meeting given the meetings accepted so far
+         */
+        boolean allows(int employee, long epochDay, int startMinute, int endMinute);
+
+        /**
+         * Counts a meeting that has been scheduled.
+         */
+        void accepted(int employee, long epochDay, int startMinute, int endMinute);
+    }
+}
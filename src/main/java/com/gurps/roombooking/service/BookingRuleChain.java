@@ -0,0 +1,84 @@
+package com.gurps.roombooking.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.EmployeeDictionary;
+
+/**
+ * The rules a calculator checks each request against, in order. A request is allowed only if every rule
+ * allows it, and once it is scheduled every rule counts it.
+ */
+public final class BookingRuleChain implements BookingRule {
+
+    /** no rules, so every request is allowed */
+    public static final BookingRuleChain NONE = new BookingRuleChain(Collections.<BookingRule> emptyList());
+
+    private final List<BookingRule> rules;
+
+    public BookingRuleChain(final List<BookingRule> rules) {
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+    }
+
+    public static BookingRuleChain of(final BookingRule... rules) {
+        return new BookingRuleChain(Arrays.asList(rules));
+    }
+
+    public List<BookingRule> getRules() {
+        return rules;
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    @Override
+    public Check start() {
+        Check[] checks = new Check[rules.size()];
+        for (int i = 0; i < checks.length; i++) {
+            checks[i] = rules.get(i).start();
+        }
+        return new Check() {
+            @Override
+            public boolean allows(final int employee, final long epochDay, final int startMinute,
+                    final int endMinute) {
+                for (Check check : checks) {
+                    if (!check.allows(employee, epochDay, startMinute, endMinute)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public void accepted(final int employee, final long epochDay, final int startMinute,
+                    final int endMinute) {
+                for (Check check : checks) {
+                    check.accepted(employee, epochDay, startMinute, endMinute);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return true if the check allows the booking, identifying its employee by the code in the
+     * EmployeeDictionary. The rules do not apply to a booking without an employee code, one without an
+     * employee id or whose id was not interned.
+     */
+    static boolean allows(final Check check, final BookingRequest booking) {
+        return booking.getEmployeeCode() == EmployeeDictionary.NO_EMPLOYEE
+                || check.allows(booking.getEmployeeCode(), booking.getMeetingEpochDay(),
+                        booking.getMeetingStartMinute(), booking.getMeetingEndMinute());
+    }
+
+    static void accepted(final Check check, final BookingRequest booking) {
+        if (booking.getEmployeeCode() == EmployeeDictionary.NO_EMPLOYEE) {
+            return;
+        }
+        check.accepted(booking.getEmployeeCode(), booking.getMeetingEpochDay(), booking.getMeetingStartMinute(),
+                booking.getMeetingEndMinute());
+    }
+}
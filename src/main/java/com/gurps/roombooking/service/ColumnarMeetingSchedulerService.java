@@ -0,0 +1,122 @@
+package com.gurps.roombooking.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
+
+import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.BookingRequestStore;
+import com.gurps.roombooking.service.SchedulerMetrics.Stage;
+
+/**
+ * Produces the same schedule as the MeetingSchedulerServiceImpl but keeps the booking requests in a
+ * columnar BookingRequestStore from parsing through to printing, so no BookingRequest objects are
+ * created for the records.
+ *
+ * The store holds a single room's schedule, so input with a room inventory is handed over to the
+ * MeetingSchedulerServiceImpl. A BinaryBookingFile is recognised by its magic number and scheduled from
+ * its memory mapped records without parsing.
+ */
+public class ColumnarMeetingSchedulerService implements MeetingSchedulerService {
+
+    private static final String ERROR_TXT = "INVALID INPUT";
+
+    private final String inputFilePath;
+    private final String outputFilePath;
+    private final boolean offHeap;
+
+    private final BasicCalculatorService calculatorService;
+    private final StreamingFilePrinterService printerService;
+    private final SchedulerMetrics metrics;
+
+    /**
+     * @param inputFilePath the input file path
+     * @param outputFilePath the output file path
+     * @param offHeap true to hold the records in a direct buffer rather than on the heap
+     */
+    public ColumnarMeetingSchedulerService(String inputFilePath, String outputFilePath, boolean offHeap) {
+        this(inputFilePath, outputFilePath, offHeap, new SchedulerMetrics());
+    }
+
+    /**
+     * @param inputFilePath the input file path
+     * @param outputFilePath the output file path
+     * @param offHeap true to hold the records in a direct buffer rather than on the heap
+     * @param metrics the metrics the calculator counts and reports the requests in, and the parse, calculate
+     * and print stages are timed in
+     */
+    public ColumnarMeetingSchedulerService(String inputFilePath, String outputFilePath, boolean offHeap,
+            SchedulerMetrics metrics) {
+        this.inputFilePath = inputFilePath;
+        this.outputFilePath = outputFilePath;
+        this.offHeap = offHeap;
+        this.calculatorService = new BasicCalculatorService(metrics);
+        this.printerService = new StreamingFilePrinterService(outputFilePath);
+        this.metrics = metrics;
+    }
+
+    public SchedulerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param rules the rules on each employee's meetings, none by default
+     */
+    public void setRules(BookingRuleChain rules) {
+        calculatorService.setRules(rules);
+    }
+
+    @Override
+    public void produceSchedule() {
+        System.out.println("Scheduling...");
+        try {
+            long start = System.nanoTime();
+            BookingRequestStore store = offHeap ? BookingRequestStore.offHeap(1024) : BookingRequestStore.onHeap();
+            int[] schedule = new int[0];
+            if (BinaryBookingFile.isBinary(Paths.get(this.inputFilePath))) {
+                BinaryBookingFile file = BinaryBookingFile.load(Paths.get(this.inputFilePath));
+                store = file.getStore();
+                metrics.recordStage(Stage.PARSE, System.nanoTime() - start, store.size());
+                start = System.nanoTime();
+                schedule = calculatorService.calculate(store, file.getOpeningTime(), file.getClosingTime());
+                metrics.recordStage(Stage.CALCULATE, System.nanoTime() - start, store.size());
+                print(store, schedule);
+                return;
+            }
+            try (BookingRequestReader reader = new BookingRequestReader(Paths.get(this.inputFilePath))) {
+                BookingRequestBatch batch = reader.readHeader();
+                if (batch != null && !batch.getRooms().isEmpty()) {
+                    MeetingSchedulerServiceImpl schedulerService = new MeetingSchedulerServiceImpl(inputFilePath,
+                            outputFilePath, new BasicCalculatorService(metrics), metrics);
+                    schedulerService.setRules(calculatorService.getRules());
+                    schedulerService.produceSchedule();
+                    return;
+                }
+                if (batch != null) {
+                    reader.readInto(store);
+                    metrics.recordStage(Stage.PARSE, System.nanoTime() - start, store.size());
+                    start = System.nanoTime();
+                    schedule = calculatorService.calculate(store, batch.getOpeningTime(), batch.getClosingTime());
+                    metrics.recordStage(Stage.CALCULATE, System.nanoTime() - start, store.size());
+                }
+            }
+            print(store, schedule);
+        } catch (IOException | IllegalArgumentException | DateTimeException e) {
+            e.printStackTrace();
+            try {
+                System.out.println("Writing on Error");
+                Files.write(Paths.get(this.outputFilePath), ERROR_TXT.getBytes());
+            } catch (Exception e2) {
+                e2.printStackTrace();
+                System.err.println("Unable to write error to file");
+            }
+        }
+    }
+
+    private void print(final BookingRequestStore store, final int[] schedule) throws IOException {
+        long start = System.nanoTime();
+        printerService.print(store, schedule);
+        metrics.recordStage(Stage.PRINT, System.nanoTime() - start, schedule.length);
+    }
+}
@@ -0,0 +1,338 @@
+package com.gurps.roombooking.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.FreeSlotIndex;
+import com.gurps.roombooking.domain.GapIndex;
+import com.gurps.roombooking.domain.ScheduledMeetingComparator;
+import com.gurps.roombooking.domain.TimeSlot;
+
+/**
+ * Thread safe schedule, locked per meeting date.
+ *
+ * Each meeting date has its own lock, so requests for different dates never contend and requests for the
+ * same date are applied one at a time. Within a date the BasicCalculatorService rules hold whatever order
+ * the requests arrive in: the date keeps its requests in chronological order of submission alongside the
+ * accepted meetings, and a request submitted before one already seen for the date has its meetings replayed,
+ * so the earliest submission wins.
+ *
+ * Of several requests with the same submission time only the first to arrive is considered, which for a
+ * single thread is the same as the batch calculation.
+ */
+public class ConcurrentScheduleStore {
+
+    private static final int MINUTES_PER_HOUR = 60;
+
+    private final LocalTime openingTime;
+    private final LocalTime closingTime;
+    private final int openingMinute;
+    private final int closingMinute;
+    /** the free time of a date without meetings, never booked */
+    private final GapIndex freeDay;
+
+    private final ConcurrentMap<LocalDate, Day> days = new ConcurrentHashMap<>();
+
+    private final Set<BookingRequest> submitted = ConcurrentHashMap.newKeySet();
+
+    private final SchedulerMetrics metrics;
+
+    /**
+     * @param openingTime the company opening time
+     * @param closingTime the company closing time
+     */
+    public ConcurrentScheduleStore(LocalTime openingTime, LocalTime closingTime) {
+        this(openingTime, closingTime, new SchedulerMetrics());
+    }
+
+    /**
+     * @param openingTime the company opening time
+     * @param closingTime the company closing time
+     * @param metrics the metrics to count the outcome of each request submitted in, which also say whether
+     * a line is printed per rejected request
+     */
+    public ConcurrentScheduleStore(LocalTime openingTime, LocalTime closingTime, SchedulerMetrics metrics) {
+        this.metrics = metrics;
+        this.openingTime = openingTime;
+        this.closingTime = closingTime;
+        this.openingMinute = minuteOfDay(openingTime);
+        this.closingMinute = minuteOfDay(closingTime);
+        this.freeDay = new GapIndex(openingMinute, closingMinute);
+    }
+
+    /**
+     * What became of a submitted request.
+     */
+    public enum Outcome {
+        ACCEPTED, CONFLICT, OUTSIDE_OFFICE_HOURS, DUPLICATE
+    }
+
+    /**
+     * @param booking the booking request
+     * @return true if the meeting is in the schedule, false if it was rejected. An accepted meeting can
+     * still be displaced later by a clashing request that was submitted before it.
+     */
+    public boolean submit(final BookingRequest booking) {
+        return offer(booking) == Outcome.ACCEPTED;
+    }
+
+    /**
+     * As submit, but tells why a request was rejected.
+     */
+    public Outcome offer(final BookingRequest booking) {
+        return report(booking, apply(booking));
+    }
+
+    /**
+     * As offer, for a request whose submission time has already been claimed.
+     * @param claimed what claim returned for the request, false if it is a duplicate
+     */
+    Outcome offerClaimed(final BookingRequest booking, final boolean claimed) {
+        return report(booking, claimed ? place(booking) : Outcome.DUPLICATE);
+    }
+
+    /**
+     * Counts the outcome of a request in the metrics, which report a rejection wherever they say.
+     */
+    private Outcome report(final BookingRequest booking, final Outcome outcome) {
+        switch (outcome) {
+        case ACCEPTED:
+            metrics.recordAccepted();
+            break;
+        case CONFLICT:
+            metrics.recordConflict(booking);
+            break;
+        case OUTSIDE_OFFICE_HOURS:
+            metrics.recordOutsideOfficeHours(booking);
+            break;
+        default:
+            metrics.recordDuplicate(booking);
+            break;
+        }
+        return outcome;
+    }
+
+    public SchedulerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Submits a request without logging its outcome, for replaying a journal.
+     */
+    Outcome apply(final BookingRequest booking) {
+        return claim(booking) ? place(booking) : Outcome.DUPLICATE;
+    }
+
+    /**
+     * Takes the request's submission time, so any other request with the same time is a duplicate. The
+     * BookingJournal claims a request before logging it, so the log holds the order duplicates were
+     * decided in.
+     * @return false if the submission time was already taken
+     */
+    boolean claim(final BookingRequest booking) {
+        return submitted.add(booking);
+    }
+
+    /**
+     * Gives back the submission time of a request that was claimed but never placed.
+     */
+    void unclaim(final BookingRequest booking) {
+        submitted.remove(booking);
+    }
+
+    /**
+     * Books a claimed request into its date.
+     */
+    private Outcome place(final BookingRequest booking) {
+        if (BasicCalculatorService.isOutsideOfficeHours(booking, openingTime, closingTime)) {
+            return Outcome.OUTSIDE_OFFICE_HOURS;
+        }
+
+        Day day = days.computeIfAbsent(booking.getMeetingDate(), date -> new Day(openingMinute, closingMinute));
+        synchronized (day) {
+            return day.add(booking) ? Outcome.ACCEPTED : Outcome.CONFLICT;
+        }
+    }
+
+    /**
+     * Puts back a request taken from a snapshot, with the place it had in the schedule. The requests of
+     * a date must be restored in order of submission and none of the scheduled ones may overlap.
+     */
+    void restore(final BookingRequest booking, final boolean scheduled) {
+        submitted.add(booking);
+        if (BasicCalculatorService.isOutsideOfficeHours(booking, openingTime, closingTime)) {
+            return;
+        }
+        Day day = days.computeIfAbsent(booking.getMeetingDate(), date -> new Day(openingMinute, closingMinute));
+        synchronized (day) {
+            day.requests.add(booking);
+            if (scheduled) {
+                day.meetings.add(booking);
+                day.gaps.book(booking.getMeetingStartMinute(), booking.getMeetingEndMinute());
+            }
+        }
+    }
+
+    /**
+     * @return every distinct request submitted so far, including those outside office hours, in
+     * chronological order of submission
+     */
+    List<BookingRequest> submissions() {
+        List<BookingRequest> submissions = new ArrayList<>(submitted);
+        Collections.sort(submissions);
+        return submissions;
+    }
+
+    /**
+     * @return a copy of the meetings accepted for the date in order of start time, empty if there are none
+     */
+    public SortedSet<BookingRequest> getSchedule(final LocalDate meetingDate) {
+        Day day = days.get(meetingDate);
+        if (day == null) {
+            return Collections.emptySortedSet();
+        }
+        synchronized (day) {
+            return new TreeSet<>(day.meetings);
+        }
+    }
+
+    /**
+     * @return a copy of the whole schedule, in the same form as ScheduleCalculatorService.calculate.
+     * Each date is consistent on its own, but requests for other dates may be taken while the copy is made.
+     */
+    public Map<LocalDate, SortedSet<BookingRequest>> getSchedule() {
+        Map<LocalDate, SortedSet<BookingRequest>> schedule = new TreeMap<>();
+        for (Entry<LocalDate, Day> day : days.entrySet()) {
+            synchronized (day.getValue()) {
+                if (!day.getValue().meetings.isEmpty()) {
+                    schedule.put(day.getKey(), new TreeSet<>(day.getValue().meetings));
+                }
+            }
+        }
+        return schedule;
+    }
+
+    /**
+     * @return the gaps between the meetings of the date within office hours, in order of time
+     */
+    public List<TimeSlot> getFreeSlots(final LocalDate meetingDate) {
+        Day day = days.get(meetingDate);
+        if (day == null) {
+            return freeDay.gaps();
+        }
+        synchronized (day) {
+            return day.gaps.gaps();
+        }
+    }
+
+    /**
+     * @param durationHours the length of the meeting to find room for
+     * @return the gaps between the meetings of the date within office hours that are at least the given
+     * number of hours long, in order of time. O(log meetings) plus the number of gaps returned.
+     * @throws IllegalArgumentException if the duration is not positive
+     */
+    public List<TimeSlot> findFreeSlots(final LocalDate meetingDate, final int durationHours) {
+        int minutes = FreeSlotIndex.minutes(durationHours);
+        Day day = days.get(meetingDate);
+        if (day == null) {
+            return freeDay.find(minutes);
+        }
+        synchronized (day) {
+            return day.gaps.find(minutes);
+        }
+    }
+
+    /**
+     * @param from the first date (inclusive)
+     * @param to the last date (inclusive)
+     * @param durationHours the length of the meeting to find room for
+     * @return each date of the range with room for the meeting against its gaps that are long enough.
+     * Each date is consistent on its own.
+     */
+    public SortedMap<LocalDate, List<TimeSlot>> findFreeSlots(final LocalDate from, final LocalDate to,
+            final int durationHours) {
+        SortedMap<LocalDate, List<TimeSlot>> slots = new TreeMap<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            List<TimeSlot> day = findFreeSlots(date, durationHours);
+            if (!day.isEmpty()) {
+                slots.put(date, day);
+            }
+        }
+        return slots;
+    }
+
+    public LocalTime getOpeningTime() {
+        return openingTime;
+    }
+
+    public LocalTime getClosingTime() {
+        return closingTime;
+    }
+
+    private static int minuteOfDay(final LocalTime time) {
+        return time.getHour() * MINUTES_PER_HOUR + time.getMinute();
+    }
+
+    /**
+     * The requests for a meeting date that are within office hours, the meetings accepted from them and
+     * the free time left around the meetings. Guarded by its own monitor.
+     */
+    private static final class Day {
+        private final int openingMinute;
+        private final int closingMinute;
+        private final TreeSet<BookingRequest> requests = new TreeSet<>();
+        private SortedSet<BookingRequest> meetings = new TreeSet<>(new ScheduledMeetingComparator());
+        private GapIndex gaps;
+
+        private Day(final int openingMinute, final int closingMinute) {
+            this.openingMinute = openingMinute;
+            this.closingMinute = closingMinute;
+            this.gaps = new GapIndex(openingMinute, closingMinute);
+        }
+
+        /**
+         * @return true if the booking is among the date's meetings once it has been added
+         */
+        private boolean add(final BookingRequest booking) {
+            boolean latest = requests.isEmpty() || requests.last().compareTo(booking) < 0;
+            requests.add(booking);
+            if (latest) {
+                if (!meetings.add(booking)) {
+                    return false;
+                }
+                gaps.book(booking.getMeetingStartMinute(), booking.getMeetingEndMinute());
+                return true;
+            }
+            rebuild();
+            // the meeting, if any, that took the booking's slot
+            SortedSet<BookingRequest> slot = meetings.tailSet(booking);
+            return !slot.isEmpty() && slot.first() == booking;
+        }
+
+        /**
+         * Replays the date's requests in order of submission, which is what the batch calculation does.
+         */
+        private void rebuild() {
+            meetings = new TreeSet<>(new ScheduledMeetingComparator());
+            gaps = new GapIndex(openingMinute, closingMinute);
+            for (BookingRequest request : requests) {
+                if (meetings.add(request)) {
+                    gaps.book(request.getMeetingStartMinute(), request.getMeetingEndMinute());
+                }
+            }
+        }
+    }
+}
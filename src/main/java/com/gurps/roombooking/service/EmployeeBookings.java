@@ -0,0 +1,136 @@
+package com.gurps.roombooking.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.EmployeeDictionary;
+import com.gurps.roombooking.domain.MeetingRoom;
+
+/**
+ * The number of meetings and hours booked per employee in a schedule.
+ *
+ * The totals are kept in arrays indexed by the employee's code in the EmployeeDictionary, so counting a
+ * meeting is two array updates with no lookup of the employee id. Not thread safe.
+ */
+public class EmployeeBookings {
+
+    private int[] bookings = new int[0];
+    private long[] hours = new long[0];
+
+    /**
+     * @param schedule the meetings scheduled on each day
+     */
+    public static EmployeeBookings of(final Map<LocalDate, ? extends Collection<BookingRequest>> schedule) {
+        EmployeeBookings employeeBookings = new EmployeeBookings();
+        for (Collection<BookingRequest> meetings : schedule.values()) {
+            employeeBookings.addAll(meetings);
+        }
+        return employeeBookings;
+    }
+
+    /**
+     * @param schedule the meetings scheduled in each room on each day
+     */
+    public static EmployeeBookings ofRooms(final Map<LocalDate, Map<MeetingRoom, SortedSet<BookingRequest>>> schedule) {
+        EmployeeBookings employeeBookings = new EmployeeBookings();
+        for (Map<MeetingRoom, SortedSet<BookingRequest>> rooms : schedule.values()) {
+            for (SortedSet<BookingRequest> meetings : rooms.values()) {
+                employeeBookings.addAll(meetings);
+            }
+        }
+        return employeeBookings;
+    }
+
+    public void addAll(final Collection<BookingRequest> meetings) {
+        for (BookingRequest meeting : meetings) {
+            add(meeting);
+        }
+    }
+
+    /**
+     * Counts a scheduled meeting. Meetings without an employee code, those without an employee id or
+     * whose id was not interned, are not counted.
+     */
+    public void add(final BookingRequest meeting) {
+        int code = meeting.getEmployeeCode();
+        if (code == EmployeeDictionary.NO_EMPLOYEE) {
+            return;
+        }
+        if (code >= bookings.length) {
+            int length = Math.max(code + 1, Math.max(2 * bookings.length, EmployeeDictionary.getInstance().size()));
+            bookings = Arrays.copyOf(bookings, length);
+            hours = Arrays.copyOf(hours, length);
+        }
+        bookings[code]++;
+        hours[code] += meeting.getMeetingDuration();
+    }
+
+    /**
+     * @param employeeCode the code of the employee id in the EmployeeDictionary
+     */
+    public int getBookings(final int employeeCode) {
+        return employeeCode >= 0 && employeeCode < bookings.length ? bookings[employeeCode] : 0;
+    }
+
+    public int getBookings(final String employeeId) {
+        return getBookings(EmployeeDictionary.getInstance().lookup(employeeId));
+    }
+
+    /**
+     * @param employeeCode the code of the employee id in the EmployeeDictionary
+     */
+    public long getHoursBooked(final int employeeCode) {
+        return employeeCode >= 0 && employeeCode < hours.length ? hours[employeeCode] : 0;
+    }
+
+    public long getHoursBooked(final String employeeId) {
+        return getHoursBooked(EmployeeDictionary.getInstance().lookup(employeeId));
+    }
+
+    /**
+     * @return the codes of the employees with at least one meeting, most hours booked first and then in
+     * order of employee id
+     */
+    public int[] getEmployeeCodes() {
+        EmployeeDictionary employees = EmployeeDictionary.getInstance();
+        List<Integer> codes = new ArrayList<>();
+        for (int code = 0; code < bookings.length; code++) {
+            if (bookings[code] > 0) {
+                codes.add(code);
+            }
+        }
+        codes.sort(Comparator.<Integer> comparingLong(code -> -hours[code])
+                .thenComparing(code -> employees.decode(code)));
+        return codes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Writes a line 'employee meetings hours' for each employee with at least one meeting, most hours
+     * booked first.
+     */
+    public void write(final Path file) throws IOException {
+        EmployeeDictionary employees = EmployeeDictionary.getInstance();
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int code : getEmployeeCodes()) {
+                writer.write(employees.decode(code));
+                writer.write(' ');
+                writer.write(Integer.toString(bookings[code]));
+                writer.write(' ');
+                writer.write(Long.toString(hours[code]));
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -20,19 +20,31 @@ import com.gurps.roombooking.domain.BookingRequest;
 public class FilePrinterServiceImpl implements SchedulePrinterService{
 
     private String outputFilePath;
+    private SchedulerMetrics metrics;
     
     private static final String OUT_FILE_DELIM = " ";
     
     public FilePrinterServiceImpl(String outputFilePath){
+     this(outputFilePath, new SchedulerMetrics());
+    }
+    
+    /**
+     * @param metrics the metrics to time the printing in
+     */
+    public FilePrinterServiceImpl(String outputFilePath, SchedulerMetrics metrics){
      this.outputFilePath = outputFilePath;
+     this.metrics = metrics;
     }
     
     @Override
     /**
      * @Param bookings All the successful booking requests
-     * Formats the bookings and prints to a file. 
+     * Formats the bookings and prints to a file. The requests mostly carry employee codes, which are only
+     * turned back into ids here.
      */
     public void print(Map<LocalDate, SortedSet<BookingRequest>> bookings) throws IOException {
+        long start = System.nanoTime();
+        long meetings = 0;
         StringBuilder outputBuilder = new StringBuilder();
         Set<Entry<LocalDate, SortedSet<BookingRequest>>> entries = bookings.entrySet();
         Iterator<Entry<LocalDate, SortedSet<BookingRequest>>> meetingDaysIterator = entries.iterator();
@@ -44,6 +56,7 @@ public class FilePrinterServiceImpl implements SchedulePrinterService{
             Iterator<BookingRequest> it = entry.getValue().iterator();
             while(it.hasNext()){
                 BookingRequest bookingRequest = it.next();
+                meetings++;
                 outputBuilder.append(bookingRequest.getMeetingStartTime())
                               .append(OUT_FILE_DELIM)
                               .append(bookingRequest.getMeetingEndDateTime().toLocalTime())
@@ -59,6 +72,7 @@ public class FilePrinterServiceImpl implements SchedulePrinterService{
         }
         Files.createDirectories(Paths.get(outputFilePath).getParent()); //create directory structure if not already present
         Files.write(Paths.get(outputFilePath), outputBuilder.toString().getBytes());
+        metrics.recordStage(SchedulerMetrics.Stage.PRINT, System.nanoTime() - start, meetings);
     }
 
 }
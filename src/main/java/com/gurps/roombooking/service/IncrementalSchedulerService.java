@@ -0,0 +1,185 @@
+package com.gurps.roombooking.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.TimeSlot;
+
+/**
+ * Keeps the accepted schedule in memory and takes booking requests one at a time, as they arrive.
+ *
+ * The schedule is always the same as the BasicCalculatorService would produce for all the requests
+ * submitted so far. A request submitted after every other request for its date, the usual case, is
+ * checked against that date's meetings in O(log meetings). A request that arrives late, i.e. was submitted
+ * before a request already seen for the same date, takes precedence over it, so only that date's meetings
+ * are rebuilt from its requests.
+ *
+ * The schedule is held in a ConcurrentScheduleStore, so requests can be submitted from several threads
+ * and only contend when they are for the same date. A service opened on a journal directory logs every
+ * request to a BookingJournal before submit returns, and picks up where it left off when opened again.
+ */
+public class IncrementalSchedulerService implements MeetingSchedulerService, Closeable {
+
+    private final ConcurrentScheduleStore schedule;
+    private final BookingJournal journal;
+    private final String outputFilePath;
+
+    /**
+     * @param openingTime the company opening time
+     * @param closingTime the company closing time
+     * @param outputFilePath the file produceSchedule writes the current schedule to
+     */
+    public IncrementalSchedulerService(LocalTime openingTime, LocalTime closingTime, String outputFilePath) {
+        this(new ConcurrentScheduleStore(openingTime, closingTime), null, outputFilePath);
+    }
+
+    private IncrementalSchedulerService(ConcurrentScheduleStore schedule, BookingJournal journal,
+            String outputFilePath) {
+        this.schedule = schedule;
+        this.journal = journal;
+        this.outputFilePath = outputFilePath;
+    }
+
+    /**
+     * Creates a service holding the schedule for the requests of the given input file.
+     * @param inputFilePath the input file path
+     * @param outputFilePath the file produceSchedule writes the current schedule to
+     * @return the service or null if the input file is empty
+     * @throws IOException
+     * @throws InvalidBookingRequestException if a request in the file is badly formatted
+     */
+    public static IncrementalSchedulerService load(String inputFilePath, String outputFilePath) throws IOException {
+        try (BookingRequestReader reader = new BookingRequestReader(Paths.get(inputFilePath))) {
+            BookingRequestBatch batch = reader.readHeader();
+            if (batch == null) {
+                return null;
+            }
+            IncrementalSchedulerService service = new IncrementalSchedulerService(batch.getOpeningTime(),
+                    batch.getClosingTime(), outputFilePath);
+            BookingRequest bookingRequest;
+            while ((bookingRequest = reader.next()) != null) {
+                service.submit(bookingRequest);
+            }
+            return service;
+        }
+    }
+
+    /**
+     * Creates a service whose requests are journaled in the given directory. If the directory already
+     * holds a journal the schedule is recovered from it and the input file is not read, otherwise the
+     * service is loaded from the input file and a journal started with its schedule.
+     * @param journalDirectory the directory of the journal
+     * @param inputFilePath the input file path, read only when there is no journal yet
+     * @param outputFilePath the file produceSchedule writes the current schedule to
+     * @return the service or null if there is no journal and the input file is empty
+     * @throws IOException
+     * @throws InvalidBookingRequestException if a request in the file is badly formatted
+     */
+    public static IncrementalSchedulerService open(Path journalDirectory, String inputFilePath,
+            String outputFilePath) throws IOException {
+        BookingJournal journal;
+        if (BookingJournal.exists(journalDirectory)) {
+            journal = BookingJournal.recover(journalDirectory, BookingJournal.DEFAULT_SNAPSHOT_INTERVAL);
+        } else {
+            IncrementalSchedulerService loaded = load(inputFilePath, outputFilePath);
+            if (loaded == null) {
+                return null;
+            }
+            journal = BookingJournal.create(journalDirectory, loaded.schedule,
+                    BookingJournal.DEFAULT_SNAPSHOT_INTERVAL);
+        }
+        return new IncrementalSchedulerService(journal.getStore(), journal, outputFilePath);
+    }
+
+    /**
+     * @param booking the booking request
+     * @return true if the meeting is in the schedule, false if it was rejected. An accepted meeting can
+     * still be displaced later by a clashing request that was submitted before it.
+     * @throws UncheckedIOException if the journal cannot be written
+     */
+    public boolean submit(final BookingRequest booking) {
+        if (journal == null) {
+            return schedule.submit(booking);
+        }
+        try {
+            return journal.submit(booking) == ConcurrentScheduleStore.Outcome.ACCEPTED;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the meetings accepted for the date in order of start time, empty if there are none
+     */
+    public SortedSet<BookingRequest> getSchedule(final LocalDate meetingDate) {
+        return Collections.unmodifiableSortedSet(schedule.getSchedule(meetingDate));
+    }
+
+    /**
+     * @return the gaps between the meetings of the date within office hours, in order of time
+     */
+    public List<TimeSlot> getFreeSlots(final LocalDate meetingDate) {
+        return schedule.getFreeSlots(meetingDate);
+    }
+
+    /**
+     * @param durationHours the length of the meeting to find room for
+     * @return the gaps of the date within office hours at least the given number of hours long, in order of time
+     * @throws IllegalArgumentException if the duration is not positive
+     */
+    public List<TimeSlot> findFreeSlots(final LocalDate meetingDate, final int durationHours) {
+        return schedule.findFreeSlots(meetingDate, durationHours);
+    }
+
+    /**
+     * @return each date from the first to the last, inclusive, with room for the meeting against its gaps
+     * that are long enough
+     * @throws IllegalArgumentException if the duration is not positive
+     */
+    public SortedMap<LocalDate, List<TimeSlot>> findFreeSlots(final LocalDate from, final LocalDate to,
+            final int durationHours) {
+        return schedule.findFreeSlots(from, to, durationHours);
+    }
+
+    /**
+     * @return a copy of the whole schedule, in the same form as ScheduleCalculatorService.calculate
+     */
+    public Map<LocalDate, SortedSet<BookingRequest>> getSchedule() {
+        return schedule.getSchedule();
+    }
+
+    /**
+     * Writes the current schedule to the output file.
+     */
+    @Override
+    public void produceSchedule() {
+        try {
+            new StreamingFilePrinterService(outputFilePath).print(getSchedule());
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("Unable to write schedule to file");
+        }
+    }
+
+    /**
+     * Closes the journal, if there is one, once every request logged is on disk.
+     */
+    @Override
+    public void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.gurps.roombooking.service;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.MeetingIntervalIndex;
+import com.gurps.roombooking.domain.ScheduledMeetingComparator;
+
+/**
+ * Applies the same business rules as the BasicCalculatorService but detects clashes with a per day
+ * MeetingIntervalIndex instead of relying on a TreeSet whose comparator treats overlapping meetings
+ * as equal.
+ */
+public class IntervalCalculatorService implements ScheduleCalculatorService {
+
+    private final SchedulerMetrics metrics;
+    private BookingRuleChain rules = BookingRuleChain.NONE;
+
+    public IntervalCalculatorService() {
+        this(new SchedulerMetrics());
+    }
+
+    /**
+     * @param metrics the metrics to count accepted and rejected requests in, which also say whether a
+     * line is printed per rejected request
+     */
+    public IntervalCalculatorService(final SchedulerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public SchedulerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param rules checked after the office hours and before the room is booked, none by default
+     */
+    @Override
+    public void setRules(final BookingRuleChain rules) {
+        this.rules = rules;
+    }
+
+    public BookingRuleChain getRules() {
+        return rules;
+    }
+
+    @Override
+    /**
+     * @param batch the BookingRequestBatch consisting of individual submissions
+     * @return Map consisting of meeting date against a set of BookingRequests ordered by meeting start time
+     *
+     * Booking requests outside office hours, breaking one of the rules on their employee's meetings or
+     * clashing with an earlier submission are skipped.
+     */
+    public Map<LocalDate, SortedSet<BookingRequest>> calculate(final BookingRequestBatch batch) {
+
+        System.out.println("....calculating output ....");
+
+        Map<LocalDate, MeetingIntervalIndex> index = calculateIndex(batch);
+
+        Map<LocalDate, SortedSet<BookingRequest>> meetingsSchedule = new TreeMap<>();
+        for (Entry<LocalDate, MeetingIntervalIndex> day : index.entrySet()) {
+            SortedSet<BookingRequest> meetings = new TreeSet<>(new ScheduledMeetingComparator());
+            meetings.addAll(day.getValue().meetings());
+            meetingsSchedule.put(day.getKey(), meetings);
+        }
+        return meetingsSchedule;
+    }
+
+    /**
+     * @param batch the BookingRequestBatch consisting of individual submissions
+     * @return the interval index of the accepted meetings for every meeting date, which can be
+     * used for range queries on the schedule.
+     */
+    public Map<LocalDate, MeetingIntervalIndex> calculateIndex(final BookingRequestBatch batch) {
+        Map<LocalDate, MeetingIntervalIndex> index = new TreeMap<>();
+        if (batch != null) {
+            BookingRule.Check check = rules.start();
+            for (BookingRequest booking : batch.getBookingRequests()) {
+                if (BasicCalculatorService.isOutsideOfficeHours(booking, batch.getOpeningTime(),
+                        batch.getClosingTime())) {
+                    metrics.recordOutsideOfficeHours(booking);
+                } else if (!BookingRuleChain.allows(check, booking)) {
+                    metrics.recordRuleViolation(booking);
+                } else {
+                    MeetingIntervalIndex meetings = index.get(booking.getMeetingDate());
+                    if (meetings == null) {
+                        meetings = new MeetingIntervalIndex();
+                        index.put(booking.getMeetingDate(), meetings);
+                    }
+                    if (meetings.add(booking)) {
+                        metrics.recordAccepted();
+                        BookingRuleChain.accepted(check, booking);
+                    } else {
+                        metrics.recordConflict(booking);
+                    }
+                }
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,52 @@
+package com.gurps.roombooking.service;
+
+/**
+ * Thrown when a line of the booking input file does not match the expected format.
+ * Carries the 1-based line number of the offending line so the bad record can be located
+ * without re-reading the file, and its byte offset in the file when the reader knows it.
+ */
+public class InvalidBookingRequestException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long lineNumber;
+    private final long byteOffset;
+    private final String reason;
+
+    public InvalidBookingRequestException(final String message, final long lineNumber) {
+        this(message, lineNumber, null);
+    }
+
+    public InvalidBookingRequestException(final String message, final long lineNumber, final Throwable cause) {
+        this(message, lineNumber, -1, cause);
+    }
+
+    /**
+     * @param byteOffset the offset of the start of the line in the file, -1 if not known
+     */
+    public InvalidBookingRequestException(final String message, final long lineNumber, final long byteOffset,
+            final Throwable cause) {
+        super("Line " + lineNumber + (byteOffset < 0 ? "" : " (byte " + byteOffset + ")") + ": " + message, cause);
+        this.lineNumber = lineNumber;
+        this.byteOffset = byteOffset;
+        this.reason = message;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return the offset of the start of the offending line in the file, -1 if not known
+     */
+    public long getByteOffset() {
+        return byteOffset;
+    }
+
+    /**
+     * @return what is wrong with the line, without its position
+     */
+    public String getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,372 @@
+package com.gurps.roombooking.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.SubmissionOrderedRequests;
+
+/**
+ * Reads a booking input file by memory mapping it and parsing chunks of it in parallel
+ * on a fork-join pool.
+ *
+ * The file is processed in two parallel passes:
+ * 1. the newlines of each raw chunk are counted, which gives the line number at every chunk boundary.
+ * 2. each boundary is moved forward to the start of the next booking request (an odd 0-based line, since
+ *    line 0 is the header) and the record aligned chunks are parsed.
+ *
+ * The partial results are merged in file order, so the batch produced, including which request wins when
+ * two share a submission time and which error is reported for a bad file, is the same as for the sequential
+ * BookingRequestReader.
+ */
+public class MappedBookingFileReader {
+
+    private static final long DEFAULT_CHUNK_SIZE = 16L * 1024 * 1024;
+    private static final int INITIAL_LINE_SIZE = 64;
+    private static final int PROBE_SIZE = 256;
+
+    private final ForkJoinPool pool;
+    private final long chunkSize;
+
+    public MappedBookingFileReader() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param pool the pool to parse the chunks on
+     * @param chunkSize the target number of bytes per chunk, must be less than Integer.MAX_VALUE
+     */
+    public MappedBookingFileReader(final ForkJoinPool pool, final long chunkSize) {
+        if (chunkSize <= 0 || chunkSize >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("chunk size must be between 1 and " + Integer.MAX_VALUE);
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param path the input file
+     * @return a booking request batch or null if the file is empty
+     * @throws IOException
+     * @throws InvalidBookingRequestException if any request is badly formatted
+     */
+    public BookingRequestBatch read(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return null;
+            }
+
+            long headerEnd = nextLineStart(channel, 0, size);
+            byte[] header = new byte[(int) Math.min(headerEnd, Integer.MAX_VALUE)];
+            readFully(channel, ByteBuffer.wrap(header), 0);
+            BookingRequestBatch batch;
+            try {
+                batch = BookingRecordParser.parseHeader(header, lineLength(header, header.length), 1);
+            } catch (InvalidBookingRequestException e) {
+                throw located(e, 1, 0, 0);
+            }
+
+            List<BookingRequest> bookingRequests = new ArrayList<>();
+            for (List<BookingRequest> chunk : parseBody(channel, headerEnd, size)) {
+                bookingRequests.addAll(chunk);
+            }
+            batch.setBookingRequests(SubmissionOrderedRequests.of(bookingRequests));
+            return batch;
+        }
+    }
+
+    private List<List<BookingRequest>> parseBody(final FileChannel channel, final long bodyStart, final long size)
+            throws IOException {
+        int chunks = (int) Math.max(1, (size - bodyStart + chunkSize - 1) / chunkSize);
+        long[] rawBoundaries = new long[chunks + 1];
+        for (int i = 0; i < chunks; i++) {
+            rawBoundaries[i] = bodyStart + i * chunkSize;
+        }
+        rawBoundaries[chunks] = size;
+
+        // pass 1 - newlines before each raw boundary
+        List<NewlineCountTask> countTasks = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            countTasks.add(new NewlineCountTask(channel, rawBoundaries[i], rawBoundaries[i + 1]));
+        }
+        invokeAll(countTasks);
+        long[] linesBefore = new long[chunks + 1];
+        linesBefore[0] = 1; // the header line
+        for (int i = 0; i < chunks; i++) {
+            linesBefore[i + 1] = linesBefore[i] + countTasks.get(i).join();
+        }
+
+        // pass 2 - align boundaries on booking requests and parse
+        long[] starts = new long[chunks + 1];
+        long[] startLines = new long[chunks + 1];
+        starts[0] = bodyStart;
+        startLines[0] = 1;
+        for (int i = 1; i < chunks; i++) {
+            long start = rawBoundaries[i];
+            long line = linesBefore[i];
+            if (!isLineStart(channel, start)) {
+                start = nextLineStart(channel, start, size);
+                line++;
+            }
+            if (line % 2 == 0 && start < size) {
+                // the second line of a request, skip to the next one
+                start = nextLineStart(channel, start, size);
+                line++;
+            }
+            starts[i] = Math.max(start, starts[i - 1]);
+            startLines[i] = start < starts[i - 1] ? startLines[i - 1] : line;
+        }
+        starts[chunks] = size;
+
+        List<ParseTask> parseTasks = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            parseTasks.add(new ParseTask(channel, starts[i], starts[i + 1], startLines[i] + 1));
+        }
+        invokeAll(parseTasks);
+
+        List<List<BookingRequest>> results = new ArrayList<>(chunks);
+        for (ParseTask task : parseTasks) {
+            ParsedChunk chunk = task.join();
+            if (chunk.error != null) {
+                throw chunk.error;
+            }
+            results.add(chunk.requests);
+        }
+        return results;
+    }
+
+    private void invokeAll(final List<? extends ForkJoinTask<?>> tasks) throws IOException {
+        try {
+            pool.invoke(new InvokeAllTask(tasks));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @return the exception with the byte offset of the line it is for, as {@link BookingRequestReader} reports it
+     */
+    private static InvalidBookingRequestException located(final InvalidBookingRequestException e,
+            final long firstLineNumber, final long firstOffset, final long secondOffset) {
+        if (e.getByteOffset() >= 0) {
+            return e;
+        }
+        long offset = e.getLineNumber() == firstLineNumber ? firstOffset : secondOffset;
+        InvalidBookingRequestException located = new InvalidBookingRequestException(e.getReason(),
+                e.getLineNumber(), offset, e.getCause());
+        located.setStackTrace(e.getStackTrace());
+        return located;
+    }
+
+    private static boolean isLineStart(final FileChannel channel, final long position) throws IOException {
+        ByteBuffer previous = ByteBuffer.allocate(1);
+        readFully(channel, previous, position - 1);
+        return previous.get(0) == '\n';
+    }
+
+    /**
+     * @return the offset just after the next '\n' at or after position, or the file size if there is none.
+     */
+    private static long nextLineStart(final FileChannel channel, final long position, final long size)
+            throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+        long offset = position;
+        while (offset < size) {
+            probe.clear();
+            int read = channel.read(probe, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+            throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                break;
+            }
+            offset += read;
+        }
+    }
+
+    private static int lineLength(final byte[] line, final int length) {
+        int len = length;
+        if (len > 0 && line[len - 1] == '\n') {
+            len--;
+        }
+        if (len > 0 && line[len - 1] == '\r') {
+            len--;
+        }
+        return len;
+    }
+
+    private static MappedByteBuffer map(final FileChannel channel, final long start, final long end) {
+        try {
+            return channel.map(MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Counts the newlines in a raw chunk of the file.
+     */
+    private static class NewlineCountTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient FileChannel channel;
+        private final long start;
+        private final long end;
+
+        NewlineCountTask(final FileChannel channel, final long start, final long end) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Long compute() {
+            MappedByteBuffer buffer = map(channel, start, end);
+            long count = 0;
+            int limit = buffer.limit();
+            for (int i = 0; i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Parses the booking requests of a record aligned chunk of the file. Parsing stops at the
+     * first bad request which is kept so that errors are reported in file order.
+     */
+    private static class ParseTask extends RecursiveTask<ParsedChunk> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient FileChannel channel;
+        private final long start;
+        private final long end;
+        private final long firstLineNumber;
+
+        ParseTask(final FileChannel channel, final long start, final long end, final long firstLineNumber) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.firstLineNumber = firstLineNumber;
+        }
+
+        @Override
+        protected ParsedChunk compute() {
+            ParsedChunk chunk = new ParsedChunk();
+            if (end <= start) {
+                return chunk;
+            }
+            MappedByteBuffer buffer = map(channel, start, end);
+            byte[][] lines = { new byte[INITIAL_LINE_SIZE], new byte[INITIAL_LINE_SIZE] };
+            int[] lengths = new int[2];
+            BookingRecordParser.Fields fields = new BookingRecordParser.Fields();
+            long lineNumber = firstLineNumber;
+            int position = 0;
+            int limit = buffer.limit();
+            while (position < limit) {
+                long firstOffset = start + position;
+                position = copyLine(buffer, position, limit, lines, lengths, 0);
+                if (position == limit) {
+                    chunk.error = new InvalidBookingRequestException(
+                            "Line must contain meeting date, start time and duration", lineNumber + 1,
+                            start + limit, null);
+                    break;
+                }
+                long secondOffset = start + position;
+                position = copyLine(buffer, position, limit, lines, lengths, 1);
+                try {
+                    chunk.requests.add(BookingRecordParser.parseRequest(lines[0], lengths[0], lines[1],
+                            lengths[1], lineNumber, fields, true));
+                } catch (InvalidBookingRequestException e) {
+                    chunk.error = located(e, lineNumber, firstOffset, secondOffset);
+                    break;
+                }
+                lineNumber += 2;
+            }
+            return chunk;
+        }
+
+        /**
+         * Copies the line starting at position into lines[slot] and stores its length without the
+         * terminator in lengths[slot].
+         * @return the position of the next line
+         */
+        private static int copyLine(final ByteBuffer buffer, final int position, final int limit,
+                final byte[][] lines, final int[] lengths, final int slot) {
+            int end = position;
+            while (end < limit && buffer.get(end) != '\n') {
+                end++;
+            }
+            int length = end - position;
+            if (lines[slot].length < length) {
+                lines[slot] = Arrays.copyOf(lines[slot], Math.max(lines[slot].length * 2, length));
+            }
+            ByteBuffer line = buffer.duplicate();
+            line.position(position);
+            line.get(lines[slot], 0, length);
+            if (length > 0 && lines[slot][length - 1] == '\r') {
+                length--;
+            }
+            lengths[slot] = length;
+            return end < limit ? end + 1 : limit;
+        }
+    }
+
+    private static class ParsedChunk {
+        private final List<BookingRequest> requests = new ArrayList<>();
+        private InvalidBookingRequestException error;
+    }
+
+    /**
+     * Forks all the given tasks from inside the pool and waits for them to complete.
+     */
+    private static class InvokeAllTask extends RecursiveTask<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<? extends ForkJoinTask<?>> tasks;
+
+        InvokeAllTask(final List<? extends ForkJoinTask<?>> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected Void compute() {
+            invokeAll(tasks);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.gurps.roombooking.service;
+
+import com.gurps.roombooking.domain.LongLongHashMap;
+
+/**
+ * Limits the hours each employee can book per day, or per week from Monday to Sunday, by the date of the
+ * meetings. A request that would take its employee over the limit is rejected.
+ */
+public class MaxHoursRule implements BookingRule {
+
+    public enum Period {
+        DAY, WEEK
+    }
+
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final int DAYS_PER_WEEK = 7;
+    /** 1970-01-01 was a Thursday, three days after the Monday that starts its week */
+    private static final int DAYS_FROM_MONDAY_TO_EPOCH = 3;
+
+    private final int maxHours;
+    private final Period period;
+
+    /**
+     * @param maxHours the most hours an employee can book in a period
+     */
+    public MaxHoursRule(final int maxHours, final Period period) {
+        if (maxHours <= 0) {
+            throw new IllegalArgumentException("maximum hours must be positive");
+        }
+        this.maxHours = maxHours;
+        this.period = period;
+    }
+
+    public int getMaxHours() {
+        return maxHours;
+    }
+
+    public Period getPeriod() {
+        return period;
+    }
+
+    @Override
+    public Check start() {
+        int maxMinutes = maxHours * MINUTES_PER_HOUR;
+        // minutes booked, keyed by period and employee
+        LongLongHashMap booked = new LongLongHashMap();
+        return new Check() {
+            @Override
+            public boolean allows(final int employee, final long epochDay, final int startMinute,
+                    final int endMinute) {
+                return booked.get(key(employee, epochDay)) + endMinute - startMinute <= maxMinutes;
+            }
+
+            @Override
+            public void accepted(final int employee, final long epochDay, final int startMinute,
+                    final int endMinute) {
+                booked.add(key(employee, epochDay), endMinute - startMinute);
+            }
+        };
+    }
+
+    private long key(final int employee, final long epochDay) {
+        long index = period == Period.DAY ? epochDay
+                : Math.floorDiv(epochDay + DAYS_FROM_MONDAY_TO_EPOCH, DAYS_PER_WEEK);
+        return index << Integer.SIZE | (employee & 0xffffffffL);
+    }
+
+    @Override
+    public String toString() {
+        return "at most " + maxHours + " hours per employee per " + period.name().toLowerCase();
+    }
+}
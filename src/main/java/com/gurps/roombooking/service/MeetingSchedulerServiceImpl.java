@@ -1,19 +1,20 @@
 package com.gurps.roombooking.service;
 
 import java.io.IOException;
-import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.DateTimeException;
 import java.time.LocalDate;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.SortedSet;
-import java.util.TreeSet;
 
 import com.gurps.roombooking.domain.BookingRequest;
 import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.MeetingRoom;
+import com.gurps.roombooking.domain.SubmissionOrderedRequests;
+import com.gurps.roombooking.service.SchedulerMetrics.Stage;
 
 /**
  * Processes the given input schedule to produce an output schedule
@@ -29,16 +30,14 @@ public class MeetingSchedulerServiceImpl implements MeetingSchedulerService {
 
     
     private ScheduleCalculatorService scheduleOutputService;
-    private SchedulePrinterService printerService;
+    private MultiRoomCalculatorService roomScheduleService;
+    private StreamingFilePrinterService printerService;
+    private final SchedulerMetrics metrics;
 
-    private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ISO_LOCAL_DATE;
-    private static final DateTimeFormatter REQ_TIME_FMT = DateTimeFormatter.ofPattern("HH:mm:ss");
-    private static final DateTimeFormatter START_TIME_FMT = DateTimeFormatter.ofPattern("HH:mm");
-    private static final DateTimeFormatter COMPANY_HOURS_FMT = DateTimeFormatter.ofPattern("HHmm");
+    private boolean parallelInput;
+    private ValidationMode validationMode = ValidationMode.NONE;
+    private String employeeSummaryPath;
 
-    private static final String IN_FILE_DELIM = " ";
-    
-    
     private static final String ERROR_TXT = "INVALID INPUT";
 
     /**
@@ -47,39 +46,156 @@ public class MeetingSchedulerServiceImpl implements MeetingSchedulerService {
      * @param outputFilePath the output file path
      */
     public MeetingSchedulerServiceImpl(String inputFilePath, String outputFilePath) {
+        //TODO use DI to shield concrete implementation from client to allow future flexiblity in scheduling & printing rules
+        this(inputFilePath, outputFilePath, new SchedulerMetrics());
+    }
+
+    private MeetingSchedulerServiceImpl(String inputFilePath, String outputFilePath, SchedulerMetrics metrics) {
+        this(inputFilePath, outputFilePath, new BasicCalculatorService(metrics), metrics);
+    }
+
+    /**
+     * @param inputFilePath the input file path
+     * @param outputFilePath the output file path
+     * @param scheduleOutputService the calculator applying the scheduling rules
+     */
+    public MeetingSchedulerServiceImpl(String inputFilePath, String outputFilePath,
+            ScheduleCalculatorService scheduleOutputService) {
+        this(inputFilePath, outputFilePath, scheduleOutputService, new SchedulerMetrics());
+    }
+
+    /**
+     * @param inputFilePath the input file path
+     * @param outputFilePath the output file path
+     * @param scheduleOutputService the calculator applying the scheduling rules
+     * @param metrics the metrics to time the parse, calculate and print stages in, usually the ones the
+     * calculator counts the requests in
+     */
+    public MeetingSchedulerServiceImpl(String inputFilePath, String outputFilePath,
+            ScheduleCalculatorService scheduleOutputService, SchedulerMetrics metrics) {
         this.inputFilePath = inputFilePath;
         this.outputFilePath = outputFilePath;
-        
-        //TODO use DI to shield concrete implementation from client to allow future flexiblity in scheduling & printing rules
-        this.scheduleOutputService = new BasicCalculatorService(); 
-        this.printerService = new FilePrinterServiceImpl(outputFilePath);
+        this.scheduleOutputService = scheduleOutputService;
+        this.roomScheduleService = new MultiRoomCalculatorService(metrics);
+        this.printerService = new StreamingFilePrinterService(outputFilePath);
+        this.metrics = metrics;
+    }
+
+    public SchedulerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param parallelInput true to memory map the input file and parse it in parallel chunks
+     * instead of streaming it on the calling thread.
+     */
+    public void setParallelInput(boolean parallelInput) {
+        this.parallelInput = parallelInput;
+    }
+
+    /**
+     * @param validationMode how badly formatted requests are dealt with, ValidationMode.NONE by default.
+     * In lenient mode the input is always streamed, as parallelInput reads it all or nothing.
+     */
+    public void setValidationMode(ValidationMode validationMode) {
+        this.validationMode = validationMode;
+    }
+
+    /**
+     * @param rules the rules on each employee's meetings, applied to the schedule whether it is of one
+     * room or of several
+     */
+    public void setRules(BookingRuleChain rules) {
+        scheduleOutputService.setRules(rules);
+        roomScheduleService.setRules(rules);
+    }
+
+    /**
+     * @param employeeSummaryPath a file to write the meetings and hours booked per employee to once the
+     * schedule is printed, or null for none
+     */
+    public void setEmployeeSummaryPath(String employeeSummaryPath) {
+        this.employeeSummaryPath = employeeSummaryPath;
     }
 
     /**
      * Processes the input file and produce and domain representation of the
      * meeting request submisson batch.
      * 
+     * When the input lists meeting rooms the meetings are spread over the rooms by the
+     * MultiRoomCalculatorService and printed by date and room, otherwise the scheduleOutputService
+     * books them into a single room.
+     *
      * If any error occurs parsing the input file such as field formatting we treat
-     * the whole input file as a bad file. In this case we write the constant MeetingScheduler.ERROR_TXT to the output file.
+     * the whole input file as a bad file, unless the validation mode is lenient. In this case we write the
+     * constant MeetingScheduler.ERROR_TXT to the output file.
      */
     @Override
     public void produceSchedule() {
+        schedule();
+    }
+
+    /**
+     * As produceSchedule, saying whether the schedule or the error was written.
+     * @return false if the input file could not be read or was badly formatted and the error was written
+     * instead
+     */
+    boolean schedule() {
         System.out.println("Scheduling...");
         try {
+            long start = System.nanoTime();
             BookingRequestBatch batch = this.readInputFile();
-            Map<LocalDate, SortedSet<BookingRequest>> output = this.scheduleOutputService.calculate(batch);
-            this.printerService.print(output); //print the output
-        } catch (IOException e) {
-            e.printStackTrace();
+            int requests = batch == null ? 0 : batch.getBookingRequests().size();
+            metrics.recordStage(Stage.PARSE, System.nanoTime() - start, requests);
+
+            start = System.nanoTime();
+            if (batch != null && !batch.getRooms().isEmpty()) {
+                Map<LocalDate, Map<MeetingRoom, SortedSet<BookingRequest>>> output = this.roomScheduleService
+                        .calculate(batch);
+                metrics.recordStage(Stage.CALCULATE, System.nanoTime() - start, requests);
+                start = System.nanoTime();
+                this.printerService.printRooms(output);
+                long meetings = 0;
+                for (Map<MeetingRoom, SortedSet<BookingRequest>> rooms : output.values()) {
+                    meetings += countMeetings(rooms);
+                }
+                metrics.recordStage(Stage.PRINT, System.nanoTime() - start, meetings);
+                if (this.employeeSummaryPath != null) {
+                    EmployeeBookings.ofRooms(output).write(Paths.get(this.employeeSummaryPath));
+                }
+            } else {
+                Map<LocalDate, SortedSet<BookingRequest>> output = this.scheduleOutputService.calculate(batch);
+                metrics.recordStage(Stage.CALCULATE, System.nanoTime() - start, requests);
+                start = System.nanoTime();
+                this.printerService.print(output); //print the output
+                metrics.recordStage(Stage.PRINT, System.nanoTime() - start, countMeetings(output));
+                if (this.employeeSummaryPath != null) {
+                    EmployeeBookings.of(output).write(Paths.get(this.employeeSummaryPath));
+                }
+            }
+        } catch (IOException | IllegalArgumentException | DateTimeException e) {
+            if (e instanceof IOException) {
+                e.printStackTrace();
+            } else {
+                System.err.println(this.inputFilePath + ": " + e.getMessage());
+            }
             try {
                 this.writeError();
             } catch (Exception e2) {
                 e2.printStackTrace();
                 System.err.println("Unable to write error to file");
             }
-
+            return false;
         }
+        return true;
+    }
 
+    private static long countMeetings(Map<?, SortedSet<BookingRequest>> schedule) {
+        long meetings = 0;
+        for (SortedSet<BookingRequest> day : schedule.values()) {
+            meetings += day.size();
+        }
+        return meetings;
     }
 
     /**
@@ -96,78 +212,46 @@ public class MeetingSchedulerServiceImpl implements MeetingSchedulerService {
      * Reads the input file line by line.
      * The first line is taken as the company operating hours
      * The subsequent pairs of lines (i.e. 2 lines each) are treated as individual booking
-     * requests.
+     * requests, which are put into chronological order of submission with a radix sort.
+     * In strict mode the file is validated first.
      * @return a booking request batch or null if nothing to book
      * @throws IOException
      */
     private BookingRequestBatch readInputFile() throws IOException {
 
-        SortedSet<BookingRequest> bookingRequests = new TreeSet<>();
-        BookingRequestBatch batch = null;
-        
-        try (Scanner scanner = new Scanner(Paths.get(this.inputFilePath), Charset.defaultCharset()
-                .name())) {
-            
-            if (scanner.hasNextLine()) {
-                batch = this.createBatch(scanner.nextLine());
-                
-                while (scanner.hasNextLine()) {
-                    bookingRequests.add(parseRequest(scanner.nextLine(), scanner.nextLine()));
+        if (this.validationMode == ValidationMode.STRICT) {
+            try (BookingRequestReader reader = new BookingRequestReader(Paths.get(this.inputFilePath))) {
+                if (reader.readHeader() != null) {
+                    reader.validate();
                 }
-                batch.setBookingRequests(bookingRequests);
             }
-            return batch;
         }
-    }
 
-    /**
-     * 
-     * @param line the first line from the text input file.
-     * @return BookingRequestBatch (a sort of parent object that encapsulates all the bookings)
-     */
-    private BookingRequestBatch createBatch(final String line) {
-        String[] hours = line.split(IN_FILE_DELIM);
-        LocalTime openingTime = LocalTime.parse(hours[0], COMPANY_HOURS_FMT);
-        LocalTime closingTime = LocalTime.parse(hours[1], COMPANY_HOURS_FMT);
-        BookingRequestBatch batch = new BookingRequestBatch(openingTime, closingTime);
-        return batch;
-    }
-
-    private BookingRequest parseRequest(final String firstLine, final String secondLine) {
-
-        String[] firstLineTokens = firstLine.split(IN_FILE_DELIM);
-        String[] secondLineTokens = secondLine.split(IN_FILE_DELIM);
-
-        if (firstLineTokens == null || firstLineTokens.length != 3) {
-            throw new IllegalArgumentException(
-                    " Line must contain request date, request time and employee id");
-        } else if (secondLineTokens == null || secondLineTokens.length != 3) {
-            throw new IllegalArgumentException(
-                    " Line must contain meeting date, start time and duration");
+        if (this.parallelInput) {
+            if (this.validationMode != ValidationMode.LENIENT) {
+                return new MappedBookingFileReader().read(Paths.get(this.inputFilePath));
+            }
+            System.err.println("Lenient validation reads the input sequentially, ignoring parallel input");
         }
 
-        LocalDate submissionDate = LocalDate.parse(firstLineTokens[0], DATE_FMT);
-        LocalTime submissionTime = LocalTime.parse(firstLineTokens[1], REQ_TIME_FMT);
-        String employeeNumber = firstLineTokens[2];
-        
-        if(employeeNumber == null || employeeNumber.length() == 0){
-            throw new IllegalArgumentException("employee number not specified");
-        }
-        
-        LocalDate meetingDate = LocalDate.parse(secondLineTokens[0], DATE_FMT);
-        LocalTime meetingStartTime = LocalTime.parse(secondLineTokens[1], START_TIME_FMT);
-        
-        int duration = Integer.parseInt(secondLineTokens[2]); 
-        
-        if(Math.signum(duration) <= 0){
-            throw new IllegalArgumentException(
-                    " Duration must be a positive integer");
-        }
+        List<BookingRequest> bookingRequests = new ArrayList<>();
+        BookingRequestBatch batch = null;
 
-        BookingRequest bookingRequest = new BookingRequest.BookingRequestBuilder(submissionDate,
-                submissionTime).meetingDate(meetingDate).meetingStart(meetingStartTime)
-                .duration(duration).employee(employeeNumber).build();
+        try (BookingRequestReader reader = new BookingRequestReader(Paths.get(this.inputFilePath))) {
 
-        return bookingRequest;
+            reader.setLenient(this.validationMode == ValidationMode.LENIENT);
+            batch = reader.readHeader();
+            if (batch != null) {
+                BookingRequest bookingRequest;
+                while ((bookingRequest = reader.next()) != null) {
+                    bookingRequests.add(bookingRequest);
+                }
+                batch.setBookingRequests(SubmissionOrderedRequests.of(bookingRequests));
+                if (reader.getSkipped() > 0) {
+                    System.err.println("Skipped " + reader.getSkipped() + " invalid requests");
+                }
+            }
+            return batch;
+        }
     }
 }
@@ -0,0 +1,170 @@
+package com.gurps.roombooking.service;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.MeetingIntervalIndex;
+import com.gurps.roombooking.domain.MeetingRoom;
+import com.gurps.roombooking.domain.ScheduledMeetingComparator;
+
+/**
+ * Schedules meetings across the rooms of the batch's room inventory.
+ *
+ * Requests are taken in chronological order of submission, as with the BasicCalculatorService, and each
+ * one is given the smallest room that holds its attendees and is free for the whole meeting (best fit).
+ * Rooms of the same capacity are tried in inventory order. Each room has its own MeetingIntervalIndex
+ * per day, so checking a room is O(log meetings). A request is rejected when it is outside office hours,
+ * when it breaks one of the rules on its employee's meetings, when no room is large enough or when every
+ * large enough room is taken.
+ */
+public class MultiRoomCalculatorService {
+
+    private final SchedulerMetrics metrics;
+    private BookingRuleChain rules = BookingRuleChain.NONE;
+
+    public MultiRoomCalculatorService() {
+        this(new SchedulerMetrics());
+    }
+
+    /**
+     * @param metrics the metrics to count accepted and rejected requests in, which also say whether a
+     * line is printed per rejected request
+     */
+    public MultiRoomCalculatorService(final SchedulerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public SchedulerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param rules checked after the office hours and before a room is looked for, none by default
+     */
+    public void setRules(final BookingRuleChain rules) {
+        this.rules = rules;
+    }
+
+    public BookingRuleChain getRules() {
+        return rules;
+    }
+
+    /**
+     * @param batch the BookingRequestBatch with its room inventory
+     * @return meeting date against the rooms in inventory order, each with its meetings ordered by start time.
+     * Only rooms with meetings on the day are included.
+     */
+    public Map<LocalDate, Map<MeetingRoom, SortedSet<BookingRequest>>> calculate(final BookingRequestBatch batch) {
+
+        System.out.println("....calculating output ....");
+
+        Map<LocalDate, Map<MeetingRoom, SortedSet<BookingRequest>>> meetingsSchedule = new TreeMap<>();
+        if (batch == null || batch.getRooms().isEmpty()) {
+            return meetingsSchedule;
+        }
+
+        List<MeetingRoom> inventory = batch.getRooms();
+        Integer[] bySize = new Integer[inventory.size()];
+        for (int i = 0; i < bySize.length; i++) {
+            bySize[i] = i;
+        }
+        // stable, so rooms of the same size keep their inventory order
+        Arrays.sort(bySize, Comparator.comparingInt(room -> inventory.get(room).getCapacity()));
+        int[] capacities = new int[bySize.length];
+        int[] sizeRank = new int[bySize.length];
+        for (int i = 0; i < bySize.length; i++) {
+            capacities[i] = inventory.get(bySize[i]).getCapacity();
+            sizeRank[bySize[i]] = i;
+        }
+
+        Map<LocalDate, MeetingIntervalIndex[]> days = new HashMap<>();
+        BookingRule.Check check = rules.start();
+        for (BookingRequest booking : batch.getBookingRequests()) {
+            if (BasicCalculatorService.isOutsideOfficeHours(booking, batch.getOpeningTime(), batch.getClosingTime())) {
+                metrics.recordOutsideOfficeHours(booking);
+                continue;
+            }
+            if (!BookingRuleChain.allows(check, booking)) {
+                metrics.recordRuleViolation(booking);
+                continue;
+            }
+            int smallest = smallestRoom(capacities, booking.getAttendees());
+            if (smallest == capacities.length) {
+                metrics.recordNoRoom(booking);
+                continue;
+            }
+            MeetingIntervalIndex[] rooms = days.get(booking.getMeetingDate());
+            if (rooms == null) {
+                rooms = new MeetingIntervalIndex[bySize.length];
+                days.put(booking.getMeetingDate(), rooms);
+            }
+            if (assign(rooms, smallest, booking)) {
+                metrics.recordAccepted();
+                BookingRuleChain.accepted(check, booking);
+            } else {
+                metrics.recordConflict(booking);
+            }
+        }
+
+        for (Entry<LocalDate, MeetingIntervalIndex[]> day : days.entrySet()) {
+            Map<MeetingRoom, SortedSet<BookingRequest>> roomMeetings = new LinkedHashMap<>();
+            for (int room = 0; room < inventory.size(); room++) {
+                MeetingIntervalIndex index = day.getValue()[sizeRank[room]];
+                if (index != null && !index.isEmpty()) {
+                    SortedSet<BookingRequest> meetings = new TreeSet<>(new ScheduledMeetingComparator());
+                    meetings.addAll(index.meetings());
+                    roomMeetings.put(inventory.get(room), meetings);
+                }
+            }
+            if (!roomMeetings.isEmpty()) {
+                meetingsSchedule.put(day.getKey(), roomMeetings);
+            }
+        }
+        return meetingsSchedule;
+    }
+
+    /**
+     * Books the meeting into the first free room from the given one upwards.
+     * @return true if a room was free
+     */
+    private static boolean assign(final MeetingIntervalIndex[] rooms, final int from, final BookingRequest booking) {
+        for (int room = from; room < rooms.length; room++) {
+            if (rooms[room] == null) {
+                rooms[room] = new MeetingIntervalIndex();
+            }
+            if (rooms[room].add(booking)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the position of the first room holding at least the given number of people,
+     * or capacities.length if there is none
+     */
+    private static int smallestRoom(final int[] capacities, final int attendees) {
+        int low = 0;
+        int high = capacities.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (capacities[mid] < attendees) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
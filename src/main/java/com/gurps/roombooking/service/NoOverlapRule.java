@@ -0,0 +1,74 @@
+package com.gurps.roombooking.service;
+
+import com.gurps.roombooking.domain.LongLongHashMap;
+
+/**
+ * Rejects a request whose employee already has a meeting scheduled at an overlapping time, in any room
+ * and on either side of midnight.
+ *
+ * The minutes each employee has booked are held as bitmaps of 64 minutes a word, keyed by employee and
+ * word, so a request is checked against only the few words its own meeting covers.
+ */
+public class NoOverlapRule implements BookingRule {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int EMPLOYEE_BITS = 24;
+    private static final int MAX_EMPLOYEES = 1 << EMPLOYEE_BITS;
+
+    @Override
+    public Check start() {
+        LongLongHashMap bookedMinutes = new LongLongHashMap();
+        return new Check() {
+            @Override
+            public boolean allows(final int employee, final long epochDay, final int startMinute,
+                    final int endMinute) {
+                long last = epochDay * MINUTES_PER_DAY + endMinute;
+                for (long minute = epochDay * MINUTES_PER_DAY + startMinute; minute < last;
+                        minute = (minute | (Long.SIZE - 1)) + 1) {
+                    if ((bookedMinutes.get(key(employee, minute)) & mask(minute, last)) != 0) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public void accepted(final int employee, final long epochDay, final int startMinute,
+                    final int endMinute) {
+                long last = epochDay * MINUTES_PER_DAY + endMinute;
+                for (long minute = epochDay * MINUTES_PER_DAY + startMinute; minute < last;
+                        minute = (minute | (Long.SIZE - 1)) + 1) {
+                    long key = key(employee, minute);
+                    bookedMinutes.put(key, bookedMinutes.get(key) | mask(minute, last));
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the key of the word holding the minute, counted from the epoch, for the employee
+     */
+    private static long key(final int employee, final long minute) {
+        if (employee < 0 || employee >= MAX_EMPLOYEES) {
+            throw new IllegalArgumentException("employee " + employee + " out of range");
+        }
+        return (minute >> 6) << EMPLOYEE_BITS | employee;
+    }
+
+    /**
+     * @return the bits of the minutes from minute to the end of its word or to last, whichever is first
+     */
+    private static long mask(final long minute, final long last) {
+        long wordEnd = (minute | (Long.SIZE - 1)) + 1;
+        long mask = -1L << (minute & (Long.SIZE - 1));
+        if (last < wordEnd) {
+            mask &= -1L >>> (wordEnd - last);
+        }
+        return mask;
+    }
+
+    @Override
+    public String toString() {
+        return "no overlapping meetings per employee";
+    }
+}
@@ -0,0 +1,178 @@
+package com.gurps.roombooking.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.ScheduledMeetingComparator;
+
+/**
+ * Parallel mode of the BasicCalculatorService.
+ *
+ * Bookings for different meeting dates can never clash, so the chronologically ordered requests are
+ * partitioned by meeting date (keeping submission order within each day) and every day is resolved on
+ * its own fork-join task with exactly the same rules. The merged schedule is identical to the
+ * sequential one.
+ *
+ * Rules on each employee's meetings can span days, so when there are any the requests are scheduled
+ * sequentially instead.
+ */
+public class ParallelCalculatorService extends BasicCalculatorService {
+
+    /**
+     * Days are split across tasks until a task holds fewer than this many bookings.
+     */
+    private static final int DEFAULT_THRESHOLD = 1024;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    public ParallelCalculatorService() {
+        this(new SchedulerMetrics());
+    }
+
+    /**
+     * @param metrics the metrics to count accepted and rejected requests in
+     */
+    public ParallelCalculatorService(final SchedulerMetrics metrics) {
+        this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD, metrics);
+    }
+
+    /**
+     * @param pool the pool to schedule the days on
+     * @param threshold the number of bookings below which a task stops splitting its days
+     */
+    public ParallelCalculatorService(final ForkJoinPool pool, final int threshold) {
+        this(pool, threshold, new SchedulerMetrics());
+    }
+
+    /**
+     * @param pool the pool to schedule the days on
+     * @param threshold the number of bookings below which a task stops splitting its days
+     * @param metrics the metrics to count accepted and rejected requests in
+     */
+    public ParallelCalculatorService(final ForkJoinPool pool, final int threshold, final SchedulerMetrics metrics) {
+        super(metrics);
+        this.pool = pool;
+        this.threshold = Math.max(1, threshold);
+    }
+
+    @Override
+    public Map<LocalDate, SortedSet<BookingRequest>> calculate(final BookingRequestBatch batch) {
+
+        if (!getRules().isEmpty()) {
+            return super.calculate(batch);
+        }
+
+        System.out.println("....calculating output ....");
+
+        Map<LocalDate, SortedSet<BookingRequest>> meetingsSchedule = new TreeMap<>();
+        if (batch != null) {
+            Map<LocalDate, List<BookingRequest>> requestsByDay = new HashMap<>();
+            for (BookingRequest booking : batch.getBookingRequests()) {
+                List<BookingRequest> requests = requestsByDay.get(booking.getMeetingDate());
+                if (requests == null) {
+                    requests = new ArrayList<>();
+                    requestsByDay.put(booking.getMeetingDate(), requests);
+                }
+                requests.add(booking);
+            }
+
+            List<List<BookingRequest>> days = new ArrayList<>(requestsByDay.values());
+            long[] offsets = new long[days.size() + 1];
+            for (int i = 0; i < days.size(); i++) {
+                offsets[i + 1] = offsets[i] + days.get(i).size();
+            }
+            List<SortedSet<BookingRequest>> results = new ArrayList<>(Collections.nCopies(days.size(),
+                    (SortedSet<BookingRequest>) null));
+            pool.invoke(new DaysTask(days, offsets, results, 0, days.size(), batch.getOpeningTime(),
+                    batch.getClosingTime(), threshold, getMetrics()));
+
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i) != null) {
+                    meetingsSchedule.put(days.get(i).get(0).getMeetingDate(), results.get(i));
+                }
+            }
+        }
+        return meetingsSchedule;
+    }
+
+    /**
+     * Resolves the clashes for a single day.
+     * @return the accepted meetings or null if none were accepted
+     */
+    private static SortedSet<BookingRequest> scheduleDay(final List<BookingRequest> requests,
+            final LocalTime openingTime, final LocalTime closingTime, final SchedulerMetrics metrics) {
+        SortedSet<BookingRequest> meetings = null;
+        for (BookingRequest booking : requests) {
+            if (isOutsideOfficeHours(booking, openingTime, closingTime)) {
+                metrics.recordOutsideOfficeHours(booking);
+            } else {
+                if (meetings == null) {
+                    meetings = new TreeSet<>(new ScheduledMeetingComparator());
+                }
+                addMeeting(meetings, booking, metrics);
+            }
+        }
+        return meetings;
+    }
+
+    /**
+     * Schedules the days [from, to), splitting the range in two while it holds too many bookings.
+     */
+    private static class DaysTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<List<BookingRequest>> days;
+        private final long[] offsets;
+        private final transient List<SortedSet<BookingRequest>> results;
+        private final int from;
+        private final int to;
+        private final LocalTime openingTime;
+        private final LocalTime closingTime;
+        private final int threshold;
+        private final transient SchedulerMetrics metrics;
+
+        DaysTask(final List<List<BookingRequest>> days, final long[] offsets,
+                final List<SortedSet<BookingRequest>> results, final int from, final int to,
+                final LocalTime openingTime, final LocalTime closingTime, final int threshold,
+                final SchedulerMetrics metrics) {
+            this.days = days;
+            this.offsets = offsets;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.openingTime = openingTime;
+            this.closingTime = closingTime;
+            this.threshold = threshold;
+            this.metrics = metrics;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && offsets[to] - offsets[from] > threshold) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new DaysTask(days, offsets, results, from, middle, openingTime, closingTime, threshold,
+                        metrics),
+                        new DaysTask(days, offsets, results, middle, to, openingTime, closingTime, threshold,
+                                metrics));
+            } else {
+                for (int i = from; i < to; i++) {
+                    results.set(i, scheduleDay(days.get(i), openingTime, closingTime, metrics));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package com.gurps.roombooking.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.ScheduledMeetingComparator;
+import com.gurps.roombooking.service.SchedulerMetrics.Stage;
+
+/**
+ * Runs parsing, calculation and printing as concurrent stages joined by bounded queues, so reading the
+ * input overlaps scheduling and writing the output, and the whole input is never held in memory at once.
+ *
+ * A parser thread reads batches of requests onto a queue for the calculator, on the calling thread, which
+ * sorts them by meeting date as they arrive. Once a day is finalized its requests are scheduled with the
+ * BasicCalculatorService rules and the day is handed to a printer thread. A booking log is in order of
+ * submission and a meeting cannot be booked for a date before it was requested, so a day is taken to be
+ * finalized once a request in submission order has been read that was submitted on a later date, at which
+ * point its requests, and the submission times remembered for spotting duplicates, are released. The
+ * remaining days are finalized at the end of the input.
+ *
+ * Only input in order of submission gets the overlap and the bounded memory. Unordered input is scheduled
+ * in the pipeline as long as no day has been finalized, holding every request as the
+ * MeetingSchedulerServiceImpl does, but a request that breaks those assumptions, one for a day already
+ * finalized or submitted before requests already released, would need a day that may already be printed.
+ * The pipeline is then abandoned and the input handed over to the MeetingSchedulerServiceImpl, which reads
+ * it again whole, so the output is always the same as the MeetingSchedulerServiceImpl's. The rejections of
+ * a run are held back until it completes, so those of an abandoned run are neither counted nor reported.
+ *
+ * Booking rules see every request in order of submission, whatever its meeting date, so with rules each
+ * request is scheduled as soon as it is read rather than once its day is finalized, and a request out of
+ * submission order hands the input over.
+ *
+ * The output is written to a temporary file that replaces the output file once the schedule is complete.
+ * Input with a room inventory is handed over to the MeetingSchedulerServiceImpl.
+ */
+public class PipelinedSchedulerService implements MeetingSchedulerService {
+
+    private static final String ERROR_TXT = "INVALID INPUT";
+    private static final String TEMPORARY = ".part";
+
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    private static final List<BookingRequest> END_OF_INPUT = Collections.emptyList();
+    private static final Entry<LocalDate, SortedSet<BookingRequest>> END_OF_SCHEDULE = new SimpleImmutableEntry<>(
+            LocalDate.MIN, Collections.<BookingRequest>emptySortedSet());
+    private static final long POLL_MILLIS = 100;
+
+    private final String inputFilePath;
+    private final String outputFilePath;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final SchedulerMetrics metrics;
+    private BookingRuleChain rules = BookingRuleChain.NONE;
+
+    public PipelinedSchedulerService(String inputFilePath, String outputFilePath) {
+        this(inputFilePath, outputFilePath, DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public PipelinedSchedulerService(String inputFilePath, String outputFilePath, int batchSize, int queueCapacity) {
+        this(inputFilePath, outputFilePath, batchSize, queueCapacity, new SchedulerMetrics());
+    }
+
+    /**
+     * @param inputFilePath the input file path
+     * @param outputFilePath the output file path
+     * @param batchSize the number of requests the parser passes on at a time
+     * @param queueCapacity the number of batches, and of days, each queue holds before its producer waits
+     * @param metrics the metrics to count the requests and time the stages in, which also say where a
+     * rejected request is reported. The stages run at the same time, so their times overlap.
+     */
+    public PipelinedSchedulerService(String inputFilePath, String outputFilePath, int batchSize, int queueCapacity,
+            SchedulerMetrics metrics) {
+        if (batchSize <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("batch size and queue capacity must be positive");
+        }
+        this.inputFilePath = inputFilePath;
+        this.outputFilePath = outputFilePath;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+        this.metrics = metrics;
+    }
+
+    public SchedulerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param rules the rules on each employee's meetings, none by default
+     */
+    public void setRules(BookingRuleChain rules) {
+        this.rules = rules;
+    }
+
+    @Override
+    public void produceSchedule() {
+        System.out.println("Scheduling...");
+        Path temporary = Paths.get(outputFilePath + TEMPORARY);
+        try {
+            // counted and reported apart until the run is complete, so an abandoned run is not reported twice
+            SchedulerMetrics runMetrics = new SchedulerMetrics();
+            runMetrics.holdRejections();
+            boolean complete;
+            try (BookingRequestReader reader = new BookingRequestReader(Paths.get(inputFilePath))) {
+                BookingRequestBatch batch = reader.readHeader();
+                if (batch != null && !batch.getRooms().isEmpty()) {
+                    handOver();
+                    return;
+                }
+                complete = run(reader, batch, new StreamingFilePrinterService(temporary.toString()), runMetrics);
+            }
+            if (!complete) {
+                Files.deleteIfExists(temporary);
+                System.out.println("Input out of submission order, scheduling it whole");
+                handOver();
+                return;
+            }
+            metrics.add(runMetrics);
+            Files.move(temporary, Paths.get(outputFilePath), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | IllegalArgumentException | DateTimeException e) {
+            e.printStackTrace();
+            try {
+                Files.deleteIfExists(temporary);
+                System.out.println("Writing on Error");
+                Files.write(Paths.get(this.outputFilePath), ERROR_TXT.getBytes());
+            } catch (Exception e2) {
+                e2.printStackTrace();
+                System.err.println("Unable to write error to file");
+            }
+        } catch (RuntimeException e) {
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException e2) {
+                e.addSuppressed(e2);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Schedules the input with the MeetingSchedulerServiceImpl, counting in the same metrics.
+     */
+    private void handOver() {
+        MeetingSchedulerServiceImpl schedulerService = new MeetingSchedulerServiceImpl(inputFilePath, outputFilePath,
+                new BasicCalculatorService(metrics), metrics);
+        schedulerService.setRules(rules);
+        schedulerService.produceSchedule();
+    }
+
+    /**
+     * Runs the three stages until the input is exhausted or one of them fails.
+     * @param batch the header of the input, null if the input is empty
+     * @return false if the run was abandoned on a request out of submission order, once the stages have
+     * stopped
+     */
+    private boolean run(final BookingRequestReader reader, final BookingRequestBatch batch,
+            final StreamingFilePrinterService printer, final SchedulerMetrics runMetrics) throws IOException {
+        BlockingQueue<List<BookingRequest>> requests = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Entry<LocalDate, SortedSet<BookingRequest>>> days = new ArrayBlockingQueue<>(queueCapacity);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> parser = executor.submit(() -> {
+                try {
+                    parse(reader, batch, requests, runMetrics);
+                } finally {
+                    requests.put(END_OF_INPUT);
+                }
+                return null;
+            });
+            Future<?> printing = executor.submit(() -> {
+                print(printer, days, runMetrics);
+                return null;
+            });
+
+            if (batch != null && !calculate(batch, requests, days, parser, printing, runMetrics)) {
+                executor.shutdownNow();
+                // making room for the parser's last batches, until the printer has closed the temporary file
+                do {
+                    requests.clear();
+                } while (!executor.awaitTermination(POLL_MILLIS, TimeUnit.MILLISECONDS));
+                return false;
+            }
+            parser.get();
+            handOver(days, END_OF_SCHEDULE, printing);
+            printing.get();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scheduling", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void parse(final BookingRequestReader reader, final BookingRequestBatch batch,
+            final BlockingQueue<List<BookingRequest>> requests, final SchedulerMetrics runMetrics)
+            throws IOException, InterruptedException {
+        if (batch == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        long count = 0;
+        List<BookingRequest> bookings = new ArrayList<>(batchSize);
+        BookingRequest booking;
+        while ((booking = reader.next()) != null) {
+            bookings.add(booking);
+            count++;
+            if (bookings.size() == batchSize) {
+                requests.put(bookings);
+                bookings = new ArrayList<>(batchSize);
+            }
+        }
+        if (!bookings.isEmpty()) {
+            requests.put(bookings);
+        }
+        runMetrics.recordStage(Stage.PARSE, System.nanoTime() - start, count);
+    }
+
+    /**
+     * @return false, before the end of the input, on a request that needs a day that may already be finalized
+     */
+    private boolean calculate(final BookingRequestBatch batch, final BlockingQueue<List<BookingRequest>> requests,
+            final BlockingQueue<Entry<LocalDate, SortedSet<BookingRequest>>> days, final Future<?> parser,
+            final Future<?> printing, final SchedulerMetrics runMetrics)
+            throws InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        long count = 0;
+        Set<BookingRequest> submitted = new HashSet<>();
+        // for each day not yet finalized, the requests within office hours in order of submission, or with
+        // rules the meetings already scheduled
+        NavigableMap<LocalDate, SortedSet<BookingRequest>> openDays = new TreeMap<>();
+        BookingRule.Check check = rules.start();
+        BookingRequest latest = null;
+        // the latest submission date read in order, days before it may be finalized
+        LocalDate watermark = LocalDate.MIN;
+        // days before this date have been finalized, or had no requests when the others were
+        LocalDate finalizedBefore = LocalDate.MIN;
+        // requests submitted before this one have been released, null until the first release
+        BookingRequest released = null;
+
+        List<BookingRequest> bookings;
+        while ((bookings = requests.take()) != END_OF_INPUT) {
+            for (BookingRequest booking : bookings) {
+                count++;
+                if (latest == null || booking.compareTo(latest) >= 0) {
+                    latest = booking;
+                    if (booking.getRequestDate().isAfter(watermark)) {
+                        watermark = booking.getRequestDate();
+                        Map<LocalDate, SortedSet<BookingRequest>> finalized = openDays.headMap(watermark);
+                        if (!finalized.isEmpty()) {
+                            release(finalized, days, printing, runMetrics);
+                            finalizedBefore = watermark;
+                            // until a day is released, out of order requests can still be checked for duplicates
+                            released = booking;
+                            final BookingRequest horizon = booking;
+                            submitted.removeIf(request -> request.compareTo(horizon) < 0);
+                        }
+                    }
+                } else if (!rules.isEmpty() || released != null && booking.compareTo(released) < 0) {
+                    // the rules have counted requests submitted after it, or it may be a duplicate of a request
+                    // already released
+                    return false;
+                }
+                if (!submitted.add(booking)) {
+                    // as SubmissionOrderedRequests, the first of the requests with the same submission time is kept
+                    continue;
+                }
+                if (BasicCalculatorService.isOutsideOfficeHours(booking, batch.getOpeningTime(),
+                        batch.getClosingTime())) {
+                    runMetrics.recordOutsideOfficeHours(booking);
+                } else if (booking.getMeetingDate().isBefore(finalizedBefore)) {
+                    return false;
+                } else if (rules.isEmpty()) {
+                    openDays.computeIfAbsent(booking.getMeetingDate(), date -> new TreeSet<>()).add(booking);
+                } else if (!BookingRuleChain.allows(check, booking)) {
+                    runMetrics.recordRuleViolation(booking);
+                } else {
+                    // every request submitted before it has been read, so it is scheduled now
+                    SortedSet<BookingRequest> meetings = openDays.computeIfAbsent(booking.getMeetingDate(),
+                            date -> new TreeSet<>(new ScheduledMeetingComparator()));
+                    if (BasicCalculatorService.addMeeting(meetings, booking, runMetrics)) {
+                        BookingRuleChain.accepted(check, booking);
+                    }
+                }
+            }
+        }
+        // the parser may have stopped early on a bad request, in which case there is no schedule to finish
+        parser.get();
+        release(openDays, days, printing, runMetrics);
+        runMetrics.recordStage(Stage.CALCULATE, System.nanoTime() - start, count);
+        return true;
+    }
+
+    /**
+     * Hands the finalized days over to the printer in order of date and forgets them.
+     */
+    private void release(final Map<LocalDate, SortedSet<BookingRequest>> finalized,
+            final BlockingQueue<Entry<LocalDate, SortedSet<BookingRequest>>> days, final Future<?> printing,
+            final SchedulerMetrics runMetrics) throws InterruptedException, ExecutionException {
+        for (Entry<LocalDate, SortedSet<BookingRequest>> day : finalized.entrySet()) {
+            handOver(days, rules.isEmpty() ? schedule(day, runMetrics) : day, printing);
+        }
+        finalized.clear();
+    }
+
+    /**
+     * Applies the BasicCalculatorService rules to a finalized day's requests, taking them in order of submission.
+     */
+    private static Entry<LocalDate, SortedSet<BookingRequest>> schedule(
+            final Entry<LocalDate, SortedSet<BookingRequest>> day, final SchedulerMetrics runMetrics) {
+        SortedSet<BookingRequest> meetings = new TreeSet<>(new ScheduledMeetingComparator());
+        for (BookingRequest booking : day.getValue()) {
+            BasicCalculatorService.addMeeting(meetings, booking, runMetrics);
+        }
+        return new SimpleImmutableEntry<>(day.getKey(), meetings);
+    }
+
+    private void print(final StreamingFilePrinterService printer,
+            final BlockingQueue<Entry<LocalDate, SortedSet<BookingRequest>>> days, final SchedulerMetrics runMetrics)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        long count = 0;
+        try (Writer writer = printer.newWriter()) {
+            boolean firstDay = true;
+            Entry<LocalDate, SortedSet<BookingRequest>> day;
+            while ((day = days.take()) != END_OF_SCHEDULE) {
+                if (!day.getValue().isEmpty()) {
+                    printer.printDay(day.getKey(), day.getValue(), firstDay, writer);
+                    firstDay = false;
+                    count += day.getValue().size();
+                }
+            }
+        }
+        runMetrics.recordStage(Stage.PRINT, System.nanoTime() - start, count);
+    }
+
+    /**
+     * Puts a day on the printer's queue, giving up if the printer has failed rather than waiting forever.
+     */
+    private static void handOver(final BlockingQueue<Entry<LocalDate, SortedSet<BookingRequest>>> days,
+            final Entry<LocalDate, SortedSet<BookingRequest>> day, final Future<?> printing)
+            throws InterruptedException, ExecutionException {
+        while (!days.offer(day, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (printing.isDone()) {
+                printing.get();
+                throw new IllegalStateException("printer stopped before the end of the schedule");
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.gurps.roombooking.service;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes the rejected requests of a run to a file on a background thread, so the calculator only copies
+ * a few fields into a slot instead of formatting and printing a line under the console's lock.
+ *
+ * Rejections go into a ring buffer preallocated as one array per field. A calculator thread claims the
+ * next sequence number, waits if the buffer is full, fills the slot and publishes it; the drainer
+ * writes published slots in sequence order through a buffered writer, one line per rejection:
+ * <pre>
+ * CONFLICT 2011-03-17 10:17:06 EMP001
+ * OUTSIDE_OFFICE_HOURS 2011-03-15 17:29:12 EMP005
+ * RULE_VIOLATION 2011-03-16 12:34:56 EMP002
+ * NO_ROOM 2011-03-16 12:34:56 EMP003
+ * DUPLICATE 2011-03-16 12:34:56 EMP004
+ * </pre>
+ * with the request's submission time and employee. Safe for any number of recording threads.
+ *
+ * An idle drainer parks for twice as long each time it finds nothing to write, up to MAX_PARK_NANOS, so
+ * a log left open in a long running process costs a hundred wakeups a second rather than tens of
+ * thousands. A recording thread that finds the buffer full wakes it.
+ */
+public class RejectionLog implements Closeable {
+
+    public static final int DEFAULT_CAPACITY = 16 * 1024;
+
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** how many slots the drainer writes before telling waiting producers about them */
+    private static final int RELEASE_BATCH = 256;
+    private static final long MIN_PARK_NANOS = 50_000;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * Why a request was rejected.
+     */
+    public enum Reason {
+        CONFLICT("Conflicting booking found for "),
+        OUTSIDE_OFFICE_HOURS("Meeting occurs outside office hours. Req =  "),
+        RULE_VIOLATION("Meeting breaks a booking rule. Req =  "),
+        NO_ROOM("No room large enough for "),
+        DUPLICATE("Duplicate submission time for ");
+
+        private final String message;
+
+        Reason(final String message) {
+            this.message = message;
+        }
+
+        /**
+         * @return the start of the line the calculator prints to the console for this reason
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    private static final Reason[] REASONS = Reason.values();
+
+    private final Path file;
+    private final int mask;
+    private final byte[] reasons;
+    private final long[] seconds;
+    private final String[] employees;
+    /** the sequence number after the one last published in each slot, 0 before the first */
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    /** every sequence number before this has been written and its slot may be reused */
+    private volatile long released;
+    private volatile boolean closed;
+    private volatile IOException failure;
+    private final Writer writer;
+    private final Thread drainer;
+
+    public RejectionLog(final Path file) throws IOException {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates, or truncates, the file and starts the drainer.
+     * @param capacity the number of rejections held before recording threads wait, rounded up to a power of two
+     */
+    public RejectionLog(final Path file, final int capacity) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.file = file;
+        this.mask = size - 1;
+        this.reasons = new byte[size];
+        this.seconds = new long[size];
+        this.employees = new String[size];
+        this.published = new AtomicLongArray(size);
+        this.writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8),
+                BUFFER_SIZE);
+        this.drainer = new Thread(this::drain, "rejection-log");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return the number of rejections recorded so far
+     */
+    public long getCount() {
+        return claimed.get();
+    }
+
+    /**
+     * Records a rejection for the drainer to write, waiting while the buffer is full.
+     * @param requestDate the date the request was submitted
+     * @param requestTime the time the request was submitted
+     */
+    public void record(final Reason reason, final LocalDate requestDate, final LocalTime requestTime,
+            final String employee) {
+        record(reason, requestDate.toEpochSecond(requestTime, ZoneOffset.UTC), employee);
+    }
+
+    /**
+     * @param submissionEpochSecond the submission time as seconds since the epoch at UTC, as the
+     * BookingRequestStore holds it
+     */
+    public void record(final Reason reason, final long submissionEpochSecond, final String employee) {
+        if (closed) {
+            throw new IllegalStateException("Rejection log " + file + " is closed");
+        }
+        long sequence = claimed.getAndIncrement();
+        while (sequence - released > mask) {
+            if (failure != null) {
+                // nothing more can be written, the failure is reported on close
+                return;
+            }
+            // the drainer may be backing off while idle
+            LockSupport.unpark(drainer);
+            LockSupport.parkNanos(MIN_PARK_NANOS);
+        }
+        int slot = (int) sequence & mask;
+        reasons[slot] = (byte) reason.ordinal();
+        seconds[slot] = submissionEpochSecond;
+        employees[slot] = employee;
+        published.lazySet(slot, sequence + 1);
+    }
+
+    /**
+     * Waits for every rejection recorded to be written and closes the file.
+     * @throws IOException if the file could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            LockSupport.unpark(drainer);
+            boolean interrupted = false;
+            while (drainer.isAlive()) {
+                try {
+                    drainer.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void drain() {
+        long next = 0;
+        try (Writer out = writer) {
+            char[] line = new char[9];
+            boolean unflushed = false;
+            long parkNanos = MIN_PARK_NANOS;
+            while (true) {
+                int slot = (int) next & mask;
+                if (published.get(slot) == next + 1) {
+                    parkNanos = MIN_PARK_NANOS;
+                    write(out, line, slot);
+                    employees[slot] = null;
+                    next++;
+                    unflushed = true;
+                    if ((next & (RELEASE_BATCH - 1)) == 0) {
+                        released = next;
+                    }
+                } else {
+                    released = next;
+                    if (closed && next == claimed.get()) {
+                        break;
+                    }
+                    if (unflushed) {
+                        out.flush();
+                        unflushed = false;
+                    }
+                    LockSupport.parkNanos(parkNanos);
+                    parkNanos = Math.min(2 * parkNanos, MAX_PARK_NANOS);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    private void write(final Writer out, final char[] line, final int slot) throws IOException {
+        long second = seconds[slot];
+        LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(second, SECONDS_PER_DAY));
+        int secondOfDay = Math.floorMod(second, SECONDS_PER_DAY);
+        out.write(REASONS[reasons[slot]].name());
+        out.write(' ');
+        out.write(date.toString());
+        out.write(' ');
+        int length = 0;
+        length = twoDigits(line, length, secondOfDay / 3600);
+        line[length++] = ':';
+        length = twoDigits(line, length, secondOfDay / 60 % 60);
+        line[length++] = ':';
+        length = twoDigits(line, length, secondOfDay % 60);
+        line[length++] = ' ';
+        out.write(line, 0, length);
+        out.write(employees[slot]);
+        out.write(System.lineSeparator());
+    }
+
+    private static int twoDigits(final char[] line, final int offset, final int value) {
+        line[offset] = (char) ('0' + value / 10);
+        line[offset + 1] = (char) ('0' + value % 10);
+        return offset + 2;
+    }
+}
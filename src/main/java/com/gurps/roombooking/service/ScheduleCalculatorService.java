@@ -12,4 +12,10 @@ public interface ScheduleCalculatorService {
     static final String OUT_FILE_DELIM = " ";
 
     Map<LocalDate, SortedSet<BookingRequest>> calculate(BookingRequestBatch batch);
+
+    /**
+     * @param rules the rules on each employee's meetings that a request within office hours must meet
+     * before it is scheduled, BookingRuleChain.NONE by default
+     */
+    void setRules(BookingRuleChain rules);
 }
@@ -0,0 +1,393 @@
+package com.gurps.roombooking.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.service.SchedulerMetrics.Stage;
+
+/**
+ * Long running mode that keeps the schedule of every file in an input directory up to date in the file
+ * of the same name in an output directory, instead of running the scheduler again on each change.
+ *
+ * Booking files grow by appending two-line records, so the watcher remembers how far it has read each
+ * file and, when the WatchService reports a change, parses only the bytes after that. The new requests
+ * go into the file's ConcurrentScheduleStore, which gives the same schedule as the BasicCalculatorService
+ * for all the requests so far, even when a request arrives late. Only the days the new requests were for
+ * are formatted again, and the output file is rewritten from the first of them that changed onwards;
+ * the days before it are left as they are on disk.
+ *
+ * A request is taken once both its lines are read. A final line without a line terminator is taken if
+ * it completes a request, and the file is read again in full if the next bytes appended do not start
+ * with the terminator. A file that shrinks, is replaced by another file, or had bad input is also read
+ * again in full. Bad input gives "INVALID INPUT" as the output, as a single run would, and deleting an
+ * input file deletes its output.
+ *
+ * The requests are counted in SchedulerMetrics, with the reading and scheduling of each change timed as
+ * the parse stage and the rewriting of the output as the print stage.
+ *
+ * Not thread safe: the changes are handled one at a time on the thread running produceSchedule.
+ */
+public class ScheduleWatcher implements MeetingSchedulerService, Closeable {
+
+    private static final String ERROR_TXT = "INVALID INPUT";
+
+    private final Path inputDirectory;
+    private final Path outputDirectory;
+    private final WatchService watchService;
+    private final StreamingFilePrinterService printerService;
+    private final SchedulerMetrics metrics;
+    private final byte[] lineSeparator = System.lineSeparator().getBytes(Charset.defaultCharset());
+
+    private final Map<Path, WatchedFile> files = new HashMap<>();
+
+    /**
+     * What the watcher knows of an input file.
+     */
+    private static class WatchedFile {
+        /** the identity of the file read, to spot it being replaced */
+        private Object fileKey;
+        /** the number of bytes read */
+        private long offset;
+        /** the number of lines read */
+        private long lines;
+        /** false if the last line read had no line terminator */
+        private boolean terminated = true;
+        private boolean invalid;
+        /** null until the office hours have been read */
+        private ConcurrentScheduleStore schedule;
+        /** each day of the output as it is on disk, without line separators between days */
+        private final NavigableMap<LocalDate, byte[]> days = new TreeMap<>();
+    }
+
+    /**
+     * @param inputDirectory the directory of the booking files to watch
+     * @param outputDirectory the directory to keep the schedules in, created if need be
+     */
+    public ScheduleWatcher(Path inputDirectory, Path outputDirectory) throws IOException {
+        this(inputDirectory, outputDirectory, new SchedulerMetrics());
+    }
+
+    /**
+     * @param inputDirectory the directory of the booking files to watch
+     * @param outputDirectory the directory to keep the schedules in, created if need be
+     * @param metrics the metrics to count the requests of every file in, which also say where a rejected
+     * request is reported
+     */
+    public ScheduleWatcher(Path inputDirectory, Path outputDirectory, SchedulerMetrics metrics) throws IOException {
+        if (inputDirectory.toAbsolutePath().normalize().equals(outputDirectory.toAbsolutePath().normalize())) {
+            throw new IllegalArgumentException("the output directory must not be the input directory");
+        }
+        this.inputDirectory = inputDirectory;
+        this.outputDirectory = outputDirectory;
+        Files.createDirectories(outputDirectory);
+        this.printerService = new StreamingFilePrinterService(outputDirectory.toString());
+        this.metrics = metrics;
+        this.watchService = inputDirectory.getFileSystem().newWatchService();
+        inputDirectory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    /**
+     * Schedules the files already in the input directory and then each change to them, until the
+     * watcher is closed or the thread interrupted.
+     */
+    @Override
+    public void produceSchedule() {
+        System.out.println("Watching " + inputDirectory + "...");
+        try {
+            updateAll();
+            while (true) {
+                WatchKey key = watchService.take();
+                Set<Path> changed = new LinkedHashSet<>();
+                boolean overflow = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        overflow = true;
+                    } else {
+                        changed.add(inputDirectory.resolve((Path) event.context()));
+                    }
+                }
+                if (!key.reset()) {
+                    System.err.println(inputDirectory + " can no longer be watched");
+                    return;
+                }
+                if (overflow) {
+                    updateAll();
+                } else {
+                    for (Path inputFile : changed) {
+                        try {
+                            update(inputFile);
+                        } catch (IOException e) {
+                            // the file may have gone again already, leave it to its next change
+                            e.printStackTrace();
+                        }
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // closed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Brings the output of every file in the input directory up to date, and deletes the output of the
+     * files no longer there.
+     */
+    public void updateAll() throws IOException {
+        Set<Path> inputFiles = new TreeSet<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(inputDirectory)) {
+            for (Path entry : entries) {
+                inputFiles.add(entry);
+            }
+        }
+        inputFiles.addAll(files.keySet());
+        for (Path inputFile : inputFiles) {
+            update(inputFile);
+        }
+    }
+
+    /**
+     * Brings the output of an input file up to date with its contents.
+     * @param inputFile a file in the input directory
+     * @return the number of requests read, -1 if the file was found to be invalid
+     */
+    public long update(final Path inputFile) throws IOException {
+        Path outputFile = outputDirectory.resolve(inputFile.getFileName().toString());
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(inputFile, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            attributes = null;
+        }
+        if (attributes == null || !attributes.isRegularFile()) {
+            if (files.remove(inputFile) != null) {
+                Files.deleteIfExists(outputFile);
+                System.out.println("Removed " + outputFile);
+            }
+            return 0;
+        }
+
+        WatchedFile file = files.get(inputFile);
+        if (file == null || file.invalid || attributes.size() < file.offset
+                || !Objects.equals(file.fileKey, attributes.fileKey())) {
+            file = new WatchedFile();
+            file.fileKey = attributes.fileKey();
+            files.put(inputFile, file);
+        } else if (attributes.size() == file.offset) {
+            return 0;
+        }
+
+        boolean reload = file.schedule == null && file.offset == 0;
+        long start = System.nanoTime();
+        long requests;
+        Set<LocalDate> changed = new TreeSet<>();
+        try {
+            requests = read(inputFile, file, changed);
+            if (requests < 0) {
+                // the line thought to be the last of the file went on, so start again
+                file = new WatchedFile();
+                file.fileKey = attributes.fileKey();
+                files.put(inputFile, file);
+                reload = true;
+                requests = read(inputFile, file, changed);
+            }
+        } catch (InvalidBookingRequestException e) {
+            System.err.println(inputFile + ": " + e.getMessage());
+            file.invalid = true;
+            file.days.clear();
+            Files.write(outputFile, ERROR_TXT.getBytes());
+            return -1;
+        }
+        metrics.recordStage(Stage.PARSE, System.nanoTime() - start, requests);
+        start = System.nanoTime();
+        int rewritten = write(outputFile, file, changed, reload);
+        metrics.recordStage(Stage.PRINT, System.nanoTime() - start, requests);
+        System.out.println("Rescheduled " + outputFile + ": " + requests + " requests read, " + rewritten
+                + " days rewritten");
+        return requests;
+    }
+
+    /**
+     * Reads the complete requests after the offset into the file's schedule.
+     * @param changed gets the dates of the requests read
+     * @return the number of requests read, or -1 if the file has to be read again from the start
+     */
+    private long read(final Path inputFile, final WatchedFile file, final Set<LocalDate> changed)
+            throws IOException {
+        byte[] bytes;
+        try (FileChannel channel = FileChannel.open(inputFile, StandardOpenOption.READ)) {
+            long size = channel.size() - file.offset;
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException(inputFile + " grew by too much at once");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(size, 0));
+            channel.position(file.offset);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // read up to the size seen
+            }
+            bytes = Arrays.copyOf(buffer.array(), buffer.position());
+        }
+
+        int start = 0;
+        if (!file.terminated && bytes.length > 0) {
+            if (bytes[0] == '\n') {
+                start = 1;
+            } else if (bytes[0] == '\r' && bytes.length > 1 && bytes[1] == '\n') {
+                start = 2;
+            } else {
+                return -1;
+            }
+            file.terminated = true;
+        }
+
+        // the end of the last complete header or request, in lines of one and two
+        boolean header = file.schedule == null;
+        int linesPerUnit = header ? 1 : 2;
+        int lines = 0;
+        int end = start;
+        for (int i = start; i < bytes.length; i++) {
+            if (bytes[i] == '\n' && ++lines == linesPerUnit) {
+                end = i + 1;
+                lines = 0;
+                linesPerUnit = 2;
+            }
+        }
+        boolean terminated = true;
+        if (bytes.length > end && bytes[bytes.length - 1] != '\n' && lines == linesPerUnit - 1) {
+            // an unterminated line completing a header or request
+            end = bytes.length;
+            terminated = false;
+        }
+        file.offset += start;
+        if (end == start) {
+            return 0;
+        }
+
+        long requests = 0;
+        try (BookingRequestReader reader = new BookingRequestReader(
+                new ByteArrayInputStream(bytes, start, end - start), file.lines, file.offset)) {
+            // the watcher runs for good, so ids it stops seeing are not kept in the EmployeeDictionary
+            reader.setInternEmployees(false);
+            if (header) {
+                BookingRequestBatch batch = reader.readHeader();
+                file.schedule = new ConcurrentScheduleStore(batch.getOpeningTime(), batch.getClosingTime(), metrics);
+            }
+            BookingRequest booking;
+            while ((booking = reader.next()) != null) {
+                file.schedule.submit(booking);
+                changed.add(booking.getMeetingDate());
+                requests++;
+            }
+            file.lines = reader.getLineNumber();
+        }
+        file.offset += end - start;
+        file.terminated = terminated;
+        return requests;
+    }
+
+    /**
+     * Formats the changed days again and rewrites the output file from the first of them that differs.
+     * @param all true to write the whole file
+     * @return the number of days written
+     */
+    private int write(final Path outputFile, final WatchedFile file, final Set<LocalDate> changed,
+            final boolean all) throws IOException {
+        LocalDate first = null;
+        for (LocalDate date : changed) {
+            SortedSet<BookingRequest> meetings = file.schedule.getSchedule(date);
+            byte[] day = meetings.isEmpty() ? null : format(date, meetings);
+            byte[] before = day == null ? file.days.remove(date) : file.days.put(date, day);
+            if (!Arrays.equals(before, day) && first == null) {
+                first = date;
+            }
+        }
+        if (all) {
+            first = LocalDate.MIN;
+        } else if (first == null) {
+            return 0;
+        }
+
+        long position = 0;
+        for (byte[] day : file.days.headMap(first).values()) {
+            position += day.length + lineSeparator.length;
+        }
+        int written = 0;
+        try (FileChannel channel = FileChannel.open(outputFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            if (position > 0) {
+                // the separator after the last day kept goes with the next day
+                position -= lineSeparator.length;
+            }
+            channel.position(position);
+            for (Entry<LocalDate, byte[]> day : file.days.tailMap(first, true).entrySet()) {
+                if (channel.position() > 0) {
+                    writeFully(channel, lineSeparator);
+                }
+                writeFully(channel, day.getValue());
+                written++;
+            }
+            channel.truncate(channel.position());
+        }
+        return written;
+    }
+
+    private byte[] format(final LocalDate date, final SortedSet<BookingRequest> meetings) throws IOException {
+        ByteArrayOutputStream day = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(day, Charset.defaultCharset())) {
+            printerService.printDay(date, meetings, true, writer);
+        }
+        return day.toByteArray();
+    }
+
+    private static void writeFully(final FileChannel channel, final byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    public SchedulerMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
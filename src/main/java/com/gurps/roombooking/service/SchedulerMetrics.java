@@ -0,0 +1,435 @@
+package com.gurps.roombooking.service;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.service.RejectionLog.Reason;
+
+/**
+ * Counters for a scheduling run: the time spent in and records through each stage, the fate of each
+ * request, and the conflicts on each meeting date.
+ *
+ * Every counter is a LongAdder so calculator threads record without contending on a shared field.
+ * The metrics also decide where a rejected request is reported: on the console, as the calculator always
+ * has, to a RejectionLog written in the background, or nowhere, in which case a rejection costs a
+ * counter increment and nothing is formatted. A run that may be abandoned can hold its rejections back
+ * until it is added to the metrics that report them.
+ */
+public class SchedulerMetrics implements SchedulerMetricsMBean {
+
+    public static final String OBJECT_NAME = "com.gurps.roombooking:type=SchedulerMetrics";
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * The stages of a run, each timed separately.
+     */
+    public enum Stage {
+        PARSE, CALCULATE, PRINT
+    }
+
+    private final LongAdder[] stageNanos = newAdders(Stage.values().length);
+    private final LongAdder[] stageRecords = newAdders(Stage.values().length);
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder outsideOfficeHours = new LongAdder();
+    private final LongAdder ruleViolations = new LongAdder();
+    private final LongAdder noRoom = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final Map<LocalDate, LongAdder> conflictsByDay = new ConcurrentHashMap<>();
+
+    private volatile boolean logRejections = true;
+    private volatile RejectionLog rejectionLog;
+    /** the rejections held back until these metrics are added to others, null to report them at once */
+    private volatile Queue<Rejection> heldRejections;
+
+    /**
+     * Adds the time a stage took over some number of records.
+     * @param nanos the elapsed time, from System.nanoTime
+     * @param records the number of requests the stage handled
+     */
+    public void recordStage(final Stage stage, final long nanos, final long records) {
+        stageNanos[stage.ordinal()].add(nanos);
+        stageRecords[stage.ordinal()].add(records);
+    }
+
+    public void recordAccepted() {
+        accepted.increment();
+    }
+
+    public void recordConflict(final BookingRequest booking) {
+        countConflict(booking.getMeetingDate());
+        reject(Reason.CONFLICT, booking);
+    }
+
+    /**
+     * Columnar variant of recordConflict.
+     * @param submissionEpochSecond the submission time as seconds since the epoch at UTC
+     */
+    public void recordConflict(final LocalDate meetingDate, final long submissionEpochSecond, final String employee) {
+        countConflict(meetingDate);
+        reject(Reason.CONFLICT, submissionEpochSecond, employee);
+    }
+
+    public void recordOutsideOfficeHours(final BookingRequest booking) {
+        outsideOfficeHours.increment();
+        reject(Reason.OUTSIDE_OFFICE_HOURS, booking);
+    }
+
+    /**
+     * Columnar variant of recordOutsideOfficeHours.
+     * @param submissionEpochSecond the submission time as seconds since the epoch at UTC
+     */
+    public void recordOutsideOfficeHours(final long submissionEpochSecond, final String employee) {
+        outsideOfficeHours.increment();
+        reject(Reason.OUTSIDE_OFFICE_HOURS, submissionEpochSecond, employee);
+    }
+
+    public void recordRuleViolation(final BookingRequest booking) {
+        ruleViolations.increment();
+        reject(Reason.RULE_VIOLATION, booking);
+    }
+
+    /**
+     * Columnar variant of recordRuleViolation.
+     * @param submissionEpochSecond the submission time as seconds since the epoch at UTC
+     */
+    public void recordRuleViolation(final long submissionEpochSecond, final String employee) {
+        ruleViolations.increment();
+        reject(Reason.RULE_VIOLATION, submissionEpochSecond, employee);
+    }
+
+    /**
+     * Counts a request for more attendees than any of the rooms holds.
+     */
+    public void recordNoRoom(final BookingRequest booking) {
+        noRoom.increment();
+        reject(Reason.NO_ROOM, booking);
+    }
+
+    /**
+     * Counts a request taken one at a time that has the same submission time as one taken before it.
+     */
+    public void recordDuplicate(final BookingRequest booking) {
+        duplicates.increment();
+        reject(Reason.DUPLICATE, booking);
+    }
+
+    private void countConflict(final LocalDate meetingDate) {
+        conflicts.increment();
+        conflictsByDay.computeIfAbsent(meetingDate, date -> new LongAdder()).increment();
+    }
+
+    private void reject(final Reason reason, final BookingRequest booking) {
+        Queue<Rejection> held = heldRejections;
+        if (held != null) {
+            held.add(new Rejection(reason, booking.getRequestDate().toEpochSecond(booking.getRequestTime(),
+                    ZoneOffset.UTC), booking.getEmployeeId()));
+            return;
+        }
+        RejectionLog log = rejectionLog;
+        if (log != null) {
+            log.record(reason, booking.getRequestDate(), booking.getRequestTime(), booking.getEmployeeId());
+        } else if (logRejections) {
+            System.out.println(reason.getMessage() + booking.getRequestDate() + " " + booking.getRequestTime());
+        }
+    }
+
+    private void reject(final Reason reason, final long submissionEpochSecond, final String employee) {
+        Queue<Rejection> held = heldRejections;
+        if (held != null) {
+            held.add(new Rejection(reason, submissionEpochSecond, employee));
+            return;
+        }
+        RejectionLog log = rejectionLog;
+        if (log != null) {
+            log.record(reason, submissionEpochSecond, employee);
+        } else if (logRejections) {
+            LocalDateTime submission = LocalDateTime.ofEpochSecond(submissionEpochSecond, 0, ZoneOffset.UTC);
+            System.out.println(reason.getMessage() + submission.toLocalDate() + " " + submission.toLocalTime());
+        }
+    }
+
+    /**
+     * Adds the counters of another run to these and reports the rejections it held back, if any, where
+     * these metrics report theirs. Rejections the other run reported itself are not reported again.
+     */
+    public void add(final SchedulerMetrics other) {
+        for (Stage stage : Stage.values()) {
+            stageNanos[stage.ordinal()].add(other.getStageNanos(stage));
+            stageRecords[stage.ordinal()].add(other.getStageRecords(stage));
+        }
+        accepted.add(other.getAccepted());
+        conflicts.add(other.getConflicts());
+        outsideOfficeHours.add(other.getOutsideOfficeHours());
+        ruleViolations.add(other.getRuleViolations());
+        noRoom.add(other.getNoRoom());
+        duplicates.add(other.getDuplicates());
+        for (Entry<LocalDate, Long> day : other.getConflictsByDay().entrySet()) {
+            conflictsByDay.computeIfAbsent(day.getKey(), date -> new LongAdder()).add(day.getValue());
+        }
+        Queue<Rejection> held = other.heldRejections;
+        if (held != null) {
+            for (Rejection rejection : held) {
+                reject(rejection.reason, rejection.submissionEpochSecond, rejection.employee);
+            }
+        }
+    }
+
+    public long getStageNanos(final Stage stage) {
+        return stageNanos[stage.ordinal()].sum();
+    }
+
+    public long getStageRecords(final Stage stage) {
+        return stageRecords[stage.ordinal()].sum();
+    }
+
+    @Override
+    public long getRequestsRead() {
+        return getStageRecords(Stage.PARSE);
+    }
+
+    @Override
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    @Override
+    public long getConflicts() {
+        return conflicts.sum();
+    }
+
+    @Override
+    public long getOutsideOfficeHours() {
+        return outsideOfficeHours.sum();
+    }
+
+    @Override
+    public long getRuleViolations() {
+        return ruleViolations.sum();
+    }
+
+    @Override
+    public long getNoRoom() {
+        return noRoom.sum();
+    }
+
+    @Override
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    @Override
+    public long getParseMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(getStageNanos(Stage.PARSE));
+    }
+
+    @Override
+    public long getCalculateMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(getStageNanos(Stage.CALCULATE));
+    }
+
+    @Override
+    public long getPrintMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(getStageNanos(Stage.PRINT));
+    }
+
+    @Override
+    public double getRecordsPerSecond() {
+        long nanos = 0;
+        for (Stage stage : Stage.values()) {
+            nanos += getStageNanos(stage);
+        }
+        return perSecond(getRequestsRead(), nanos);
+    }
+
+    /**
+     * @return the number of conflicts on each meeting date with any, in order of date
+     */
+    public SortedMap<LocalDate, Long> getConflictsByDay() {
+        SortedMap<LocalDate, Long> histogram = new TreeMap<>();
+        for (Entry<LocalDate, LongAdder> day : conflictsByDay.entrySet()) {
+            histogram.put(day.getKey(), day.getValue().sum());
+        }
+        return histogram;
+    }
+
+    @Override
+    public String[] getConflictHistogram() {
+        SortedMap<LocalDate, Long> histogram = getConflictsByDay();
+        String[] days = new String[histogram.size()];
+        int i = 0;
+        for (Entry<LocalDate, Long> day : histogram.entrySet()) {
+            days[i++] = day.getKey() + "=" + day.getValue();
+        }
+        return days;
+    }
+
+    @Override
+    public boolean isLogRejections() {
+        return logRejections;
+    }
+
+    /**
+     * @param logRejections false to stop printing a line per rejected request, which is then only counted
+     */
+    @Override
+    public void setLogRejections(final boolean logRejections) {
+        this.logRejections = logRejections;
+    }
+
+    /**
+     * Holds back the rejections recorded from now on instead of reporting them, until these metrics are
+     * added to others. Meant for a run that may be abandoned, whose rejections are then never reported.
+     */
+    public void holdRejections() {
+        heldRejections = new ConcurrentLinkedQueue<>();
+    }
+
+    public RejectionLog getRejectionLog() {
+        return rejectionLog;
+    }
+
+    /**
+     * @param rejectionLog the log to record rejected requests in instead of printing them, or null to
+     * print them if logRejections is set
+     */
+    public void setRejectionLog(final RejectionLog rejectionLog) {
+        this.rejectionLog = rejectionLog;
+    }
+
+    /**
+     * The counters as a single line of JSON, for example
+     * <pre>
+     * {"requests":5,"accepted":3,"conflicts":1,"outsideOfficeHours":1,"ruleViolations":0,"noRoom":0,
+     *  "duplicates":0,"recordsPerSecond":2500.0,
+     *  "stages":{"parse":{"millis":1,"records":5,"recordsPerSecond":5000.0},...},
+     *  "conflictsByDay":{"2011-03-21":1}}
+     * </pre>
+     */
+    @Override
+    public String getSummary() {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"requests\":").append(getRequestsRead())
+                .append(",\"accepted\":").append(getAccepted())
+                .append(",\"conflicts\":").append(getConflicts())
+                .append(",\"outsideOfficeHours\":").append(getOutsideOfficeHours())
+                .append(",\"ruleViolations\":").append(getRuleViolations())
+                .append(",\"noRoom\":").append(getNoRoom())
+                .append(",\"duplicates\":").append(getDuplicates())
+                .append(",\"recordsPerSecond\":").append(getRecordsPerSecond())
+                .append(",\"stages\":{");
+        for (Stage stage : Stage.values()) {
+            if (stage.ordinal() > 0) {
+                json.append(',');
+            }
+            long nanos = getStageNanos(stage);
+            long records = getStageRecords(stage);
+            json.append('"').append(stage.name().toLowerCase()).append("\":{\"millis\":")
+                    .append(TimeUnit.NANOSECONDS.toMillis(nanos))
+                    .append(",\"records\":").append(records)
+                    .append(",\"recordsPerSecond\":").append(perSecond(records, nanos)).append('}');
+        }
+        json.append("},\"conflictsByDay\":{");
+        boolean first = true;
+        for (Entry<LocalDate, Long> day : getConflictsByDay().entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append('"').append(day.getKey()).append("\":").append(day.getValue());
+        }
+        return json.append("}}").toString();
+    }
+
+    @Override
+    public void reset() {
+        for (Stage stage : Stage.values()) {
+            stageNanos[stage.ordinal()].reset();
+            stageRecords[stage.ordinal()].reset();
+        }
+        accepted.reset();
+        conflicts.reset();
+        outsideOfficeHours.reset();
+        ruleViolations.reset();
+        noRoom.reset();
+        duplicates.reset();
+        conflictsByDay.clear();
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server under OBJECT_NAME, replacing any metrics
+     * registered before.
+     */
+    public void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = objectName();
+        try {
+            server.registerMBean(this, name);
+        } catch (InstanceAlreadyExistsException e) {
+            unregister();
+            server.registerMBean(this, name);
+        }
+    }
+
+    /**
+     * Removes whichever metrics are registered under OBJECT_NAME, if any.
+     */
+    public static void unregister() throws JMException {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName());
+        } catch (InstanceNotFoundException e) {
+            // nothing registered
+        }
+    }
+
+    private static ObjectName objectName() throws MalformedObjectNameException {
+        return new ObjectName(OBJECT_NAME);
+    }
+
+    private static double perSecond(final long records, final long nanos) {
+        return nanos == 0 ? 0 : records * NANOS_PER_SECOND / nanos;
+    }
+
+    /**
+     * A rejection held back, in the form the RejectionLog records it.
+     */
+    private static final class Rejection {
+        private final Reason reason;
+        private final long submissionEpochSecond;
+        private final String employee;
+
+        Rejection(final Reason reason, final long submissionEpochSecond, final String employee) {
+            this.reason = reason;
+            this.submissionEpochSecond = submissionEpochSecond;
+            this.employee = employee;
+        }
+    }
+
+    private static LongAdder[] newAdders(final int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
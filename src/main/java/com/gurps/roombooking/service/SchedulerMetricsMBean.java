@@ -0,0 +1,58 @@
+package com.gurps.roombooking.service;
+
+/**
+ * Management interface of SchedulerMetrics, registered with the platform MBean server under
+ * SchedulerMetrics.OBJECT_NAME.
+ */
+public interface SchedulerMetricsMBean {
+
+    long getRequestsRead();
+
+    long getAccepted();
+
+    long getConflicts();
+
+    long getOutsideOfficeHours();
+
+    /**
+     * @return the number of requests rejected by the rules on each employee's meetings
+     */
+    long getRuleViolations();
+
+    /**
+     * @return the number of requests for more attendees than any of the rooms holds
+     */
+    long getNoRoom();
+
+    /**
+     * @return the number of requests taken one at a time with the submission time of one taken before
+     */
+    long getDuplicates();
+
+    long getParseMillis();
+
+    long getCalculateMillis();
+
+    long getPrintMillis();
+
+    /**
+     * @return the requests read per second of time spent in all the stages
+     */
+    double getRecordsPerSecond();
+
+    /**
+     * @return the number of conflicts on each meeting date with any, as date=count in order of date
+     */
+    String[] getConflictHistogram();
+
+    boolean isLogRejections();
+
+    void setLogRejections(boolean logRejections);
+
+    /**
+     * @return the counters as a single line of JSON
+     */
+    String getSummary();
+
+    void reset();
+}
@@ -0,0 +1,104 @@
+package com.gurps.roombooking.service;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.ScheduledMeetingComparator;
+import com.gurps.roombooking.domain.SlotCalendar;
+
+/**
+ * Applies the same business rules as the BasicCalculatorService but detects clashes with a
+ * SlotCalendar, i.e. a bitmap of time slots per day, so a conflict check is a handful of word
+ * level bit operations rather than a walk of a TreeSet.
+ */
+public class SlotCalendarCalculatorService implements ScheduleCalculatorService {
+
+    private static final int DEFAULT_GRANULARITY_MINUTES = 1;
+
+    private final int granularityMinutes;
+    private final SchedulerMetrics metrics;
+    private BookingRuleChain rules = BookingRuleChain.NONE;
+
+    public SlotCalendarCalculatorService() {
+        this(DEFAULT_GRANULARITY_MINUTES);
+    }
+
+    /**
+     * @param granularityMinutes the length of a calendar slot in minutes. Should divide every meeting
+     * start time, e.g. 15 or 30 when meetings only start on the quarter or half hour.
+     */
+    public SlotCalendarCalculatorService(final int granularityMinutes) {
+        this(granularityMinutes, new SchedulerMetrics());
+    }
+
+    /**
+     * @param granularityMinutes the length of a calendar slot in minutes
+     * @param metrics the metrics to count accepted and rejected requests in, which also say whether a
+     * line is printed per rejected request
+     */
+    public SlotCalendarCalculatorService(final int granularityMinutes, final SchedulerMetrics metrics) {
+        this.granularityMinutes = granularityMinutes;
+        this.metrics = metrics;
+    }
+
+    public SchedulerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param rules checked after the office hours and before the room is booked, none by default
+     */
+    @Override
+    public void setRules(final BookingRuleChain rules) {
+        this.rules = rules;
+    }
+
+    public BookingRuleChain getRules() {
+        return rules;
+    }
+
+    @Override
+    /**
+     * @param batch the BookingRequestBatch consisting of individual submissions
+     * @return Map consisting of meeting date against a set of BookingRequests ordered by meeting start time
+     *
+     * Booking requests outside office hours, breaking one of the rules on their employee's meetings or
+     * clashing with an earlier submission are skipped.
+     */
+    public Map<LocalDate, SortedSet<BookingRequest>> calculate(final BookingRequestBatch batch) {
+
+        System.out.println("....calculating output ....");
+
+        Map<LocalDate, SortedSet<BookingRequest>> meetingsSchedule = new TreeMap<>();
+        if (batch != null) {
+            SlotCalendar calendar = new SlotCalendar(granularityMinutes);
+            BookingRule.Check check = rules.start();
+            for (BookingRequest booking : batch.getBookingRequests()) {
+                if (BasicCalculatorService.isOutsideOfficeHours(booking, batch.getOpeningTime(),
+                        batch.getClosingTime())) {
+                    metrics.recordOutsideOfficeHours(booking);
+                } else if (!BookingRuleChain.allows(check, booking)) {
+                    metrics.recordRuleViolation(booking);
+                } else if (calendar.reserve(booking.getMeetingEpochDay(), booking.getMeetingStartMinute(),
+                        booking.getMeetingEndMinute())) {
+                    SortedSet<BookingRequest> meetings = meetingsSchedule.get(booking.getMeetingDate());
+                    if (meetings == null) {
+                        meetings = new TreeSet<>(new ScheduledMeetingComparator());
+                        meetingsSchedule.put(booking.getMeetingDate(), meetings);
+                    }
+                    meetings.add(booking);
+                    metrics.recordAccepted();
+                    BookingRuleChain.accepted(check, booking);
+                } else {
+                    metrics.recordConflict(booking);
+                }
+            }
+        }
+        return meetingsSchedule;
+    }
+}
@@ -0,0 +1,198 @@
+package com.gurps.roombooking.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedSet;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestStore;
+import com.gurps.roombooking.domain.MeetingRoom;
+
+/**
+ * Writes the schedule to a file as it is formatted rather than building it all in memory first.
+ *
+ * Rows go through a buffered Writer in the platform charset with the times formatted by hand, so the
+ * output is byte for byte the same as FilePrinterServiceImpl without holding a second copy of the
+ * schedule as a String.
+ */
+public class StreamingFilePrinterService implements SchedulePrinterService {
+
+    private static final char OUT_FILE_DELIM = ' ';
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final int MINUTES_PER_DAY = 24 * MINUTES_PER_HOUR;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int TIME_LENGTH = 5;
+
+    private final String outputFilePath;
+    private final String lineSeparator = System.getProperty("line.separator");
+
+    // scratch space for formatting a time
+    private final char[] time = new char[TIME_LENGTH];
+
+    public StreamingFilePrinterService(String outputFilePath) {
+        this.outputFilePath = outputFilePath;
+    }
+
+    /**
+     * @param bookings All the successful booking requests
+     * Formats the bookings and writes them to the file one row at a time.
+     */
+    @Override
+    public void print(Map<LocalDate, SortedSet<BookingRequest>> bookings) throws IOException {
+        try (Writer writer = newWriter()) {
+            print(bookings, writer);
+        }
+    }
+
+    /**
+     * Formats the bookings in the same way as print(Map) but to the given writer, which is left open.
+     */
+    public void print(Map<LocalDate, SortedSet<BookingRequest>> bookings, Writer writer) throws IOException {
+        boolean firstDay = true;
+        for (Entry<LocalDate, SortedSet<BookingRequest>> entry : bookings.entrySet()) {
+            printDay(entry.getKey(), entry.getValue(), firstDay, writer);
+            firstDay = false;
+        }
+    }
+
+    /**
+     * Formats a single day of the schedule, for printing days as they become available. Printing the
+     * days of a schedule in order of date gives the same output as print(Map).
+     * @param firstDay true if this is the first day written, which is not preceded by a line separator
+     */
+    public void printDay(LocalDate day, SortedSet<BookingRequest> meetings, boolean firstDay, Writer writer)
+            throws IOException {
+        if (!firstDay) {
+            writer.write(lineSeparator);
+        }
+        writer.write(day.toString());
+        writer.write(lineSeparator);
+        writeMeetings(writer, meetings);
+    }
+
+    /**
+     * Prints a multi room schedule, grouped by date and then by room:
+     * <pre>
+     * 2011-03-21
+     * Board
+     * 09:00 11:00 EMP002
+     * Blue
+     * 09:00 10:00 EMP005
+     * </pre>
+     * @param bookings meeting date against the rooms and their meetings, as produced by the MultiRoomCalculatorService
+     */
+    public void printRooms(Map<LocalDate, Map<MeetingRoom, SortedSet<BookingRequest>>> bookings) throws IOException {
+        try (Writer writer = newWriter()) {
+            boolean firstDay = true;
+            for (Entry<LocalDate, Map<MeetingRoom, SortedSet<BookingRequest>>> day : bookings.entrySet()) {
+                if (!firstDay) {
+                    writer.write(lineSeparator);
+                }
+                firstDay = false;
+                writer.write(day.getKey().toString());
+                for (Entry<MeetingRoom, SortedSet<BookingRequest>> room : day.getValue().entrySet()) {
+                    writer.write(lineSeparator);
+                    writer.write(room.getKey().getName());
+                    writer.write(lineSeparator);
+                    writeMeetings(writer, room.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Columnar variant of print which formats the accepted records straight from the store.
+     * The output is identical to print for the same schedule.
+     * @param store the booking requests
+     * @param schedule indexes of the accepted records ordered by meeting date and then start time
+     */
+    public void print(final BookingRequestStore store, final int[] schedule) throws IOException {
+        try (Writer writer = newWriter()) {
+            long previousDay = 0;
+            for (int i = 0; i < schedule.length; i++) {
+                int record = schedule[i];
+                long meetingDay = store.getMeetingEpochDay(record);
+                if (i > 0) {
+                    writer.write(lineSeparator);
+                }
+                if (i == 0 || meetingDay != previousDay) {
+                    writer.write(LocalDate.ofEpochDay(meetingDay).toString());
+                    writer.write(lineSeparator);
+                    previousDay = meetingDay;
+                }
+                writeTime(writer, store.getStartMinute(record));
+                writer.write(OUT_FILE_DELIM);
+                writeTime(writer, store.getEndMinute(record) % MINUTES_PER_DAY);
+                writer.write(OUT_FILE_DELIM);
+                writer.write(store.getEmployee(store.getEmployeeIndex(record)));
+            }
+        }
+    }
+
+    /**
+     * Writes one row per meeting, with line separators between but not after the rows.
+     */
+    private void writeMeetings(final Writer writer, final SortedSet<BookingRequest> meetings) throws IOException {
+        boolean firstMeeting = true;
+        for (BookingRequest bookingRequest : meetings) {
+            if (!firstMeeting) {
+                writer.write(lineSeparator);
+            }
+            firstMeeting = false;
+            writeTime(writer, bookingRequest.getMeetingStartTime());
+            writer.write(OUT_FILE_DELIM);
+            writeTime(writer, bookingRequest.getMeetingEndDateTime().toLocalTime());
+            writer.write(OUT_FILE_DELIM);
+            // "null" for a request without an employee id, as the FilePrinterServiceImpl appends it
+            writer.write(String.valueOf(bookingRequest.getEmployeeId()));
+        }
+    }
+
+    /**
+     * @return a buffered writer to the output file in the platform charset
+     */
+    Writer newWriter() throws IOException {
+        Path path = Paths.get(outputFilePath);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent()); //create directory structure if not already present
+        }
+        // unlike Files.newBufferedWriter this replaces unmappable characters, as String.getBytes does
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path), Charset.defaultCharset()),
+                BUFFER_SIZE);
+    }
+
+    /**
+     * Writes the time the same way as LocalTime.toString, by hand when it is a whole minute.
+     */
+    private void writeTime(final Writer writer, final LocalTime localTime) throws IOException {
+        if (localTime.getSecond() == 0 && localTime.getNano() == 0) {
+            writeTime(writer, localTime.getHour() * MINUTES_PER_HOUR + localTime.getMinute());
+        } else {
+            writer.write(localTime.toString());
+        }
+    }
+
+    /**
+     * Writes a minute-of-day as HH:mm.
+     */
+    private void writeTime(final Writer writer, final int minuteOfDay) throws IOException {
+        int hour = minuteOfDay / MINUTES_PER_HOUR;
+        int minute = minuteOfDay % MINUTES_PER_HOUR;
+        time[0] = (char) ('0' + hour / 10);
+        time[1] = (char) ('0' + hour % 10);
+        time[2] = ':';
+        time[3] = (char) ('0' + minute / 10);
+        time[4] = (char) ('0' + minute % 10);
+        writer.write(time, 0, TIME_LENGTH);
+    }
+}
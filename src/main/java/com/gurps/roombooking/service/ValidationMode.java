@@ -0,0 +1,24 @@
+package com.gurps.roombooking.service;
+
+/**
+ * How the requests of an input file are validated before they are scheduled.
+ */
+public enum ValidationMode {
+
+    /**
+     * No separate validation: a badly formatted request is found while the requests are parsed and the
+     * output is the error.
+     */
+    NONE,
+
+    /**
+     * The whole file is checked first without creating any objects, so a badly formatted request aborts
+     * the run, with its line number and byte offset, before any work is done on the others.
+     */
+    STRICT,
+
+    /**
+     * Badly formatted requests are skipped, with their line numbers logged, and the rest are scheduled.
+     */
+    LENIENT
+}
@@ -0,0 +1,130 @@
+package com.gurps.roombooking.http;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gurps.roombooking.domain.EmployeeDictionary;
+import com.gurps.roombooking.service.IncrementalSchedulerService;
+
+public class TestBookingHttpServer {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private BookingHttpServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        IncrementalSchedulerService schedulerService = new IncrementalSchedulerService(LocalTime.of(9, 0),
+                LocalTime.of(17, 30), folder.getRoot() + "/output.txt");
+        server = new BookingHttpServer(schedulerService, new InetSocketAddress("localhost", 0));
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testBookAndQuery() throws IOException {
+        assertEquals(201, request("POST", "/bookings", "2011-03-17 10:17:06 EMP001\n2011-03-21 09:00 2"));
+        assertEquals(201, request("POST", "/bookings", "2011-03-16 12:34:56 EMP002\n2011-03-21 13:00 1"));
+        assertEquals(409, request("POST", "/bookings", "2011-03-18 09:28:23 EMP003\n2011-03-21 10:00 1"));
+        assertEquals(409, request("POST", "/bookings", "2011-03-18 09:28:24 EMP004\n2011-03-21 17:00 1"));
+
+        assertEquals(200, request("GET", "/schedule/2011-03-21", null));
+        assertEquals("2011-03-21" + System.lineSeparator() + "09:00 11:00 EMP001" + System.lineSeparator()
+                + "13:00 14:00 EMP002", response);
+
+        assertEquals(200, request("GET", "/free-slots/2011-03-21", null));
+        assertEquals("11:00 13:00\n14:00 17:30", response);
+        assertEquals(200, request("GET", "/free-slots/2011-03-21?hours=3", null));
+        assertEquals("14:00 17:30", response);
+
+        assertEquals(200, request("GET", "/schedule/2011-03-22", null));
+        assertEquals("", response);
+    }
+
+    @Test
+    public void testClientIdsAreNotInterned() throws IOException {
+        assertEquals(201, request("POST", "/bookings", "2011-03-17 10:17:06 EMPHTTPONLY\n2011-03-21 09:00 2"));
+        assertEquals(200, request("GET", "/schedule/2011-03-21", null));
+        assertEquals("2011-03-21" + System.lineSeparator() + "09:00 11:00 EMPHTTPONLY", response);
+        assertEquals(EmployeeDictionary.NO_EMPLOYEE, EmployeeDictionary.getInstance().lookup("EMPHTTPONLY"));
+    }
+
+    @Test
+    public void testBadRequests() throws IOException {
+        assertEquals(400, request("POST", "/bookings", "2011-03-17 10:17:06 EMP001\n2011-03-21 09:00 -2"));
+        assertEquals(400, request("POST", "/bookings", ""));
+        assertEquals(405, request("GET", "/bookings", null));
+        assertEquals(404, request("GET", "/schedule/21-03-2011", null));
+        assertEquals(405, request("POST", "/free-slots/2011-03-21", "x"));
+        assertEquals(400, request("GET", "/free-slots/2011-03-21?hours=0", null));
+        assertEquals(400, request("GET", "/free-slots/2011-03-21?minutes=60", null));
+        // only the first request would be booked
+        assertEquals(400, request("POST", "/bookings", "2011-03-17 10:17:06 EMP001\n2011-03-21 09:00 2\n"
+                + "2011-03-17 10:17:07 EMP002\n2011-03-22 09:00 2"));
+        assertEquals(200, request("GET", "/schedule/2011-03-21", null));
+        assertEquals("", response);
+    }
+
+    @Test
+    public void testRequestTheJournalCannotLog() throws Exception {
+        Path input = folder.newFile("input.txt").toPath();
+        Files.write(input, Arrays.asList("0900 1730", "2011-03-17 10:17:06 EMP001", "2011-03-21 09:00 2"));
+        try (IncrementalSchedulerService journaled = IncrementalSchedulerService.open(
+                folder.newFolder("journal").toPath(), input.toString(), folder.getRoot() + "/journaled.txt")) {
+            server.stop(0);
+            server = new BookingHttpServer(journaled, new InetSocketAddress("localhost", 0));
+            server.start();
+            String employee = String.join("", Collections.nCopies(Short.MAX_VALUE + 1, "E"));
+            assertEquals(400, request("POST", "/bookings", "2011-03-17 10:17:07 " + employee + "\n2011-03-22 09:00 2"));
+            assertEquals(201, request("POST", "/bookings", "2011-03-17 10:17:08 EMP002\n2011-03-22 09:00 2"));
+        }
+    }
+
+    private String response;
+
+    private int request(final String method, final String path, final String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path)
+                .openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            if (in != null) {
+                in.transferTo(bytes);
+            }
+            response = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+        connection.disconnect();
+        return status;
+    }
+}
@@ -0,0 +1,123 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestBatchSchedulerService {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSameOutputAsSingleRuns() throws Exception {
+        Path sites = folder.newFolder("sites").toPath();
+        Files.copy(resource("/HappyFile.txt"), sites.resolve("happy.txt"));
+        Files.copy(resource("/InvalidDate.txt"), sites.resolve("invalid.txt"));
+        Files.copy(resource("/MultiRoomFile.txt"), sites.resolve("rooms.txt"));
+        Random random = new Random(21);
+        for (int site = 0; site < 8; site++) {
+            List<String> lines = new ArrayList<>();
+            lines.add("0900 1730");
+            for (int i = 0; i < 500; i++) {
+                lines.add(String.format("2011-03-%02d %02d:%02d:%02d EMP%03d", 1 + random.nextInt(10),
+                        random.nextInt(24), random.nextInt(60), random.nextInt(60), random.nextInt(100)));
+                lines.add(String.format("2011-04-%02d %02d:00 %d", 1 + random.nextInt(5), 8 + random.nextInt(10),
+                        1 + random.nextInt(3)));
+            }
+            Files.write(sites.resolve("site" + site + ".txt"), lines);
+        }
+        Files.write(sites.resolve("notes.md"), Arrays.asList("not a booking file"));
+
+        List<Path> inputFiles = BatchSchedulerService.findInputFiles(sites + File.separator + "*.txt");
+        assertEquals(11, inputFiles.size());
+
+        Path schedules = folder.getRoot().toPath().resolve("schedules");
+        BatchSchedulerService batch = new BatchSchedulerService(inputFiles, schedules, 3);
+        batch.produceSchedule();
+        assertEquals(11, batch.getFiles());
+        assertEquals(1, batch.getInvalidFiles());
+
+        for (Path inputFile : inputFiles) {
+            Path expected = folder.getRoot().toPath().resolve("expected-" + inputFile.getFileName());
+            new MeetingSchedulerServiceImpl(inputFile.toString(), expected.toString()).produceSchedule();
+            assertArrayEquals(inputFile.toString(), Files.readAllBytes(expected),
+                    Files.readAllBytes(schedules.resolve(inputFile.getFileName())));
+        }
+        assertEquals("INVALID INPUT", new String(Files.readAllBytes(schedules.resolve("invalid.txt"))));
+    }
+
+    @Test
+    public void testLenientValidation() throws Exception {
+        Path sites = folder.newFolder("sites").toPath();
+        Files.copy(resource("/InvalidDate.txt"), sites.resolve("invalid.txt"));
+        Path schedules = folder.getRoot().toPath().resolve("schedules");
+        BatchSchedulerService batch = new BatchSchedulerService(BatchSchedulerService.findInputFiles(sites.toString()),
+                schedules, 1);
+        batch.setValidationMode(ValidationMode.LENIENT);
+        batch.produceSchedule();
+        assertEquals(0, batch.getInvalidFiles());
+
+        Path expected = folder.getRoot().toPath().resolve("expected.txt");
+        MeetingSchedulerServiceImpl single = new MeetingSchedulerServiceImpl(sites.resolve("invalid.txt").toString(),
+                expected.toString());
+        single.setValidationMode(ValidationMode.LENIENT);
+        single.produceSchedule();
+        assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(schedules.resolve("invalid.txt")));
+    }
+
+    @Test
+    public void testFileRemovedBeforeItIsScheduled() throws Exception {
+        Path sites = folder.newFolder("sites").toPath();
+        Files.copy(resource("/HappyFile.txt"), sites.resolve("a.txt"));
+        Files.copy(resource("/HappyFile.txt"), sites.resolve("b.txt"));
+        Files.copy(resource("/HappyFile.txt"), sites.resolve("c.txt"));
+        List<Path> inputFiles = BatchSchedulerService.findInputFiles(sites.toString());
+        Files.delete(sites.resolve("a.txt"));
+
+        Path schedules = folder.getRoot().toPath().resolve("schedules");
+        BatchSchedulerService batch = new BatchSchedulerService(inputFiles, schedules, 2);
+        batch.produceSchedule();
+        assertEquals(1, batch.getInvalidFiles());
+        assertEquals("INVALID INPUT", new String(Files.readAllBytes(schedules.resolve("a.txt"))));
+        // the files after it are still scheduled
+        Path expected = folder.getRoot().toPath().resolve("expected.txt");
+        new MeetingSchedulerServiceImpl(resource("/HappyFile.txt").toString(), expected.toString()).produceSchedule();
+        for (String name : new String[] { "b.txt", "c.txt" }) {
+            assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(schedules.resolve(name)));
+        }
+    }
+
+    @Test
+    public void testDirectoryTakesEveryFile() throws Exception {
+        Path sites = folder.newFolder("sites").toPath();
+        Files.copy(resource("/HappyFile.txt"), sites.resolve("b.txt"));
+        Files.copy(resource("/HappyFile.txt"), sites.resolve("a"));
+        folder.newFolder("sites", "archive");
+        assertEquals(Arrays.asList(sites.resolve("a"), sites.resolve("b.txt")),
+                BatchSchedulerService.findInputFiles(sites.toString()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutputOverInput() throws Exception {
+        Path sites = folder.newFolder("sites").toPath();
+        Files.copy(resource("/HappyFile.txt"), sites.resolve("happy.txt"));
+        new BatchSchedulerService(BatchSchedulerService.findInputFiles(sites.toString()), sites, 1);
+    }
+
+    private Path resource(final String name) throws Exception {
+        return Paths.get(getClass().getResource(name).toURI());
+    }
+}
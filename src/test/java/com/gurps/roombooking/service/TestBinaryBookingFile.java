@@ -0,0 +1,105 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gurps.roombooking.domain.BookingRequestStore;
+
+public class TestBinaryBookingFile {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSameOutputAsTextInput() throws IOException {
+        Path input = folder.newFile("bookings.txt").toPath();
+        List<String> lines = new ArrayList<>();
+        lines.add("0830 1800");
+        Random random = new Random(16);
+        for (int i = 0; i < 3000; i++) {
+            lines.add(String.format("2011-03-%02d %02d:%02d:%02d EMP%03d", 1 + random.nextInt(10), random.nextInt(24),
+                    random.nextInt(60), random.nextInt(60), random.nextInt(200)));
+            lines.add(String.format("2011-04-%02d %02d:%02d %d", 1 + random.nextInt(30), 7 + random.nextInt(12),
+                    30 * random.nextInt(2), 1 + random.nextInt(3)));
+        }
+        Files.write(input, lines);
+        Path binary = folder.getRoot().toPath().resolve("bookings.rbb");
+        assertEquals(3000, BinaryBookingFile.convert(input, binary));
+        assertTrue(BinaryBookingFile.isBinary(binary));
+        assertFalse(BinaryBookingFile.isBinary(input));
+
+        BinaryBookingFile file = BinaryBookingFile.load(binary);
+        assertEquals(LocalTime.of(8, 30), file.getOpeningTime());
+        assertEquals(LocalTime.of(18, 0), file.getClosingTime());
+        BookingRequestStore expected = BookingRequestStore.onHeap();
+        try (BookingRequestReader reader = new BookingRequestReader(input)) {
+            reader.readHeader();
+            reader.readInto(expected);
+        }
+        BookingRequestStore actual = file.getStore();
+        assertEquals(expected.size(), actual.size());
+        for (int record = 0; record < expected.size(); record++) {
+            assertEquals(expected.getSubmissionEpochSecond(record), actual.getSubmissionEpochSecond(record));
+            assertEquals(expected.getMeetingEpochDay(record), actual.getMeetingEpochDay(record));
+            assertEquals(expected.getEndMinute(record), actual.getEndMinute(record));
+            assertEquals(expected.getEmployee(expected.getEmployeeIndex(record)),
+                    actual.getEmployee(actual.getEmployeeIndex(record)));
+        }
+
+        File expectedOutput = new File(folder.getRoot(), "expected.txt");
+        File actualOutput = new File(folder.getRoot(), "actual.txt");
+        new MeetingSchedulerServiceImpl(input.toString(), expectedOutput.getPath()).produceSchedule();
+        new ColumnarMeetingSchedulerService(binary.toString(), actualOutput.getPath(), false).produceSchedule();
+        assertArrayEquals(Files.readAllBytes(expectedOutput.toPath()), Files.readAllBytes(actualOutput.toPath()));
+    }
+
+    @Test
+    public void testWrappedStoreCopiesOnAdd() throws IOException, URISyntaxException {
+        Path binary = folder.getRoot().toPath().resolve("happy.rbb");
+        BinaryBookingFile.convert(Paths.get(getClass().getResource("/HappyFile.txt").toURI()), binary);
+        BookingRequestStore store = BinaryBookingFile.load(binary).getStore();
+        int size = store.size();
+        store.add(store.toBookingRequest(0));
+        assertEquals(size + 1, store.size());
+        assertEquals(store.getSubmissionEpochSecond(0), store.getSubmissionEpochSecond(size));
+    }
+
+    @Test
+    public void testTruncatedFile() throws IOException, URISyntaxException {
+        Path binary = folder.getRoot().toPath().resolve("happy.rbb");
+        BinaryBookingFile.convert(Paths.get(getClass().getResource("/HappyFile.txt").toURI()), binary);
+        byte[] bytes = Files.readAllBytes(binary);
+        Files.write(binary, Arrays.copyOf(bytes, bytes.length - 3));
+        try {
+            BinaryBookingFile.load(binary);
+            fail("a truncated file should not load");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().endsWith("is truncated"));
+        }
+    }
+
+    @Test(expected = InvalidBookingRequestException.class)
+    public void testRoomsNotConverted() throws IOException, URISyntaxException {
+        BinaryBookingFile.convert(Paths.get(getClass().getResource("/MultiRoomFile.txt").toURI()),
+                folder.getRoot().toPath().resolve("rooms.rbb"));
+    }
+}
@@ -0,0 +1,168 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.service.ConcurrentScheduleStore.Outcome;
+
+public class TestBookingJournal {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRecoverSameSchedule() throws Exception {
+        Path directory = folder.getRoot().toPath().resolve("journal");
+        Random random = new Random(15);
+        List<BookingRequest> bookings = new ArrayList<>();
+        for (int i = 0; i < 4000; i++) {
+            bookings.add(makeBookingRequest(random, i));
+        }
+
+        BookingJournal journal = BookingJournal.create(directory,
+                new ConcurrentScheduleStore(LocalTime.of(9, 0), LocalTime.of(17, 30)), 700);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                List<BookingRequest> share = bookings.subList(t * 1000, (t + 1) * 1000);
+                futures.add(executor.submit(() -> {
+                    for (BookingRequest booking : share) {
+                        journal.submit(booking);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        journal.close();
+
+        BookingJournal recovered = BookingJournal.recover(directory, 700);
+        assertEquals(describe(journal.getStore().getSchedule()), describe(recovered.getStore().getSchedule()));
+        assertEquals(LocalTime.of(17, 30), recovered.getStore().getClosingTime());
+        // the submission times seen before the restart are still taken
+        assertEquals(Outcome.DUPLICATE, recovered.submit(bookings.get(0)));
+        recovered.close();
+    }
+
+    @Test
+    public void testTornRecordIgnoredAndSnapshotCompacts() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("journal");
+        Random random = new Random(16);
+        BookingJournal journal = BookingJournal.create(directory,
+                new ConcurrentScheduleStore(LocalTime.of(9, 0), LocalTime.of(17, 30)), Long.MAX_VALUE);
+        for (int i = 0; i < 50; i++) {
+            journal.submit(makeBookingRequest(random, i));
+        }
+        journal.close();
+        Files.write(directory.resolve("log-1"), new byte[] {0, 0, 0, 60, 1, 2}, StandardOpenOption.APPEND);
+        assertTrue(BookingJournal.exists(directory));
+
+        BookingJournal recovered = BookingJournal.recover(directory, Long.MAX_VALUE);
+        assertEquals(describe(journal.getStore().getSchedule()), describe(recovered.getStore().getSchedule()));
+        assertEquals(Outcome.OUTSIDE_OFFICE_HOURS, recovered.submit(new BookingRequest.BookingRequestBuilder(
+                LocalDate.of(2014, 2, 1), LocalTime.of(8, 0)).meetingDate(LocalDate.of(2014, 3, 1))
+                .meetingStart(LocalTime.of(8, 0)).duration(1).employee("EMP999").build()));
+        recovered.snapshot();
+        recovered.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals("[log-3, snapshot-3]", files.map(file -> file.getFileName().toString()).sorted()
+                    .collect(Collectors.toList()).toString());
+        }
+
+        BookingJournal reopened = BookingJournal.recover(directory, Long.MAX_VALUE);
+        assertEquals(describe(recovered.getStore().getSchedule()), describe(reopened.getStore().getSchedule()));
+        assertFalse(reopened.getStore().getSchedule().isEmpty());
+        reopened.close();
+    }
+
+    @Test
+    public void testUnloggableRequestNotApplied() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("journal");
+        BookingJournal journal = BookingJournal.create(directory,
+                new ConcurrentScheduleStore(LocalTime.of(9, 0), LocalTime.of(17, 30)), Long.MAX_VALUE);
+        char[] employee = new char[Short.MAX_VALUE + 1];
+        Arrays.fill(employee, 'E');
+        BookingRequest tooLong = new BookingRequest.BookingRequestBuilder(LocalDate.of(2014, 2, 1),
+                LocalTime.of(8, 0)).meetingDate(LocalDate.of(2014, 3, 1)).meetingStart(LocalTime.of(10, 0))
+                .duration(1).employee(new String(employee)).build();
+        try {
+            journal.submit(tooLong);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertTrue(journal.getStore().getSchedule().isEmpty());
+        // the submission time was not taken either
+        BookingRequest shorter = new BookingRequest.BookingRequestBuilder(LocalDate.of(2014, 2, 1),
+                LocalTime.of(8, 0)).meetingDate(LocalDate.of(2014, 3, 1)).meetingStart(LocalTime.of(10, 0))
+                .duration(1).employee("EMP001").build();
+        assertEquals(Outcome.ACCEPTED, journal.submit(shorter));
+        journal.close();
+    }
+
+    @Test
+    public void testUnfinishedSnapshotDeletedOnRecovery() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("journal");
+        BookingJournal.create(directory, new ConcurrentScheduleStore(LocalTime.of(9, 0), LocalTime.of(17, 30)),
+                Long.MAX_VALUE).close();
+        Files.write(directory.resolve("snapshot-2.tmp"), new byte[] {1, 2, 3});
+
+        BookingJournal.recover(directory, Long.MAX_VALUE).close();
+        assertFalse(Files.exists(directory.resolve("snapshot-2.tmp")));
+    }
+
+    private static BookingRequest makeBookingRequest(final Random random, final int i) {
+        // a few requests share a submission time
+        return new BookingRequest.BookingRequestBuilder(LocalDate.of(2014, 1, 1),
+                LocalTime.ofSecondOfDay(i - i % 50 / 49).withNano(random.nextInt(2) * 1000))
+                .meetingDate(LocalDate.of(2014, 3, 1).plusDays(random.nextInt(10)))
+                .meetingStart(LocalTime.of(7 + random.nextInt(11), 15 * random.nextInt(4)))
+                .duration(1 + random.nextInt(3))
+                .attendees(1 + random.nextInt(5))
+                .employee("EMP" + i)
+                .build();
+    }
+
+    private static List<String> describe(final Map<LocalDate, SortedSet<BookingRequest>> schedule) {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<LocalDate, SortedSet<BookingRequest>> day : schedule.entrySet()) {
+            for (BookingRequest meeting : new TreeSet<>(day.getValue())) {
+                lines.add(day.getKey() + " " + meeting.getRequestDate() + " " + meeting.getRequestTime() + " "
+                        + meeting.getMeetingStartTime() + " " + meeting.getMeetingDuration() + " "
+                        + meeting.getAttendees() + " " + meeting.getEmployeeId());
+            }
+        }
+        return lines;
+    }
+}
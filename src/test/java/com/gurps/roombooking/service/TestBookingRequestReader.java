@@ -0,0 +1,215 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.MeetingRoom;
+
+public class TestBookingRequestReader {
+
+    @Test
+    public void testHappyFile() throws IOException {
+        try (BookingRequestReader reader = open("/HappyFile.txt")) {
+            BookingRequestBatch batch = reader.readHeader();
+            assertEquals(LocalTime.of(9, 0), batch.getOpeningTime());
+            assertEquals(LocalTime.of(17, 30), batch.getClosingTime());
+
+            BookingRequest first = reader.next();
+            assertEquals(LocalDate.of(2011, 3, 17), first.getRequestDate());
+            assertEquals(LocalTime.of(10, 17, 6), first.getRequestTime());
+            assertEquals("EMP001", first.getEmployeeId());
+            assertEquals(LocalDate.of(2011, 3, 21), first.getMeetingDate());
+            assertEquals(LocalTime.of(9, 0), first.getMeetingStartTime());
+            assertEquals(2, first.getMeetingDuration());
+
+            int count = 1;
+            while (reader.next() != null) {
+                count++;
+            }
+            assertEquals(5, count);
+            assertEquals(11, reader.getLineNumber());
+        }
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        try (BookingRequestReader reader = open("/EmptyInputFile.txt")) {
+            assertNull(reader.readHeader());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testWindowsLineEndings() throws IOException {
+        String input = "0900 1730\r\n2011-03-17 10:17:06 EMP001\r\n2011-03-21 09:00 2\r\n";
+        try (BookingRequestReader reader = new BookingRequestReader(new ByteArrayInputStream(input.getBytes()))) {
+            reader.readHeader();
+            BookingRequest request = reader.next();
+            assertEquals("EMP001", request.getEmployeeId());
+            assertEquals(2, request.getMeetingDuration());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testInvalidDate() throws IOException {
+        assertInvalid("/InvalidDate.txt", 2);
+    }
+
+    @Test
+    public void testInvalidRequestTime() throws IOException {
+        assertInvalid("/InvalidRequestTime.txt", 2);
+    }
+
+    @Test
+    public void testInvalidMeetingStartTime() throws IOException {
+        assertInvalid("/InvalidMeetingStartTime.txt", 3);
+    }
+
+    @Test
+    public void testMissingEmployeeId() throws IOException {
+        assertInvalid("/MissingEmployeeId.txt", 2);
+    }
+
+    @Test
+    public void testNegativeDuration() throws IOException {
+        assertInvalid("/NegativeDuration.txt", 3);
+    }
+
+    @Test
+    public void testZeroDuration() throws IOException {
+        assertInvalid("/ZeroDuration.txt", 3);
+    }
+
+    private void assertInvalid(final String resource, final long expectedLine) throws IOException {
+        try (BookingRequestReader reader = open(resource)) {
+            reader.readHeader();
+            while (reader.next() != null) {
+                // keep reading until the bad record is hit
+            }
+            fail("Expected InvalidBookingRequestException for " + resource);
+        } catch (InvalidBookingRequestException e) {
+            assertEquals(expectedLine, e.getLineNumber());
+        }
+    }
+
+    @Test
+    public void testRoomsAndAttendees() throws IOException {
+        try (BookingRequestReader reader = open("/MultiRoomFile.txt")) {
+            BookingRequestBatch batch = reader.readHeader();
+            assertEquals(Arrays.asList(new MeetingRoom("Board", 12), new MeetingRoom("Blue", 4),
+                    new MeetingRoom("Red", 6)), batch.getRooms());
+            assertEquals(3, reader.next().getAttendees());
+            reader.next();
+            reader.next();
+            // attendees default to one
+            assertEquals(1, reader.next().getAttendees());
+        }
+        try (BookingRequestReader reader = open("/HappyFile.txt")) {
+            assertTrue(reader.readHeader().getRooms().isEmpty());
+        }
+    }
+
+    @Test
+    public void testInvalidRooms() throws IOException {
+        for (String header : new String[] { "0900 1730 Board", "0900 1730 Board:0", "0900 1730 :4",
+                "0900 1730 Blue:4 Blue:6" }) {
+            try (BookingRequestReader reader = new BookingRequestReader(new ByteArrayInputStream(header.getBytes()))) {
+                reader.readHeader();
+                fail("Expected InvalidBookingRequestException for " + header);
+            } catch (InvalidBookingRequestException e) {
+                assertEquals(1, e.getLineNumber());
+            }
+        }
+        String input = "0900 1730\n2011-03-17 10:17:06 EMP001\n2011-03-21 09:00 2 0";
+        try (BookingRequestReader reader = new BookingRequestReader(new ByteArrayInputStream(input.getBytes()))) {
+            reader.readHeader();
+            reader.next();
+            fail("Expected InvalidBookingRequestException for zero attendees");
+        } catch (InvalidBookingRequestException e) {
+            assertEquals(3, e.getLineNumber());
+        }
+    }
+
+    @Test
+    public void testByteOffsets() throws IOException {
+        String input = "0900 1730\n2011-03-17 10:17:06 EMP001\n2011-03-21 09:00 2\n"
+                + "2011-03-16 12:34:56 EMP002\n2011-03-21 09:00 x\n";
+        try (BookingRequestReader reader = new BookingRequestReader(new ByteArrayInputStream(input.getBytes()))) {
+            reader.readHeader();
+            reader.next();
+            reader.next();
+            fail("Expected InvalidBookingRequestException for the second duration");
+        } catch (InvalidBookingRequestException e) {
+            assertEquals(5, e.getLineNumber());
+            assertEquals(input.indexOf("2011-03-21 09:00 x"), e.getByteOffset());
+            assertTrue(e.getMessage().startsWith("Line 5 (byte " + e.getByteOffset() + "): "));
+        }
+        // a missing meeting line is at the end of the input
+        String truncated = "0900 1730\n2011-03-17 10:17:06 EMP001\n";
+        try (BookingRequestReader reader = new BookingRequestReader(new ByteArrayInputStream(truncated.getBytes()))) {
+            reader.readHeader();
+            reader.next();
+            fail("Expected InvalidBookingRequestException for the missing line");
+        } catch (InvalidBookingRequestException e) {
+            assertEquals(3, e.getLineNumber());
+            assertEquals(truncated.length(), e.getByteOffset());
+        }
+    }
+
+    @Test
+    public void testValidate() throws IOException {
+        try (BookingRequestReader reader = open("/HappyFile.txt")) {
+            reader.readHeader();
+            assertEquals(5, reader.validate());
+        }
+        try (BookingRequestReader reader = open("/InvalidMeetingStartTime.txt")) {
+            reader.readHeader();
+            reader.validate();
+            fail("Expected InvalidBookingRequestException");
+        } catch (InvalidBookingRequestException e) {
+            assertTrue(e.getByteOffset() > 0);
+        }
+    }
+
+    @Test
+    public void testLenientSkipsBadRequests() throws IOException {
+        String input = "0900 1730\n"
+                + "2011-03-17 10:17:06 EMP001\n2011-03-21 09:00 2\n"
+                // bad duration, the whole request is skipped
+                + "2011-03-16 12:34:56 EMP002\n2011-03-21 09:00 x\n"
+                // missing meeting line, the next request is still read
+                + "2011-03-16 09:28:23 EMP003\n"
+                + "2011-03-17 11:23:45 EMP004\n2011-03-22 16:00 1\n"
+                // missing submission line, the meeting line is skipped on its own
+                + "2011-03-22 14:00 1\n"
+                + "2011-03-15 17:29:12 EMP005\n2011-03-21 16:00 3\n"
+                // bad submission line with no meeting line at the end of the input
+                + "2011-03-15 17:29 EMP006\n";
+        try (BookingRequestReader reader = new BookingRequestReader(new ByteArrayInputStream(input.getBytes()))) {
+            reader.setLenient(true);
+            reader.readHeader();
+            assertEquals("EMP001", reader.next().getEmployeeId());
+            assertEquals("EMP004", reader.next().getEmployeeId());
+            assertEquals("EMP005", reader.next().getEmployeeId());
+            assertNull(reader.next());
+            assertEquals(4, reader.getSkipped());
+        }
+    }
+
+    private BookingRequestReader open(final String resource) {
+        return new BookingRequestReader(getClass().getResourceAsStream(resource));
+    }
+}
@@ -0,0 +1,298 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.BookingRequestStore;
+import com.gurps.roombooking.domain.LongLongHashMap;
+import com.gurps.roombooking.domain.MeetingRoom;
+import com.gurps.roombooking.domain.SubmissionOrderedRequests;
+import com.gurps.roombooking.service.MaxHoursRule.Period;
+
+public class TestBookingRules {
+
+    private static final LocalDate MONDAY = LocalDate.of(2011, 3, 14);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testMaxHoursPerDay() {
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        metrics.setLogRejections(false);
+        BasicCalculatorService calculator = new BasicCalculatorService(metrics);
+        calculator.setRules(BookingRuleChain.of(new MaxHoursRule(4, Period.DAY)));
+        List<BookingRequest> requests = new ArrayList<>();
+        requests.add(request(0, "EMP01", MONDAY, 9, 2));
+        requests.add(request(1, "EMP01", MONDAY, 11, 2));
+        // over the limit for EMP01, but not for EMP02
+        requests.add(request(2, "EMP01", MONDAY, 14, 1));
+        requests.add(request(3, "EMP02", MONDAY, 14, 1));
+        // a new day
+        requests.add(request(4, "EMP01", MONDAY.plusDays(1), 9, 1));
+
+        Map<LocalDate, SortedSet<BookingRequest>> schedule = calculator.calculate(batch(requests));
+        assertEquals(3, schedule.get(MONDAY).size());
+        assertEquals("EMP02", schedule.get(MONDAY).last().getEmployeeId());
+        assertEquals(1, schedule.get(MONDAY.plusDays(1)).size());
+        assertEquals(1, metrics.getRuleViolations());
+        assertEquals(4, metrics.getAccepted());
+    }
+
+    @Test
+    public void testMaxHoursPerWeekRunsMondayToSunday() {
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        metrics.setLogRejections(false);
+        BasicCalculatorService calculator = new BasicCalculatorService(metrics);
+        calculator.setRules(BookingRuleChain.of(new MaxHoursRule(3, Period.WEEK)));
+        List<BookingRequest> requests = new ArrayList<>();
+        requests.add(request(0, "EMP01", MONDAY, 9, 2));
+        requests.add(request(1, "EMP01", MONDAY.plusDays(6), 9, 2));
+        requests.add(request(2, "EMP01", MONDAY.plusDays(7), 9, 2));
+
+        Map<LocalDate, SortedSet<BookingRequest>> schedule = calculator.calculate(batch(requests));
+        assertFalse(schedule.containsKey(MONDAY.plusDays(6)));
+        assertTrue(schedule.containsKey(MONDAY.plusDays(7)));
+        assertEquals(1, metrics.getRuleViolations());
+    }
+
+    @Test
+    public void testNoOverlapAgainstEveryAcceptedMeeting() {
+        Random random = new Random(25);
+        BookingRule.Check check = new NoOverlapRule().start();
+        List<int[]> accepted = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            int employee = random.nextInt(5);
+            long day = random.nextInt(3);
+            // any minute of the day, running past midnight now and then
+            int start = random.nextInt(24 * 60);
+            int end = start + 1 + random.nextInt(180);
+            boolean free = true;
+            for (int[] meeting : accepted) {
+                long otherStart = meeting[1] * 24L * 60 + meeting[2];
+                long otherEnd = meeting[1] * 24L * 60 + meeting[3];
+                if (meeting[0] == employee && otherStart < day * 24 * 60 + end && day * 24 * 60 + start < otherEnd) {
+                    free = false;
+                }
+            }
+            assertEquals(free, check.allows(employee, day, start, end));
+            if (free) {
+                check.accepted(employee, day, start, end);
+                accepted.add(new int[] { employee, (int) day, start, end });
+            }
+        }
+    }
+
+    @Test
+    public void testSameScheduleFromEveryCalculator() {
+        Random random = new Random(26);
+        List<BookingRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            requests.add(request(i, "EMP" + random.nextInt(20), MONDAY.plusDays(random.nextInt(21)),
+                    8 + random.nextInt(10), 1 + random.nextInt(3)));
+        }
+        BookingRuleChain rules = BookingRuleChain.of(new MaxHoursRule(3, Period.DAY),
+                new MaxHoursRule(10, Period.WEEK), new NoOverlapRule());
+
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        metrics.setLogRejections(false);
+        BasicCalculatorService basic = new BasicCalculatorService(metrics);
+        basic.setRules(rules);
+        List<Long> expected = submissions(basic.calculate(batch(requests)).values());
+        assertTrue(metrics.getRuleViolations() > 0);
+
+        ParallelCalculatorService parallel = new ParallelCalculatorService(quietMetrics());
+        parallel.setRules(rules);
+        assertEquals(expected, submissions(parallel.calculate(batch(requests)).values()));
+
+        BookingRequestStore store = BookingRequestStore.onHeap();
+        for (BookingRequest request : requests) {
+            store.add(request);
+        }
+        BasicCalculatorService columnar = new BasicCalculatorService(quietMetrics());
+        columnar.setRules(rules);
+        List<Long> actual = new ArrayList<>();
+        for (int record : columnar.calculate(store, LocalTime.of(9, 0), LocalTime.of(17, 30))) {
+            actual.add(store.getSubmissionEpochSecond(record));
+        }
+        actual.sort(null);
+        assertEquals(expected, actual);
+
+        IntervalCalculatorService interval = new IntervalCalculatorService(quietMetrics());
+        interval.setRules(rules);
+        assertEquals(expected, submissions(interval.calculate(batch(requests)).values()));
+
+        SlotCalendarCalculatorService slots = new SlotCalendarCalculatorService(60, quietMetrics());
+        slots.setRules(rules);
+        assertEquals(expected, submissions(slots.calculate(batch(requests)).values()));
+    }
+
+    @Test
+    public void testSameOutputFromEveryMode() throws Exception {
+        BookingRuleChain rules = BookingRuleChain.of(new MaxHoursRule(3, Period.DAY),
+                new MaxHoursRule(8, Period.WEEK), new NoOverlapRule());
+        Random random = new Random(28);
+        List<String> lines = new ArrayList<>();
+        lines.add("0900 1730");
+        LocalDateTime submission = LocalDateTime.of(2011, 3, 1, 8, 0);
+        for (int i = 0; i < 3000; i++) {
+            // in order of submission, for meetings up to two weeks ahead
+            submission = submission.plusMinutes(1 + random.nextInt(20));
+            lines.add(submission.toLocalDate() + " " + submission.toLocalTime().withSecond(1) + " EMP"
+                    + random.nextInt(20));
+            lines.add(String.format("%s %02d:00 %d", submission.toLocalDate().plusDays(random.nextInt(14)),
+                    8 + random.nextInt(10), 1 + random.nextInt(3)));
+        }
+        Path ordered = folder.newFolder("ordered").toPath().resolve("input.txt");
+        Files.write(ordered, lines);
+        assertSameOutput(ordered, rules);
+
+        List<String> pairs = new ArrayList<>();
+        for (int i = 1; i < lines.size(); i += 2) {
+            pairs.add(lines.get(i) + System.lineSeparator() + lines.get(i + 1));
+        }
+        Collections.shuffle(pairs, random);
+        pairs.add(0, lines.get(0));
+        Path unordered = folder.newFolder("unordered").toPath().resolve("input.txt");
+        Files.write(unordered, pairs);
+        assertSameOutput(unordered, rules);
+    }
+
+    @Test
+    public void testRulesApplyToEveryRoom() {
+        SchedulerMetrics metrics = quietMetrics();
+        MultiRoomCalculatorService calculator = new MultiRoomCalculatorService(metrics);
+        calculator.setRules(BookingRuleChain.of(new MaxHoursRule(2, Period.DAY)));
+        List<BookingRequest> requests = new ArrayList<>();
+        requests.add(request(0, "EMP01", MONDAY, 9, 1));
+        // a room of its own, but over the limit for EMP01 on the day
+        requests.add(request(1, "EMP01", MONDAY, 9, 2));
+        requests.add(request(2, "EMP01", MONDAY, 10, 1));
+        BookingRequestBatch batch = batch(requests);
+        batch.setRooms(Arrays.asList(new MeetingRoom("A", 10), new MeetingRoom("B", 10)));
+
+        Map<LocalDate, Map<MeetingRoom, SortedSet<BookingRequest>>> schedule = calculator.calculate(batch);
+        int meetings = 0;
+        for (SortedSet<BookingRequest> room : schedule.get(MONDAY).values()) {
+            meetings += room.size();
+        }
+        assertEquals(2, meetings);
+        assertEquals(1, metrics.getRuleViolations());
+        assertEquals(2, metrics.getAccepted());
+    }
+
+    @Test
+    public void testLongLongHashMap() {
+        Random random = new Random(27);
+        LongLongHashMap map = new LongLongHashMap();
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            // keys differing only in their high bits as well as in their low bits
+            long key = random.nextBoolean() ? random.nextInt(5000) : (long) random.nextInt(5000) << 40;
+            long delta = random.nextInt(100);
+            assertEquals(expected.merge(key, delta, Long::sum).longValue(), map.add(key, delta));
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().longValue(), map.get(entry.getKey()));
+        }
+        assertEquals(0, map.get(-1));
+        assertFalse(map.containsKey(-1));
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(0, map.get(0));
+    }
+
+    private void assertSameOutput(final Path input, final BookingRuleChain rules) throws Exception {
+        Path expected = input.resolveSibling("expected.txt");
+        MeetingSchedulerServiceImpl schedulerService = new MeetingSchedulerServiceImpl(input.toString(),
+                expected.toString(), new BasicCalculatorService(quietMetrics()), quietMetrics());
+        schedulerService.setRules(rules);
+        schedulerService.produceSchedule();
+        // the rules make a difference
+        Path withoutRules = input.resolveSibling("norules.txt");
+        new MeetingSchedulerServiceImpl(input.toString(), withoutRules.toString(),
+                new BasicCalculatorService(quietMetrics()), quietMetrics()).produceSchedule();
+        assertFalse(Arrays.equals(Files.readAllBytes(expected), Files.readAllBytes(withoutRules)));
+
+        for (boolean offHeap : new boolean[] { false, true }) {
+            Path columnar = input.resolveSibling("columnar.txt");
+            ColumnarMeetingSchedulerService columnarService = new ColumnarMeetingSchedulerService(input.toString(),
+                    columnar.toString(), offHeap, quietMetrics());
+            columnarService.setRules(rules);
+            columnarService.produceSchedule();
+            assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(columnar));
+        }
+
+        Path pipelined = input.resolveSibling("pipelined.txt");
+        PipelinedSchedulerService pipelinedService = new PipelinedSchedulerService(input.toString(),
+                pipelined.toString(), 7, 1, quietMetrics());
+        pipelinedService.setRules(rules);
+        pipelinedService.produceSchedule();
+        assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(pipelined));
+
+        Path batchOutput = input.resolveSibling("batch");
+        BatchSchedulerService batchService = new BatchSchedulerService(Arrays.asList(input), batchOutput, 2,
+                quietMetrics());
+        batchService.setRules(rules);
+        batchService.produceSchedule();
+        assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(batchOutput.resolve("input.txt")));
+    }
+
+    private static SchedulerMetrics quietMetrics() {
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        metrics.setLogRejections(false);
+        return metrics;
+    }
+
+    private static List<Long> submissions(final Collection<SortedSet<BookingRequest>> days) {
+        List<Long> submissions = new ArrayList<>();
+        for (SortedSet<BookingRequest> day : days) {
+            for (BookingRequest meeting : day) {
+                submissions.add(meeting.getRequestEpochSecond());
+            }
+        }
+        submissions.sort(null);
+        return submissions;
+    }
+
+    private static BookingRequestBatch batch(final List<BookingRequest> requests) {
+        BookingRequestBatch batch = new BookingRequestBatch(LocalTime.of(9, 0), LocalTime.of(17, 30));
+        batch.setBookingRequests(SubmissionOrderedRequests.of(requests));
+        return batch;
+    }
+
+    /**
+     * @param order the order of submission
+     */
+    private static BookingRequest request(final int order, final String employee, final LocalDate meetingDate,
+            final int startHour, final int hours) {
+        return new BookingRequest.BookingRequestBuilder(LocalDate.of(2011, 3, 1), LocalTime.ofSecondOfDay(order))
+                .meetingDate(meetingDate).meetingStart(LocalTime.of(startHour, 0)).duration(hours)
+                .employee(employee).build();
+    }
+}
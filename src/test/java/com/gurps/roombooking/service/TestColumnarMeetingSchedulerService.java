@@ -0,0 +1,98 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestStore;
+
+public class TestColumnarMeetingSchedulerService {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSameOutputAsObjectModel() throws IOException {
+        Path input = folder.newFile("bookings.txt").toPath();
+        List<String> lines = new ArrayList<>();
+        lines.add("0900 1730");
+        Random random = new Random(3);
+        for (int i = 0; i < 3000; i++) {
+            // submission times repeat now and then and some meetings fall outside office hours
+            lines.add(String.format("2011-03-%02d %02d:%02d:%02d EMP%03d", 1 + random.nextInt(10), random.nextInt(24),
+                    random.nextInt(60), random.nextInt(60), random.nextInt(200)));
+            lines.add(String.format("2011-04-%02d %02d:%02d %d", 1 + random.nextInt(30), 7 + random.nextInt(12),
+                    30 * random.nextInt(2), 1 + random.nextInt(3)));
+        }
+        Files.write(input, lines);
+
+        File expected = new File(folder.getRoot(), "expected.txt");
+        new MeetingSchedulerServiceImpl(input.toString(), expected.getPath()).produceSchedule();
+
+        for (boolean offHeap : new boolean[] { false, true }) {
+            File actual = new File(folder.getRoot(), "actual" + offHeap + ".txt");
+            new ColumnarMeetingSchedulerService(input.toString(), actual.getPath(), offHeap).produceSchedule();
+            assertArrayEquals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(actual.toPath()));
+        }
+    }
+
+    @Test
+    public void testStagesTimedInMetrics() throws IOException, URISyntaxException {
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        new ColumnarMeetingSchedulerService(Paths.get(getClass().getResource("/HappyFile.txt").toURI()).toString(),
+                new File(folder.getRoot(), "output.txt").getPath(), false, metrics).produceSchedule();
+        assertEquals(5, metrics.getRequestsRead());
+        assertEquals(5, metrics.getStageRecords(SchedulerMetrics.Stage.CALCULATE));
+        assertEquals(3, metrics.getStageRecords(SchedulerMetrics.Stage.PRINT));
+        assertEquals(3, metrics.getAccepted());
+
+        // input with rooms is handed over with the same metrics
+        SchedulerMetrics roomMetrics = new SchedulerMetrics();
+        new ColumnarMeetingSchedulerService(Paths.get(getClass().getResource("/MultiRoomFile.txt").toURI())
+                .toString(), new File(folder.getRoot(), "rooms.txt").getPath(), false, roomMetrics).produceSchedule();
+        assertEquals(4, roomMetrics.getAccepted());
+    }
+
+    @Test
+    public void testStoreRoundTrip() {
+        BookingRequest booking = new BookingRequest.BookingRequestBuilder(LocalDate.of(2011, 3, 16),
+                LocalTime.of(12, 34, 56))
+                .meetingDate(LocalDate.of(2011, 3, 21))
+                .meetingStart(LocalTime.of(9, 30))
+                .duration(2)
+                .employee("EMP002")
+                .build();
+        for (BookingRequestStore store : new BookingRequestStore[] { BookingRequestStore.onHeap(1),
+                BookingRequestStore.offHeap(1) }) {
+            for (int i = 0; i < 10; i++) {
+                store.add(booking);
+            }
+            assertEquals(10, store.size());
+            assertEquals(1, store.internEmployee("EMP003"));
+            BookingRequest copy = store.toBookingRequest(9);
+            assertEquals(booking.getRequestDate(), copy.getRequestDate());
+            assertEquals(booking.getRequestTime(), copy.getRequestTime());
+            assertEquals(booking.getMeetingDate(), copy.getMeetingDate());
+            assertEquals(booking.getMeetingStartTime(), copy.getMeetingStartTime());
+            assertEquals(booking.getMeetingEndDateTime(), copy.getMeetingEndDateTime());
+            assertEquals(booking.getEmployeeId(), copy.getEmployeeId());
+            assertEquals(11 * 60 + 30, store.getEndMinute(9));
+        }
+    }
+}
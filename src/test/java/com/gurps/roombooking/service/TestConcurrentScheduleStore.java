@@ -0,0 +1,113 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+
+public class TestConcurrentScheduleStore {
+
+    private static final int THREADS = 8;
+
+    @Test
+    public void testConcurrentSubmissionsMatchSequentialRun() throws Exception {
+        Random random = new Random(17);
+        List<BookingRequest> bookings = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            // unique submission times, so which of two duplicates arrives first does not matter
+            bookings.add(new BookingRequest.BookingRequestBuilder(LocalDate.of(2014, 1, 1),
+                    LocalTime.ofSecondOfDay(i))
+                    .meetingDate(LocalDate.of(2014, 3, 1).plusDays(random.nextInt(10)))
+                    .meetingStart(LocalTime.of(7 + random.nextInt(11), 15 * random.nextInt(4)))
+                    .duration(1 + random.nextInt(3))
+                    .employee("EMP" + i)
+                    .build());
+        }
+        BookingRequestBatch batch = new BookingRequestBatch(LocalTime.of(9, 0), LocalTime.of(17, 30));
+        batch.setBookingRequests(new TreeSet<>(bookings));
+        Map<LocalDate, SortedSet<BookingRequest>> expected = new BasicCalculatorService().calculate(batch);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < 5; round++) {
+                Collections.shuffle(bookings, random);
+                ConcurrentScheduleStore store = new ConcurrentScheduleStore(LocalTime.of(9, 0), LocalTime.of(17, 30));
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    List<BookingRequest> share = bookings.subList(t * bookings.size() / THREADS,
+                            (t + 1) * bookings.size() / THREADS);
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        for (BookingRequest booking : share) {
+                            store.submit(booking);
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                assertSameSchedule(expected, store.getSchedule());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testOutcomesCountedInMetrics() {
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        metrics.setLogRejections(false);
+        ConcurrentScheduleStore store = new ConcurrentScheduleStore(LocalTime.of(9, 0), LocalTime.of(17, 30),
+                metrics);
+        BookingRequest first = makeBookingRequest(LocalTime.of(10, 0), LocalTime.of(9, 0));
+        assertEquals(ConcurrentScheduleStore.Outcome.ACCEPTED, store.offer(first));
+        assertEquals(ConcurrentScheduleStore.Outcome.DUPLICATE, store.offer(first));
+        assertEquals(ConcurrentScheduleStore.Outcome.CONFLICT,
+                store.offer(makeBookingRequest(LocalTime.of(11, 0), LocalTime.of(9, 30))));
+        assertEquals(ConcurrentScheduleStore.Outcome.OUTSIDE_OFFICE_HOURS,
+                store.offer(makeBookingRequest(LocalTime.of(12, 0), LocalTime.of(8, 0))));
+        assertEquals(1, metrics.getAccepted());
+        assertEquals(1, metrics.getDuplicates());
+        assertEquals(1, metrics.getConflicts());
+        assertEquals(1, metrics.getOutsideOfficeHours());
+    }
+
+    private static BookingRequest makeBookingRequest(final LocalTime requestTime, final LocalTime meetingStart) {
+        return new BookingRequest.BookingRequestBuilder(LocalDate.of(2014, 1, 1), requestTime)
+                .meetingDate(LocalDate.of(2014, 3, 1)).meetingStart(meetingStart).duration(1).employee("EMP001")
+                .build();
+    }
+
+    private void assertSameSchedule(final Map<LocalDate, SortedSet<BookingRequest>> expected,
+            final Map<LocalDate, SortedSet<BookingRequest>> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (LocalDate day : expected.keySet()) {
+            assertEquals(expected.get(day).size(), actual.get(day).size());
+            Iterator<BookingRequest> it = actual.get(day).iterator();
+            for (BookingRequest meeting : expected.get(day)) {
+                assertSame(meeting, it.next());
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gurps.roombooking.domain.EmployeeDictionary;
+
+public class TestEmployeeBookings {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final EmployeeDictionary employees = EmployeeDictionary.getInstance();
+
+    @Test
+    public void testInterning() {
+        byte[] line = "2011-03-17 10:17:06 EMPINTERN1".getBytes();
+        int code = employees.intern(line, 20, 10);
+        assertEquals(code, employees.intern("EMPINTERN1"));
+        assertEquals("EMPINTERN1", employees.decode(code));
+        // the same String for every request of the employee
+        assertSame(employees.decode(code), employees.decode(employees.intern(line, 20, 10)));
+        assertNotEquals(code, employees.intern(line, 20, 9));
+        assertEquals(EmployeeDictionary.NO_EMPLOYEE, employees.intern(null));
+    }
+
+    @Test
+    public void testIdsTheCharsetCannotHoldKeepTheirOwnCodes() {
+        // ids differing only in characters that may not be in the platform charset
+        int first = employees.intern("EMP\u4e00");
+        int second = employees.intern("EMP\u4e8c");
+        assertNotEquals(first, second);
+        assertEquals("EMP\u4e00", employees.decode(first));
+        assertEquals("EMP\u4e8c", employees.decode(second));
+        assertEquals(first, employees.intern("EMP\u4e00"));
+    }
+
+    @Test
+    public void testLookupDoesNotAdd() {
+        int size = employees.size();
+        assertEquals(EmployeeDictionary.NO_EMPLOYEE, employees.lookup("EMPNEVERSEEN"));
+        assertEquals(0, new EmployeeBookings().getBookings("EMPNEVERSEEN"));
+        assertEquals(0, new EmployeeBookings().getHoursBooked("EMPNEVERSEEN"));
+        assertEquals(size, employees.size());
+        assertEquals(employees.intern("EMPLOOKUP"), employees.lookup("EMPLOOKUP"));
+    }
+
+    @Test
+    public void testConcurrentInterningGivesDenseCodes() throws Exception {
+        int threads = 4;
+        int ids = 2000;
+        int before = employees.size();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<int[]>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    int[] codes = new int[ids];
+                    for (int i = 0; i < ids; i++) {
+                        byte[] id = ("EMPCONCURRENT" + i).getBytes();
+                        codes[i] = employees.intern(id, 0, id.length);
+                    }
+                    return codes;
+                }));
+            }
+            int[] codes = results.get(0).get();
+            for (Future<int[]> result : results) {
+                assertEquals(Arrays.toString(codes), Arrays.toString(result.get()));
+            }
+            assertEquals(before + ids, employees.size());
+            for (int i = 0; i < ids; i++) {
+                assertEquals("EMPCONCURRENT" + i, employees.decode(codes[i]));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testBookingsAndHoursPerEmployee() throws Exception {
+        Path summary = folder.getRoot().toPath().resolve("employees.txt");
+        MeetingSchedulerServiceImpl schedulerService = new MeetingSchedulerServiceImpl(
+                Paths.get(getClass().getResource("/HappyFile.txt").toURI()).toString(),
+                folder.getRoot().toPath().resolve("output.txt").toString());
+        schedulerService.setEmployeeSummaryPath(summary.toString());
+        schedulerService.produceSchedule();
+        // EMP001 conflicts with EMP002 and EMP005 is outside office hours
+        assertEquals(Arrays.asList("EMP002 1 2", "EMP003 1 2", "EMP004 1 1"), Files.readAllLines(summary));
+    }
+}
@@ -0,0 +1,133 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.FreeSlotIndex;
+import com.gurps.roombooking.domain.TimeSlot;
+
+public class TestFreeSlotIndex {
+
+    private static final LocalTime OPENING = LocalTime.of(9, 0);
+    private static final LocalTime CLOSING = LocalTime.of(17, 30);
+
+    @Test
+    public void testSameSlotsAsScanningTheSchedule() {
+        Random random = new Random(17);
+        List<BookingRequest> bookings = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            bookings.add(new BookingRequest.BookingRequestBuilder(LocalDate.of(2014, 1, 1),
+                    LocalTime.ofSecondOfDay(random.nextInt(86400)))
+                    .meetingDate(LocalDate.of(2014, 3, 1).plusDays(random.nextInt(30)))
+                    .meetingStart(LocalTime.of(8 + random.nextInt(10), 15 * random.nextInt(4)))
+                    .duration(1 + random.nextInt(2))
+                    .employee("EMP" + i)
+                    .build());
+        }
+        BookingRequestBatch batch = new BookingRequestBatch(OPENING, CLOSING);
+        batch.setBookingRequests(new TreeSet<>(bookings));
+        Map<LocalDate, SortedSet<BookingRequest>> schedule = new BasicCalculatorService().calculate(batch);
+
+        FreeSlotIndex index = FreeSlotIndex.of(schedule, OPENING, CLOSING);
+        ConcurrentScheduleStore store = new ConcurrentScheduleStore(OPENING, CLOSING);
+        for (BookingRequest booking : bookings) {
+            store.submit(booking);
+        }
+
+        LocalDate from = LocalDate.of(2014, 2, 27);
+        LocalDate to = LocalDate.of(2014, 4, 2);
+        for (int hours = 1; hours <= 9; hours++) {
+            SortedMap<LocalDate, List<String>> expected = new TreeMap<>();
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                List<String> slots = scan(schedule.get(date), hours);
+                if (!slots.isEmpty()) {
+                    expected.put(date, slots);
+                }
+                assertEquals(slots, describe(index.findFreeSlots(date, hours)));
+                assertEquals(slots, describe(store.findFreeSlots(date, hours)));
+            }
+            assertEquals(expected, describe(index.findFreeSlots(from, to, hours)));
+            assertEquals(expected, describe(store.findFreeSlots(from, to, hours)));
+        }
+    }
+
+    @Test
+    public void testBookingSplitsGap() {
+        FreeSlotIndex index = new FreeSlotIndex(OPENING, CLOSING);
+        LocalDate day = LocalDate.of(2011, 3, 21);
+        assertEquals("[09:00 17:30]", describe(index.findFreeSlots(day, 8)).toString());
+        index.book(makeMeeting(day, LocalTime.of(11, 0), 2));
+        assertEquals("[09:00 11:00, 13:00 17:30]", describe(index.findFreeSlots(day, 2)).toString());
+        assertEquals("[13:00 17:30]", describe(index.findFreeSlots(day, 3)).toString());
+        index.book(makeMeeting(day, LocalTime.of(9, 0), 2));
+        index.book(makeMeeting(day, LocalTime.of(15, 30), 2));
+        assertEquals("[13:00 15:30]", describe(index.findFreeSlots(day, 1)).toString());
+        assertEquals("[]", describe(index.findFreeSlots(day, 3)).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDurationMustBePositive() {
+        new FreeSlotIndex(OPENING, CLOSING).findFreeSlots(LocalDate.of(2011, 3, 21), 0);
+    }
+
+    /**
+     * The gaps of at least the given hours found by walking the day's meetings.
+     */
+    private static List<String> scan(final SortedSet<BookingRequest> meetings, final int hours) {
+        int cursor = OPENING.getHour() * 60 + OPENING.getMinute();
+        int closing = CLOSING.getHour() * 60 + CLOSING.getMinute();
+        List<TimeSlot> gaps = new ArrayList<>();
+        if (meetings != null) {
+            for (BookingRequest meeting : meetings) {
+                if (meeting.getMeetingStartMinute() > cursor) {
+                    gaps.add(new TimeSlot(cursor, meeting.getMeetingStartMinute()));
+                }
+                cursor = Math.max(cursor, meeting.getMeetingEndMinute());
+            }
+        }
+        if (cursor < closing) {
+            gaps.add(new TimeSlot(cursor, closing));
+        }
+        gaps.removeIf(gap -> gap.getMinutes() < hours * 60);
+        return describe(gaps);
+    }
+
+    private static SortedMap<LocalDate, List<String>> describe(final SortedMap<LocalDate, List<TimeSlot>> days) {
+        SortedMap<LocalDate, List<String>> described = new TreeMap<>();
+        for (Map.Entry<LocalDate, List<TimeSlot>> day : days.entrySet()) {
+            described.put(day.getKey(), describe(day.getValue()));
+        }
+        return described;
+    }
+
+    private static List<String> describe(final List<TimeSlot> slots) {
+        List<String> described = new ArrayList<>();
+        for (TimeSlot slot : slots) {
+            described.add(slot.getStart() + " " + slot.getEnd());
+        }
+        return described;
+    }
+
+    private static BookingRequest makeMeeting(final LocalDate day, final LocalTime start, final int hours) {
+        return new BookingRequest.BookingRequestBuilder(LocalDate.of(2011, 3, 16), LocalTime.of(12, 0))
+                .meetingDate(day)
+                .meetingStart(start)
+                .duration(hours)
+                .employee("EMP001")
+                .build();
+    }
+}
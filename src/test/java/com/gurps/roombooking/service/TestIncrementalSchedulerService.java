@@ -0,0 +1,110 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+
+public class TestIncrementalSchedulerService {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSameScheduleAsBatchInAnyOrder() {
+        Random random = new Random(21);
+        List<BookingRequest> bookings = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            bookings.add(new BookingRequest.BookingRequestBuilder(LocalDate.of(2014, 1, 1).plusDays(random.nextInt(5)),
+                    LocalTime.ofSecondOfDay(random.nextInt(86400)))
+                    .meetingDate(LocalDate.of(2014, 3, 1).plusDays(random.nextInt(20)))
+                    .meetingStart(LocalTime.of(7 + random.nextInt(11), 30 * random.nextInt(2)))
+                    .duration(1 + random.nextInt(3))
+                    .employee("EMP" + i)
+                    .build());
+        }
+        Collections.shuffle(bookings, random);
+        // the batch keeps the first of the requests with the same submission time, as does the service
+        BookingRequestBatch batch = new BookingRequestBatch(LocalTime.of(9, 0), LocalTime.of(17, 30));
+        batch.setBookingRequests(new TreeSet<>(bookings));
+        Map<LocalDate, SortedSet<BookingRequest>> expected = new BasicCalculatorService().calculate(batch);
+
+        IncrementalSchedulerService service = new IncrementalSchedulerService(LocalTime.of(9, 0),
+                LocalTime.of(17, 30), folder.getRoot() + "/output.txt");
+        for (BookingRequest booking : bookings) {
+            service.submit(booking);
+        }
+        Map<LocalDate, SortedSet<BookingRequest>> actual = service.getSchedule();
+        assertEquals(expected.keySet(), actual.keySet());
+        for (LocalDate day : expected.keySet()) {
+            assertEquals(expected.get(day).size(), actual.get(day).size());
+            Iterator<BookingRequest> it = actual.get(day).iterator();
+            for (BookingRequest meeting : expected.get(day)) {
+                assertSame(meeting, it.next());
+            }
+            assertEquals(expected.get(day).size(), service.getSchedule(day).size());
+        }
+    }
+
+    @Test
+    public void testEarlierSubmissionDisplacesMeeting() {
+        IncrementalSchedulerService service = new IncrementalSchedulerService(LocalTime.of(9, 0),
+                LocalTime.of(17, 30), folder.getRoot() + "/output.txt");
+        BookingRequest later = makeBookingRequest(LocalTime.of(12, 0), LocalTime.of(9, 0), "EMP002");
+        BookingRequest earlier = makeBookingRequest(LocalTime.of(11, 0), LocalTime.of(10, 0), "EMP001");
+        BookingRequest clash = makeBookingRequest(LocalTime.of(13, 0), LocalTime.of(10, 0), "EMP003");
+
+        assertTrue(service.submit(later));
+        assertTrue(service.submit(earlier));
+        assertFalse(service.submit(clash));
+        assertFalse(service.submit(makeBookingRequest(LocalTime.of(11, 0), LocalTime.of(15, 0), "EMP004")));
+        assertFalse(service.submit(makeBookingRequest(LocalTime.of(14, 0), LocalTime.of(17, 0), "EMP005")));
+        SortedSet<BookingRequest> day = service.getSchedule(LocalDate.of(2011, 3, 21));
+        assertEquals(1, day.size());
+        assertSame(earlier, day.first());
+        assertTrue(service.getSchedule(LocalDate.of(2011, 3, 22)).isEmpty());
+    }
+
+    @Test
+    public void testLoadAndProduceSchedule() throws IOException, URISyntaxException {
+        File output = new File(folder.getRoot(), "output.txt");
+        File expected = new File(folder.getRoot(), "expected.txt");
+        String input = Paths.get(getClass().getResource("/HappyFile.txt").toURI()).toString();
+        new MeetingSchedulerServiceImpl(input, expected.getPath()).produceSchedule();
+        IncrementalSchedulerService.load(input, output.getPath()).produceSchedule();
+        assertEquals(Files.readAllLines(expected.toPath()), Files.readAllLines(output.toPath()));
+    }
+
+    private BookingRequest makeBookingRequest(final LocalTime requestTime, final LocalTime meetingStartTime,
+            final String employeeNumber) {
+        return new BookingRequest.BookingRequestBuilder(LocalDate.of(2011, 3, 16), requestTime)
+                .meetingDate(LocalDate.of(2011, 3, 21))
+                .meetingStart(meetingStartTime)
+                .duration(2)
+                .employee(employeeNumber)
+                .build();
+    }
+}
@@ -0,0 +1,105 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.MeetingIntervalIndex;
+
+public class TestIntervalCalculatorService {
+
+    /**
+     * This is the sample given in the exercise
+     **/
+    @Test
+    public void testSampleBookingBatch() {
+        BookingRequestBatch batch = sampleBatch();
+
+        Map<LocalDate, SortedSet<BookingRequest>> expected = new BasicCalculatorService().calculate(batch);
+        Map<LocalDate, SortedSet<BookingRequest>> output = new IntervalCalculatorService().calculate(batch);
+
+        assertEquals(expected.keySet(), output.keySet());
+        for (LocalDate day : expected.keySet()) {
+            assertEquals(expected.get(day).size(), output.get(day).size());
+            assertTrue(output.get(day).containsAll(expected.get(day)));
+        }
+        assertEquals("EMP002", output.get(LocalDate.of(2011, 3, 21)).first().getEmployeeId());
+        assertEquals("EMP003", output.get(LocalDate.of(2011, 3, 22)).first().getEmployeeId());
+        assertEquals("EMP004", output.get(LocalDate.of(2011, 3, 22)).last().getEmployeeId());
+    }
+
+    @Test
+    public void testOverlapSpanningSeveralMeetings() {
+        MeetingIntervalIndex index = new MeetingIntervalIndex();
+        assertTrue(index.add(makeBookingRequest(LocalTime.of(9, 0), LocalTime.of(10, 0), 1, "EMP01")));
+        assertTrue(index.add(makeBookingRequest(LocalTime.of(9, 1), LocalTime.of(12, 0), 1, "EMP02")));
+        assertTrue(index.add(makeBookingRequest(LocalTime.of(9, 2), LocalTime.of(11, 0), 1, "EMP03")));
+
+        // 10:30 - 13:30 clashes with the 11:00 and 12:00 meetings
+        assertFalse(index.add(makeBookingRequest(LocalTime.of(9, 3), LocalTime.of(10, 30), 3, "EMP04")));
+        // 08:00 - 09:00 and 13:00 - 14:00 are free
+        assertTrue(index.add(makeBookingRequest(LocalTime.of(9, 4), LocalTime.of(8, 0), 1, "EMP05")));
+        assertTrue(index.add(makeBookingRequest(LocalTime.of(9, 5), LocalTime.of(13, 0), 1, "EMP06")));
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    public void testRangeQuery() {
+        MeetingIntervalIndex index = new MeetingIntervalIndex();
+        index.add(makeBookingRequest(LocalTime.of(9, 0), LocalTime.of(9, 0), 2, "EMP01"));
+        index.add(makeBookingRequest(LocalTime.of(9, 1), LocalTime.of(11, 0), 1, "EMP02"));
+        index.add(makeBookingRequest(LocalTime.of(9, 2), LocalTime.of(12, 0), 1, "EMP03"));
+        index.add(makeBookingRequest(LocalTime.of(9, 3), LocalTime.of(14, 0), 1, "EMP04"));
+
+        List<BookingRequest> meetings = index.between(LocalTime.of(10, 0), LocalTime.of(12, 0));
+        assertEquals(2, meetings.size());
+        assertEquals("EMP01", meetings.get(0).getEmployeeId());
+        assertEquals("EMP02", meetings.get(1).getEmployeeId());
+    }
+
+    private BookingRequestBatch sampleBatch() {
+        Set<BookingRequest> bookings = new TreeSet<>();
+        bookings.add(makeBookingRequest(LocalDate.of(2011, 3, 17), LocalTime.of(10, 17, 6),
+                LocalDate.of(2011, 3, 21), LocalTime.of(9, 0), 2, "EMP001"));
+        bookings.add(makeBookingRequest(LocalDate.of(2011, 3, 16), LocalTime.of(12, 34, 56),
+                LocalDate.of(2011, 3, 21), LocalTime.of(9, 0), 2, "EMP002"));
+        bookings.add(makeBookingRequest(LocalDate.of(2011, 3, 16), LocalTime.of(9, 28, 23),
+                LocalDate.of(2011, 3, 22), LocalTime.of(14, 0), 2, "EMP003"));
+        bookings.add(makeBookingRequest(LocalDate.of(2011, 3, 17), LocalTime.of(11, 23, 45),
+                LocalDate.of(2011, 3, 22), LocalTime.of(16, 0), 1, "EMP004"));
+        bookings.add(makeBookingRequest(LocalDate.of(2011, 3, 15), LocalTime.of(17, 29, 12),
+                LocalDate.of(2011, 3, 21), LocalTime.of(16, 0), 3, "EMP005"));
+        BookingRequestBatch batch = new BookingRequestBatch(LocalTime.of(9, 0), LocalTime.of(17, 30));
+        batch.setBookingRequests(bookings);
+        return batch;
+    }
+
+    private BookingRequest makeBookingRequest(final LocalTime requestTime, final LocalTime meetingStartTime,
+            final int duration, final String employeeNumber) {
+        return makeBookingRequest(LocalDate.of(2014, 3, 1), requestTime, LocalDate.of(2014, 3, 8),
+                meetingStartTime, duration, employeeNumber);
+    }
+
+    private BookingRequest makeBookingRequest(final LocalDate requestDate, final LocalTime requestTime,
+            final LocalDate meetingDate, final LocalTime meetingStartTime, final int duration,
+            final String employeeNumber) {
+        return new BookingRequest.BookingRequestBuilder(requestDate, requestTime)
+                .meetingDate(meetingDate)
+                .meetingStart(meetingStartTime)
+                .duration(duration)
+                .employee(employeeNumber)
+                .build();
+    }
+}
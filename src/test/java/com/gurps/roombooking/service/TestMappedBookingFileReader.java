@@ -0,0 +1,136 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+
+public class TestMappedBookingFileReader {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSameBatchAsSequentialReader() throws IOException {
+        Path input = folder.newFile("bookings.txt").toPath();
+        List<String> lines = new ArrayList<>();
+        lines.add("0900 1730");
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            // small ranges so that some submission times are duplicated
+            lines.add(String.format("2011-03-%02d %02d:%02d:00 EMP%d", 1 + random.nextInt(3), random.nextInt(24),
+                    random.nextInt(60), random.nextInt(1000)));
+            lines.add(String.format("2011-04-%02d %02d:00 %d", 1 + random.nextInt(28), 9 + random.nextInt(8),
+                    1 + random.nextInt(3)));
+        }
+        Files.write(input, lines);
+
+        for (long chunkSize : new long[] { 7, 64, 1000, 1 << 20 }) {
+            BookingRequestBatch expected = readSequentially(input);
+            BookingRequestBatch actual = new MappedBookingFileReader(ForkJoinPool.commonPool(), chunkSize).read(input);
+
+            assertEquals(expected.getOpeningTime(), actual.getOpeningTime());
+            assertEquals(expected.getClosingTime(), actual.getClosingTime());
+            assertEquals(expected.getBookingRequests().size(), actual.getBookingRequests().size());
+            Iterator<BookingRequest> it = actual.getBookingRequests().iterator();
+            for (BookingRequest request : expected.getBookingRequests()) {
+                BookingRequest other = it.next();
+                assertEquals(request.getRequestDate(), other.getRequestDate());
+                assertEquals(request.getRequestTime(), other.getRequestTime());
+                assertEquals(request.getEmployeeId(), other.getEmployeeId());
+                assertEquals(request.getMeetingDate(), other.getMeetingDate());
+                assertEquals(request.getMeetingStartTime(), other.getMeetingStartTime());
+                assertEquals(request.getMeetingDuration(), other.getMeetingDuration());
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException, URISyntaxException {
+        assertNull(new MappedBookingFileReader().read(resource("/EmptyInputFile.txt")));
+    }
+
+    @Test
+    public void testErrorsReportSameLine() throws IOException, URISyntaxException {
+        String[] files = { "/InvalidDate.txt", "/InvalidRequestTime.txt", "/InvalidMeetingStartTime.txt",
+                "/MissingEmployeeId.txt", "/NegativeDuration.txt", "/ZeroDuration.txt" };
+        for (String file : files) {
+            try {
+                new MappedBookingFileReader(ForkJoinPool.commonPool(), 16).read(resource(file));
+                fail("Expected InvalidBookingRequestException for " + file);
+            } catch (InvalidBookingRequestException e) {
+                try {
+                    readSequentially(resource(file));
+                    fail("Expected InvalidBookingRequestException for " + file);
+                } catch (InvalidBookingRequestException expected) {
+                    assertEquals(expected.getLineNumber(), e.getLineNumber());
+                    assertEquals(expected.getByteOffset(), e.getByteOffset());
+                    assertEquals(expected.getMessage(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testErrorsReportSameByteOffset() throws IOException {
+        String content = "0900 1730\n2011-03-17 10:17:06 EMP001\n2011-03-21 09:00 2\n"
+                + "2011-03-16 12:34:56 EMP002\n2011-03-21 09:00 x\n";
+        String truncated = "0900 1730\n2011-03-17 10:17:06 EMP001\n2011-03-21 09:00 2\n"
+                + "2011-03-16 12:34:56 EMP002\n";
+        String[] inputs = { content, truncated, "0900 x\n2011-03-17 10:17:06 EMP001\n2011-03-21 09:00 2\n" };
+        for (String text : inputs) {
+            Path input = folder.newFile().toPath();
+            Files.write(input, text.getBytes());
+            for (long chunkSize : new long[] { 7, 1 << 20 }) {
+                try {
+                    new MappedBookingFileReader(ForkJoinPool.commonPool(), chunkSize).read(input);
+                    fail("Expected InvalidBookingRequestException for " + text);
+                } catch (InvalidBookingRequestException e) {
+                    try {
+                        readSequentially(input);
+                        fail("Expected InvalidBookingRequestException for " + text);
+                    } catch (InvalidBookingRequestException expected) {
+                        assertEquals(expected.getLineNumber(), e.getLineNumber());
+                        assertEquals(expected.getByteOffset(), e.getByteOffset());
+                        assertEquals(expected.getMessage(), e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    private BookingRequestBatch readSequentially(final Path input) throws IOException {
+        try (BookingRequestReader reader = new BookingRequestReader(input)) {
+            BookingRequestBatch batch = reader.readHeader();
+            List<BookingRequest> requests = new ArrayList<>();
+            BookingRequest request;
+            while ((request = reader.next()) != null) {
+                requests.add(request);
+            }
+            batch.setBookingRequests(new TreeSet<>(requests));
+            return batch;
+        }
+    }
+
+    private Path resource(final String name) throws URISyntaxException {
+        return Paths.get(getClass().getResource(name).toURI());
+    }
+}
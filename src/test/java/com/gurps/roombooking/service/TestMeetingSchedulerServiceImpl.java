@@ -0,0 +1,75 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestMeetingSchedulerServiceImpl {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testInvalidInputWritesError() throws Exception {
+        for (String resource : new String[] { "/InvalidDate.txt", "/InvalidMeetingStartTime.txt",
+                "/InvalidRequestTime.txt", "/MissingEmployeeId.txt", "/NegativeDuration.txt", "/ZeroDuration.txt" }) {
+            for (ValidationMode mode : new ValidationMode[] { ValidationMode.NONE, ValidationMode.STRICT }) {
+                Path output = folder.getRoot().toPath().resolve("output.txt");
+                MeetingSchedulerServiceImpl schedulerService = new MeetingSchedulerServiceImpl(
+                        resource(resource).toString(), output.toString());
+                schedulerService.setValidationMode(mode);
+                schedulerService.setParallelInput(mode == ValidationMode.NONE);
+                schedulerService.produceSchedule();
+                assertEquals(resource, "INVALID INPUT", new String(Files.readAllBytes(output)));
+                Files.delete(output);
+            }
+        }
+    }
+
+    @Test
+    public void testStrictSchedulesValidInput() throws Exception {
+        Path output = folder.getRoot().toPath().resolve("output.txt");
+        MeetingSchedulerServiceImpl schedulerService = new MeetingSchedulerServiceImpl(
+                resource("/HappyFile.txt").toString(), output.toString());
+        schedulerService.setValidationMode(ValidationMode.STRICT);
+        schedulerService.produceSchedule();
+        assertArrayEquals(schedule(resource("/HappyFile.txt")), Files.readAllBytes(output));
+    }
+
+    @Test
+    public void testLenientSchedulesTheRest() throws Exception {
+        // the first request of InvalidDate.txt is the one with the bad date
+        List<String> lines = Files.readAllLines(resource("/HappyFile.txt"));
+        lines.subList(1, 3).clear();
+        Path valid = folder.getRoot().toPath().resolve("valid.txt");
+        Files.write(valid, lines);
+
+        Path output = folder.getRoot().toPath().resolve("output.txt");
+        MeetingSchedulerServiceImpl schedulerService = new MeetingSchedulerServiceImpl(
+                resource("/InvalidDate.txt").toString(), output.toString());
+        schedulerService.setValidationMode(ValidationMode.LENIENT);
+        schedulerService.setParallelInput(true);
+        schedulerService.produceSchedule();
+        assertArrayEquals(schedule(valid), Files.readAllBytes(output));
+    }
+
+    private byte[] schedule(final Path input) throws IOException {
+        Path expected = folder.getRoot().toPath().resolve("expected.txt");
+        new MeetingSchedulerServiceImpl(input.toString(), expected.toString()).produceSchedule();
+        return Files.readAllBytes(expected);
+    }
+
+    private Path resource(final String name) throws URISyntaxException {
+        return Paths.get(getClass().getResource(name).toURI());
+    }
+}
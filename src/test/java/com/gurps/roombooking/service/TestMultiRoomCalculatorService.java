@@ -0,0 +1,106 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.MeetingRoom;
+
+public class TestMultiRoomCalculatorService {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final MeetingRoom BOARD = new MeetingRoom("Board", 12);
+    private static final MeetingRoom BLUE = new MeetingRoom("Blue", 4);
+    private static final MeetingRoom RED = new MeetingRoom("Red", 6);
+
+    @Test
+    public void testBestFit() {
+        SortedSet<BookingRequest> bookings = new TreeSet<>();
+        // four overlapping meetings for three people: smallest room first, the fourth finds no room
+        for (int i = 0; i < 4; i++) {
+            bookings.add(makeBookingRequest(LocalTime.of(9, i), LocalTime.of(10, 0), 3, "EMP00" + i));
+        }
+        bookings.add(makeBookingRequest(LocalTime.of(10, 0), LocalTime.of(9, 0), 13, "EMP010"));
+        bookings.add(makeBookingRequest(LocalTime.of(11, 0), LocalTime.of(8, 0), 1, "EMP011"));
+        BookingRequestBatch batch = new BookingRequestBatch(LocalTime.of(9, 0), LocalTime.of(17, 30));
+        batch.setRooms(Arrays.asList(BOARD, BLUE, RED));
+        batch.setBookingRequests(bookings);
+
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        metrics.setLogRejections(false);
+        Map<LocalDate, Map<MeetingRoom, SortedSet<BookingRequest>>> output = new MultiRoomCalculatorService(metrics)
+                .calculate(batch);
+        Map<MeetingRoom, SortedSet<BookingRequest>> rooms = output.get(LocalDate.of(2011, 3, 21));
+        // inventory order
+        assertEquals(Arrays.asList(BOARD, BLUE, RED), Arrays.asList(rooms.keySet().toArray()));
+        assertEquals("EMP002", rooms.get(BOARD).first().getEmployeeId());
+        assertEquals("EMP000", rooms.get(BLUE).first().getEmployeeId());
+        assertEquals("EMP001", rooms.get(RED).first().getEmployeeId());
+        assertEquals(1, rooms.get(BOARD).size());
+        assertEquals(1, rooms.get(RED).size());
+        // the meeting outside office hours is rejected and the one for 13 people does not fit anywhere
+        assertEquals(1, rooms.get(BLUE).size());
+        assertEquals(3, metrics.getAccepted());
+        assertEquals(1, metrics.getConflicts());
+        assertEquals(1, metrics.getNoRoom());
+        assertEquals(1, metrics.getOutsideOfficeHours());
+    }
+
+    @Test
+    public void testNoRooms() {
+        BookingRequestBatch batch = new BookingRequestBatch(LocalTime.of(9, 0), LocalTime.of(17, 30));
+        batch.setBookingRequests(new TreeSet<BookingRequest>());
+        assertTrue(new MultiRoomCalculatorService().calculate(batch).isEmpty());
+        assertTrue(new MultiRoomCalculatorService().calculate(null).isEmpty());
+    }
+
+    @Test
+    public void testScheduleByDateAndRoom() throws IOException, URISyntaxException {
+        File output = new File(folder.getRoot(), "output.txt");
+        new MeetingSchedulerServiceImpl(Paths.get(getClass().getResource("/MultiRoomFile.txt").toURI()).toString(),
+                output.getPath()).produceSchedule();
+        List<String> lines = Files.readAllLines(output.toPath());
+        assertEquals(Arrays.asList(
+                "2011-03-21",
+                "Board",
+                "10:00 11:00 EMP004",
+                "Blue",
+                "09:00 11:00 EMP002",
+                "Red",
+                "09:00 11:00 EMP001",
+                "2011-03-22",
+                "Board",
+                "14:00 16:00 EMP003"), lines);
+    }
+
+    private BookingRequest makeBookingRequest(final LocalTime requestTime, final LocalTime meetingStartTime,
+            final int attendees, final String employeeNumber) {
+        return new BookingRequest.BookingRequestBuilder(LocalDate.of(2011, 3, 16), requestTime)
+                .meetingDate(LocalDate.of(2011, 3, 21))
+                .meetingStart(meetingStartTime)
+                .duration(1)
+                .attendees(attendees)
+                .employee(employeeNumber)
+                .build();
+    }
+}
@@ -0,0 +1,57 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+
+public class TestParallelCalculatorService {
+
+    @Test
+    public void testSameScheduleAsSequential() {
+        Random random = new Random(11);
+        SortedSet<BookingRequest> bookings = new TreeSet<>();
+        for (int i = 0; i < 5000; i++) {
+            bookings.add(new BookingRequest.BookingRequestBuilder(LocalDate.of(2014, 1, 1).plusDays(random.nextInt(60)),
+                    LocalTime.ofSecondOfDay(random.nextInt(86400)))
+                    .meetingDate(LocalDate.of(2014, 3, 1).plusDays(random.nextInt(100)))
+                    .meetingStart(LocalTime.of(7 + random.nextInt(11), 30 * random.nextInt(2)))
+                    .duration(1 + random.nextInt(3))
+                    .employee("EMP" + i)
+                    .build());
+        }
+        BookingRequestBatch batch = new BookingRequestBatch(LocalTime.of(9, 0), LocalTime.of(17, 30));
+        batch.setBookingRequests(bookings);
+
+        Map<LocalDate, SortedSet<BookingRequest>> expected = new BasicCalculatorService().calculate(batch);
+        for (int threshold : new int[] { 1, 100, 100000 }) {
+            Map<LocalDate, SortedSet<BookingRequest>> output = new ParallelCalculatorService(ForkJoinPool.commonPool(),
+                    threshold).calculate(batch);
+            assertEquals(expected.keySet(), output.keySet());
+            for (LocalDate day : expected.keySet()) {
+                assertEquals(expected.get(day).size(), output.get(day).size());
+                Iterator<BookingRequest> it = output.get(day).iterator();
+                for (BookingRequest meeting : expected.get(day)) {
+                    assertSame(meeting, it.next());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNullBatch() {
+        assertEquals(0, new ParallelCalculatorService().calculate(null).size());
+    }
+}
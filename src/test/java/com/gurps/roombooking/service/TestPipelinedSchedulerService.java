@@ -0,0 +1,149 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestPipelinedSchedulerService {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSameOutputForUnorderedInput() throws IOException, URISyntaxException {
+        assertSameOutput(Paths.get(getClass().getResource("/HappyFile.txt").toURI()));
+
+        List<String> lines = new ArrayList<>();
+        lines.add("0900 1730");
+        Random random = new Random(18);
+        for (int i = 0; i < 3000; i++) {
+            // submission times repeat now and then and some meetings fall outside office hours
+            lines.add(String.format("2011-03-%02d %02d:%02d:%02d EMP%03d", 1 + random.nextInt(10), random.nextInt(24),
+                    random.nextInt(60), random.nextInt(60), random.nextInt(200)));
+            lines.add(String.format("2011-04-%02d %02d:%02d %d", 1 + random.nextInt(30), 7 + random.nextInt(12),
+                    30 * random.nextInt(2), 1 + random.nextInt(3)));
+        }
+        Path input = folder.newFile("unordered.txt").toPath();
+        Files.write(input, lines);
+        assertSameOutput(input);
+    }
+
+    @Test
+    public void testSameOutputForSubmissionOrderedLog() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("0900 1730");
+        Random random = new Random(19);
+        LocalDateTime submission = LocalDateTime.of(2011, 1, 1, 8, 0);
+        for (int i = 0; i < 5000; i++) {
+            // in order of submission, a few at the same time, each for a meeting up to a week ahead
+            submission = submission.plusMinutes(random.nextInt(20));
+            lines.add(String.format("%s %s EMP%03d", submission.toLocalDate(), submission.toLocalTime().withSecond(1),
+                    random.nextInt(200)));
+            lines.add(String.format("%s %02d:%02d %d", submission.toLocalDate().plusDays(random.nextInt(7)),
+                    7 + random.nextInt(12), 30 * random.nextInt(2), 1 + random.nextInt(3)));
+        }
+        Path input = folder.newFile("ordered.txt").toPath();
+        Files.write(input, lines);
+        assertSameOutput(input);
+    }
+
+    @Test
+    public void testSameOutputForRequestsOfFinalizedDays() throws IOException {
+        // the last request was submitted first and takes the slot of a day finalized by then
+        Path input = folder.newFile("interleaved.txt").toPath();
+        Files.write(input, Arrays.asList("0900 1730",
+                "2011-03-20 10:00:00 EMP001", "2011-03-21 09:00 2",
+                "2011-03-22 10:00:00 EMP002", "2011-03-25 09:00 2",
+                "2011-03-10 10:00:00 EMP003", "2011-03-21 09:00 2"));
+        assertSameOutput(input);
+        File output = new File(folder.getRoot(), "output.txt");
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        new PipelinedSchedulerService(input.toString(), output.getPath(), 1, 1, metrics).produceSchedule();
+        assertEquals(Arrays.asList("2011-03-21", "09:00 11:00 EMP003", "2011-03-25", "09:00 11:00 EMP002"),
+                Files.readAllLines(output.toPath()));
+        // the abandoned run is not counted
+        assertEquals(2, metrics.getAccepted());
+        assertEquals(1, metrics.getConflicts());
+        assertEquals(3, metrics.getRequestsRead());
+    }
+
+    @Test
+    public void testRejectionsReportedOnce() throws IOException, URISyntaxException {
+        // HappyFile is out of order but finishes in the pipeline, the interleaved input is handed over
+        Path interleaved = folder.newFile("interleaved.txt").toPath();
+        Files.write(interleaved, Arrays.asList("0900 1730",
+                "2011-03-20 10:00:00 EMP001", "2011-03-21 09:00 2",
+                "2011-03-22 10:00:00 EMP002", "2011-03-25 07:00 2",
+                "2011-03-10 10:00:00 EMP003", "2011-03-21 09:00 2"));
+        for (Path input : new Path[] { Paths.get(getClass().getResource("/HappyFile.txt").toURI()), interleaved }) {
+            assertEquals(rejections(input, false), rejections(input, true));
+        }
+    }
+
+    @Test
+    public void testCountsInMetrics() throws IOException, URISyntaxException {
+        File output = new File(folder.getRoot(), "output.txt");
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        new PipelinedSchedulerService(Paths.get(getClass().getResource("/HappyFile.txt").toURI()).toString(),
+                output.getPath(), 1, 1, metrics).produceSchedule();
+        assertEquals(5, metrics.getRequestsRead());
+        assertEquals(3, metrics.getAccepted());
+        assertEquals(1, metrics.getConflicts());
+        assertEquals(1, metrics.getOutsideOfficeHours());
+        assertEquals(3, metrics.getStageRecords(SchedulerMetrics.Stage.PRINT));
+    }
+
+    @Test
+    public void testInvalidInputWritesError() throws URISyntaxException, IOException {
+        File output = new File(folder.getRoot(), "output.txt");
+        new PipelinedSchedulerService(Paths.get(getClass().getResource("/InvalidDate.txt").toURI()).toString(),
+                output.getPath(), 1, 1).produceSchedule();
+        assertEquals("INVALID INPUT", new String(Files.readAllBytes(output.toPath())));
+        assertFalse(new File(folder.getRoot(), "output.txt.part").exists());
+    }
+
+    private List<String> rejections(final Path input, final boolean pipelined) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(pipelined ? "pipelined.log" : "default.log");
+        String output = new File(folder.getRoot(), "output.txt").getPath();
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        try (RejectionLog log = new RejectionLog(file)) {
+            metrics.setRejectionLog(log);
+            if (pipelined) {
+                new PipelinedSchedulerService(input.toString(), output, 1, 1, metrics).produceSchedule();
+            } else {
+                new MeetingSchedulerServiceImpl(input.toString(), output, new BasicCalculatorService(metrics), metrics)
+                        .produceSchedule();
+            }
+            assertEquals(metrics.getConflicts() + metrics.getOutsideOfficeHours(), log.getCount());
+        }
+        return Files.readAllLines(file);
+    }
+
+    private void assertSameOutput(final Path input) throws IOException {
+        File expected = new File(folder.getRoot(), "expected.txt");
+        new MeetingSchedulerServiceImpl(input.toString(), expected.getPath()).produceSchedule();
+        // small batches and queues so the stages wait on each other
+        for (int capacity : new int[] { 1, PipelinedSchedulerService.DEFAULT_QUEUE_CAPACITY }) {
+            File actual = new File(folder.getRoot(), "actual" + capacity + ".txt");
+            new PipelinedSchedulerService(input.toString(), actual.getPath(), 7 * capacity, capacity)
+                    .produceSchedule();
+            assertArrayEquals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(actual.toPath()));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gurps.roombooking.service.RejectionLog.Reason;
+
+public class TestRejectionLog {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRejectionsOfARun() throws Exception {
+        Path rejections = folder.getRoot().toPath().resolve("rejections.txt");
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        try (RejectionLog log = new RejectionLog(rejections)) {
+            metrics.setRejectionLog(log);
+            new MeetingSchedulerServiceImpl(Paths.get(getClass().getResource("/HappyFile.txt").toURI()).toString(),
+                    new File(folder.getRoot(), "output.txt").getPath(), new BasicCalculatorService(metrics), metrics)
+                    .produceSchedule();
+            assertEquals(2, log.getCount());
+        }
+        // in order of submission
+        assertEquals(Arrays.asList("OUTSIDE_OFFICE_HOURS 2011-03-15 17:29:12 EMP005",
+                "CONFLICT 2011-03-17 10:17:06 EMP001"), Files.readAllLines(rejections));
+    }
+
+    @Test(timeout = 10000)
+    public void testBurstWakesAnIdleDrainer() throws Exception {
+        Path rejections = folder.getRoot().toPath().resolve("rejections.txt");
+        try (RejectionLog log = new RejectionLog(rejections, 2)) {
+            // long enough for the drainer to back off as far as it goes
+            Thread.sleep(200);
+            // two slots per backed off park would take 20s, woken by the full buffer it takes a fraction of that
+            for (int i = 0; i < 4000; i++) {
+                log.record(Reason.CONFLICT, LocalDate.of(2011, 3, 1), LocalTime.ofSecondOfDay(i), "EMP001");
+            }
+        }
+        assertEquals(4000, Files.readAllLines(rejections).size());
+    }
+
+    @Test
+    public void testConcurrentRecordsThroughASmallBuffer() throws Exception {
+        Path rejections = folder.getRoot().toPath().resolve("rejections.txt");
+        int threads = 4;
+        int perThread = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (RejectionLog log = new RejectionLog(rejections, 6)) {
+            List<Future<?>> producers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String employee = "EMP" + t;
+                producers.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        log.record(i % 2 == 0 ? Reason.CONFLICT : Reason.OUTSIDE_OFFICE_HOURS,
+                                LocalDate.of(2011, 3, 1).plusDays(i / 86400), LocalTime.ofSecondOfDay(i % 86400),
+                                employee);
+                    }
+                }));
+            }
+            for (Future<?> producer : producers) {
+                producer.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<String> lines = Files.readAllLines(rejections);
+        assertEquals(threads * perThread, lines.size());
+        // each thread's records keep their order
+        int[] next = new int[threads];
+        for (String line : lines) {
+            String[] fields = line.split(" ");
+            int thread = Integer.parseInt(fields[3].substring(3));
+            int i = next[thread]++;
+            assertEquals(i % 2 == 0 ? "CONFLICT" : "OUTSIDE_OFFICE_HOURS", fields[0]);
+            assertEquals(LocalTime.ofSecondOfDay(i).withNano(0), LocalTime.parse(fields[2]));
+        }
+        for (int count : next) {
+            assertEquals(perThread, count);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosed() throws Exception {
+        RejectionLog log = new RejectionLog(folder.getRoot().toPath().resolve("rejections.txt"));
+        log.close();
+        assertTrue(Files.exists(log.getFile()));
+        log.record(Reason.CONFLICT, 0, "EMP001");
+    }
+}
@@ -0,0 +1,169 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestScheduleWatcher {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path inputs;
+    private Path outputs;
+    private final Random random = new Random(22);
+
+    @Before
+    public void setUp() throws IOException {
+        inputs = folder.newFolder("inputs").toPath();
+        outputs = folder.getRoot().toPath().resolve("outputs");
+    }
+
+    @Test
+    public void testAppendsReadIncrementally() throws Exception {
+        Path input = inputs.resolve("site.txt");
+        Files.write(input, ("0900 1730\n" + records(200, 3)).getBytes());
+        try (ScheduleWatcher watcher = new ScheduleWatcher(inputs, outputs)) {
+            assertEquals(200, watcher.update(input));
+            assertSameAsSingleRun(input);
+            assertEquals(0, watcher.update(input));
+
+            // a record whose second line has not been written yet waits for it
+            String appended = records(50, 4);
+            int split = appended.lastIndexOf('\n', appended.length() - 2) + 1;
+            append(input, appended.substring(0, split));
+            assertEquals(49, watcher.update(input));
+            append(input, appended.substring(split));
+            assertEquals(1, watcher.update(input));
+            assertSameAsSingleRun(input);
+
+            // requests submitted before the others, which displace meetings already scheduled
+            append(input, records(100, 1));
+            assertEquals(100, watcher.update(input));
+            assertSameAsSingleRun(input);
+        }
+    }
+
+    @Test
+    public void testLastLineWithoutTerminator() throws Exception {
+        Path input = inputs.resolve("happy.txt");
+        String happy = new String(Files.readAllBytes(resource("/HappyFile.txt"))).trim();
+        Files.write(input, happy.getBytes());
+        try (ScheduleWatcher watcher = new ScheduleWatcher(inputs, outputs)) {
+            assertEquals(5, watcher.update(input));
+            assertSameAsSingleRun(input);
+
+            append(input, "\n" + records(20, 5).trim());
+            assertEquals(20, watcher.update(input));
+            assertSameAsSingleRun(input);
+
+            // the last line went on after all, so the file is read again
+            append(input, "0");
+            assertEquals(25, watcher.update(input));
+            assertSameAsSingleRun(input);
+        }
+    }
+
+    @Test
+    public void testReplacedInvalidAndDeleted() throws Exception {
+        Path input = inputs.resolve("site.txt");
+        Files.write(input, ("0900 1730\n" + records(100, 3)).getBytes());
+        try (ScheduleWatcher watcher = new ScheduleWatcher(inputs, outputs)) {
+            watcher.updateAll();
+            assertSameAsSingleRun(input);
+
+            Path replacement = folder.getRoot().toPath().resolve("replacement.txt");
+            Files.write(replacement, ("0800 1800\n" + records(300, 3)).getBytes());
+            Files.move(replacement, input, StandardCopyOption.REPLACE_EXISTING);
+            assertEquals(300, watcher.update(input));
+            assertSameAsSingleRun(input);
+
+            append(input, "2011-03-10 25:00:00 EMP001\n2011-04-01 09:00 1\n");
+            assertEquals(-1, watcher.update(input));
+            assertEquals("INVALID INPUT", new String(Files.readAllBytes(outputs.resolve("site.txt"))));
+
+            Files.write(input, ("0900 1730\n" + records(10, 3)).getBytes());
+            assertEquals(10, watcher.update(input));
+            assertSameAsSingleRun(input);
+
+            Files.delete(input);
+            watcher.updateAll();
+            assertFalse(Files.exists(outputs.resolve("site.txt")));
+        }
+    }
+
+    @Test
+    public void testWatchesTheDirectory() throws Exception {
+        Path input = inputs.resolve("site.txt");
+        Files.write(input, ("0900 1730\n" + records(100, 3)).getBytes());
+        ScheduleWatcher watcher = new ScheduleWatcher(inputs, outputs);
+        Thread daemon = new Thread(watcher::produceSchedule);
+        daemon.start();
+        try {
+            awaitSameAsSingleRun(input);
+            append(input, records(100, 3));
+            awaitSameAsSingleRun(input);
+        } finally {
+            watcher.close();
+            daemon.join(10000);
+        }
+        assertFalse(daemon.isAlive());
+    }
+
+    /**
+     * @param day of March the requests are submitted on
+     */
+    private String records(final int count, final int day) {
+        StringBuilder records = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            records.append(String.format("2011-03-%02d %02d:%02d:%02d EMP%03d\n", day, random.nextInt(24),
+                    random.nextInt(60), random.nextInt(60), random.nextInt(100)));
+            records.append(String.format("2011-04-%02d %02d:%02d %d\n", 1 + random.nextInt(10), 8 + random.nextInt(10),
+                    30 * random.nextInt(2), 1 + random.nextInt(3)));
+        }
+        return records.toString();
+    }
+
+    private static void append(final Path input, final String text) throws IOException {
+        Files.write(input, text.getBytes(), StandardOpenOption.APPEND);
+    }
+
+    private byte[] singleRun(final Path input) throws IOException {
+        Path expected = folder.getRoot().toPath().resolve("expected.txt");
+        new MeetingSchedulerServiceImpl(input.toString(), expected.toString()).produceSchedule();
+        return Files.readAllBytes(expected);
+    }
+
+    private void assertSameAsSingleRun(final Path input) throws IOException {
+        assertArrayEquals(singleRun(input), Files.readAllBytes(outputs.resolve(input.getFileName())));
+    }
+
+    private void awaitSameAsSingleRun(final Path input) throws Exception {
+        byte[] expected = singleRun(input);
+        Path output = outputs.resolve(input.getFileName());
+        long deadline = System.currentTimeMillis() + 30000;
+        while (!(Files.exists(output) && Arrays.equals(expected, Files.readAllBytes(output)))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertArrayEquals(expected, Files.readAllBytes(output));
+    }
+
+    private Path resource(final String name) throws Exception {
+        return Paths.get(getClass().getResource(name).toURI());
+    }
+}
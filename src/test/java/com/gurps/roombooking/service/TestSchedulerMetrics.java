@@ -0,0 +1,121 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Collections;
+
+import javax.management.ObjectName;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.BookingRequestStore;
+import com.gurps.roombooking.service.SchedulerMetrics.Stage;
+
+public class TestSchedulerMetrics {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCountsOfARun() throws Exception {
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        File output = new File(folder.getRoot(), "output.txt");
+        new MeetingSchedulerServiceImpl(happyFile(), output.getPath(), new BasicCalculatorService(metrics), metrics)
+                .produceSchedule();
+
+        // EMP001 clashes with EMP002 and EMP005 runs past closing time
+        assertEquals(5, metrics.getRequestsRead());
+        assertEquals(3, metrics.getAccepted());
+        assertEquals(1, metrics.getConflicts());
+        assertEquals(1, metrics.getOutsideOfficeHours());
+        assertEquals(Collections.singletonMap(LocalDate.of(2011, 3, 21), 1L), metrics.getConflictsByDay());
+        assertArrayEquals(new String[] { "2011-03-21=1" }, metrics.getConflictHistogram());
+        assertEquals(5, metrics.getStageRecords(Stage.CALCULATE));
+        assertEquals(3, metrics.getStageRecords(Stage.PRINT));
+        assertTrue(metrics.getStageNanos(Stage.PARSE) > 0);
+
+        String summary = metrics.getSummary();
+        assertTrue(summary, summary.startsWith("{\"requests\":5,\"accepted\":3,\"conflicts\":1,\"outsideOfficeHours\":1,"));
+        assertTrue(summary, summary.contains("\"print\":{\"millis\":"));
+        assertTrue(summary, summary.endsWith("\"conflictsByDay\":{\"2011-03-21\":1}}"));
+
+        metrics.reset();
+        assertEquals(0, metrics.getRequestsRead());
+        assertEquals(0, metrics.getConflictHistogram().length);
+    }
+
+    @Test
+    public void testColumnarAndParallelCountTheSame() throws Exception {
+        BookingRequestBatch batch;
+        BookingRequestStore store = BookingRequestStore.onHeap();
+        try (BookingRequestReader reader = new BookingRequestReader(Paths.get(happyFile()))) {
+            batch = reader.readHeader();
+            reader.readInto(store);
+        }
+        SchedulerMetrics columnar = new SchedulerMetrics();
+        new BasicCalculatorService(columnar).calculate(store, batch.getOpeningTime(), batch.getClosingTime());
+
+        SchedulerMetrics parallel = new SchedulerMetrics();
+        new MeetingSchedulerServiceImpl(happyFile(), new File(folder.getRoot(), "output.txt").getPath(),
+                new ParallelCalculatorService(parallel), parallel).produceSchedule();
+
+        for (SchedulerMetrics metrics : new SchedulerMetrics[] { columnar, parallel }) {
+            assertEquals(3, metrics.getAccepted());
+            assertEquals(1, metrics.getConflicts());
+            assertEquals(1, metrics.getOutsideOfficeHours());
+            assertArrayEquals(new String[] { "2011-03-21=1" }, metrics.getConflictHistogram());
+        }
+    }
+
+    @Test
+    public void testRejectionsNotLoggedWhenSwitchedOff() throws Exception {
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        metrics.setLogRejections(false);
+        PrintStream out = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true));
+        try {
+            new MeetingSchedulerServiceImpl(happyFile(), new File(folder.getRoot(), "output.txt").getPath(),
+                    new BasicCalculatorService(metrics), metrics).produceSchedule();
+        } finally {
+            System.setOut(out);
+        }
+        String log = captured.toString();
+        assertTrue(log, !log.contains("Conflicting booking") && !log.contains("outside office hours"));
+        assertEquals(2, metrics.getConflicts() + metrics.getOutsideOfficeHours());
+    }
+
+    @Test
+    public void testPublishedOverJmx() throws Exception {
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        metrics.register();
+        try {
+            new MeetingSchedulerServiceImpl(happyFile(), new File(folder.getRoot(), "output.txt").getPath(),
+                    new BasicCalculatorService(metrics), metrics).produceSchedule();
+            ObjectName name = new ObjectName(SchedulerMetrics.OBJECT_NAME);
+            assertEquals(3L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Accepted"));
+            assertEquals(metrics.getSummary(), ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Summary"));
+
+            // registering again replaces the metrics
+            new SchedulerMetrics().register();
+            assertEquals(0L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Accepted"));
+        } finally {
+            SchedulerMetrics.unregister();
+        }
+    }
+
+    private String happyFile() throws Exception {
+        return Paths.get(getClass().getResource("/HappyFile.txt").toURI()).toString();
+    }
+}
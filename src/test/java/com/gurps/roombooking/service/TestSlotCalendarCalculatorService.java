@@ -0,0 +1,95 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestBatch;
+import com.gurps.roombooking.domain.SlotCalendar;
+
+public class TestSlotCalendarCalculatorService {
+
+    @Test
+    public void testSameScheduleAsIntervalCalculator() {
+        Random random = new Random(7);
+        SortedSet<BookingRequest> bookings = new TreeSet<>();
+        for (int i = 0; i < 2000; i++) {
+            bookings.add(new BookingRequest.BookingRequestBuilder(LocalDate.of(2014, 1, 1).plusDays(random.nextInt(60)),
+                    LocalTime.ofSecondOfDay(random.nextInt(86400)))
+                    .meetingDate(LocalDate.of(2014, 3, 1).plusDays(random.nextInt(20)))
+                    .meetingStart(LocalTime.of(8 + random.nextInt(10), 0))
+                    .duration(1 + random.nextInt(3))
+                    .employee("EMP" + i)
+                    .build());
+        }
+        BookingRequestBatch batch = new BookingRequestBatch(LocalTime.of(9, 0), LocalTime.of(17, 30));
+        batch.setBookingRequests(bookings);
+
+        SchedulerMetrics expectedMetrics = quietMetrics();
+        Map<LocalDate, SortedSet<BookingRequest>> expected = new IntervalCalculatorService(expectedMetrics)
+                .calculate(batch);
+        for (int granularity : new int[] { 1, 15, 60 }) {
+            SchedulerMetrics metrics = quietMetrics();
+            Map<LocalDate, SortedSet<BookingRequest>> output = new SlotCalendarCalculatorService(granularity,
+                    metrics).calculate(batch);
+            assertEquals(expected.keySet(), output.keySet());
+            for (LocalDate day : expected.keySet()) {
+                assertEquals(employees(expected.get(day)), employees(output.get(day)));
+            }
+            assertEquals(expectedMetrics.getAccepted(), metrics.getAccepted());
+            assertEquals(expectedMetrics.getConflicts(), metrics.getConflicts());
+            assertEquals(expectedMetrics.getOutsideOfficeHours(), metrics.getOutsideOfficeHours());
+        }
+        SchedulerMetrics basicMetrics = quietMetrics();
+        new BasicCalculatorService(basicMetrics).calculate(batch);
+        assertEquals(basicMetrics.getAccepted(), expectedMetrics.getAccepted());
+        assertEquals(basicMetrics.getConflicts(), expectedMetrics.getConflicts());
+    }
+
+    private static SchedulerMetrics quietMetrics() {
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        metrics.setLogRejections(false);
+        return metrics;
+    }
+
+    @Test
+    public void testCalendarAcrossYears() {
+        SlotCalendar calendar = new SlotCalendar(1);
+        long today = LocalDate.of(2014, 3, 8).toEpochDay();
+        assertTrue(calendar.reserve(today, 9 * 60, 10 * 60));
+        assertTrue(calendar.reserve(today - 3650, 9 * 60, 10 * 60));
+        assertTrue(calendar.reserve(today + 3650, 9 * 60, 10 * 60));
+
+        assertFalse(calendar.isFree(today, 9 * 60 + 59, 11 * 60));
+        assertFalse(calendar.isFree(today - 3650, 8 * 60, 9 * 60 + 1));
+        assertTrue(calendar.isFree(today + 3650, 10 * 60, 11 * 60));
+        assertTrue(calendar.isFree(today + 1, 9 * 60, 10 * 60));
+
+        // meeting running past midnight
+        assertTrue(calendar.reserve(today, 23 * 60, 25 * 60));
+        assertFalse(calendar.isFree(today, 24 * 60, 24 * 60 + 30));
+
+        calendar.release(today, 9 * 60, 10 * 60);
+        assertTrue(calendar.isFree(today, 9 * 60, 10 * 60));
+    }
+
+    private List<String> employees(final SortedSet<BookingRequest> meetings) {
+        List<String> employees = new ArrayList<>();
+        for (BookingRequest meeting : meetings) {
+            employees.add(meeting.getEmployeeId());
+        }
+        return employees;
+    }
+}
@@ -0,0 +1,77 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.ScheduledMeetingComparator;
+
+public class TestStreamingFilePrinterService {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSameOutputAsFilePrinter() throws IOException {
+        Random random = new Random(9);
+        Map<LocalDate, SortedSet<BookingRequest>> output = new TreeMap<>();
+        for (int i = 0; i < 2000; i++) {
+            LocalDate meetingDate = LocalDate.of(2011, 3, 1).plusDays(random.nextInt(40));
+            // the odd meeting starting off the minute or running past midnight
+            LocalTime start = random.nextInt(20) == 0 ? LocalTime.of(random.nextInt(24), 15, 30)
+                    : LocalTime.of(random.nextInt(24), random.nextInt(60));
+            SortedSet<BookingRequest> day = output.get(meetingDate);
+            if (day == null) {
+                day = new TreeSet<>(new ScheduledMeetingComparator());
+                output.put(meetingDate, day);
+            }
+            day.add(new BookingRequest.BookingRequestBuilder(LocalDate.of(2011, 2, 1), LocalTime.ofSecondOfDay(i))
+                    .meetingDate(meetingDate)
+                    .meetingStart(start)
+                    .duration(1 + random.nextInt(3))
+                    .employee("EMP" + random.nextInt(1000))
+                    .build());
+        }
+        assertSameOutput(output);
+    }
+
+    @Test
+    public void testMeetingWithoutEmployee() throws IOException {
+        SortedSet<BookingRequest> day = new TreeSet<>(new ScheduledMeetingComparator());
+        day.add(new BookingRequest.BookingRequestBuilder(LocalDate.of(2011, 2, 1), LocalTime.of(9, 0))
+                .meetingDate(LocalDate.of(2011, 3, 1)).meetingStart(LocalTime.of(10, 0)).duration(1).build());
+        Map<LocalDate, SortedSet<BookingRequest>> output = new TreeMap<>();
+        output.put(LocalDate.of(2011, 3, 1), day);
+        assertSameOutput(output);
+    }
+
+    @Test
+    public void testEmptySchedule() throws IOException {
+        assertEquals(0, assertSameOutput(new TreeMap<LocalDate, SortedSet<BookingRequest>>()));
+    }
+
+    private int assertSameOutput(final Map<LocalDate, SortedSet<BookingRequest>> output) throws IOException {
+        File expected = new File(folder.getRoot(), "expected.txt");
+        File actual = new File(folder.getRoot(), "nested" + File.separator + "actual.txt");
+        new FilePrinterServiceImpl(expected.getPath()).print(output);
+        new StreamingFilePrinterService(actual.getPath()).print(output);
+        byte[] bytes = Files.readAllBytes(actual.toPath());
+        assertArrayEquals(Files.readAllBytes(expected.toPath()), bytes);
+        return bytes.length;
+    }
+}
@@ -0,0 +1,72 @@
+package com.gurps.roombooking.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.gurps.roombooking.domain.BookingRequest;
+import com.gurps.roombooking.domain.BookingRequestStore;
+import com.gurps.roombooking.domain.RadixSort;
+import com.gurps.roombooking.domain.SubmissionOrderedRequests;
+
+public class TestSubmissionOrderedRequests {
+
+    @Test
+    public void testSameOrderAsTreeSet() {
+        Random random = new Random(5);
+        List<BookingRequest> requests = new ArrayList<>();
+        SortedSet<BookingRequest> expected = new TreeSet<>();
+        for (int i = 0; i < 20000; i++) {
+            // dates either side of the epoch and a narrow time range so that submission times repeat
+            BookingRequest request = new BookingRequest.BookingRequestBuilder(
+                    LocalDate.of(1969, 12, 1).plusDays(random.nextInt(60)),
+                    LocalTime.of(random.nextInt(24), random.nextInt(10), 0, random.nextInt(3)))
+                    .meetingDate(LocalDate.of(2011, 3, 21))
+                    .meetingStart(LocalTime.of(9, 0))
+                    .duration(1)
+                    .employee("EMP" + i)
+                    .build();
+            requests.add(request);
+            expected.add(request);
+        }
+
+        SubmissionOrderedRequests actual = SubmissionOrderedRequests.of(requests);
+        assertEquals(expected.size(), actual.size());
+        Iterator<BookingRequest> it = actual.iterator();
+        for (BookingRequest request : expected) {
+            // the same instance, i.e. the first one read wins on duplicate submission times
+            assertSame(request, it.next());
+        }
+        for (BookingRequest request : requests) {
+            assertTrue(actual.contains(request));
+        }
+    }
+
+    @Test
+    public void testRadixSortIsStable() {
+        long[] keys = { 5, -3, Long.MAX_VALUE, 5, Long.MIN_VALUE, 0, -3, 1L << 40 };
+        assertArrayEquals(new int[] { 4, 1, 6, 5, 0, 3, 7, 2 }, RadixSort.order(keys, keys.length));
+    }
+
+    @Test
+    public void testStoreSubmissionOrder() {
+        BookingRequestStore store = BookingRequestStore.onHeap(1);
+        long[] seconds = { 1300000000L, 1299999999L, 1300000000L, -86400L };
+        for (long second : seconds) {
+            store.add(second, 15054, 540, 1, 0);
+        }
+        assertArrayEquals(new int[] { 3, 1, 0, 2 }, store.submissionOrder());
+    }
+}